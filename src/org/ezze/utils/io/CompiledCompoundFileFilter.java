@@ -0,0 +1,286 @@
+package org.ezze.utils.io;
+
+import java.io.File;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+/**
+ * Represents compiled form of {@link CompoundFileFilter}.
+ *
+ * Extensions of all {@link javax.swing.filechooser.FileNameExtensionFilter} sub-filters
+ * (including ones of nested compound filters) are merged into a single lowercase
+ * hash set looked up once per file, remaining custom sub-filters are tried
+ * one by one in their original order.
+ *
+ * Compiled filter is a snapshot: sub-filters added to compound filter
+ * after compilation are not taken into account, {@link #isUpToDate()} shows
+ * whether compound filter or any of its nested compound filters has been modified since.
+ *
+ * Like compound filter itself the compiled one may be used as {@link java.io.FileFilter}
+ * and {@link java.nio.file.DirectoryStream.Filter}.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see CompoundFileFilter#compile()
+ */
+public class CompiledCompoundFileFilter extends FileFilter implements java.io.FileFilter, DirectoryStream.Filter<Path> {
+
+    /**
+     * Keeps compiled file filter's description.
+     */
+    private final String description;
+
+    /**
+     * Lowercase extensions of all extension sub-filters.
+     */
+    private final Set<String> extensions = new HashSet<String>();
+
+    /**
+     * Shows whether there was at least one extension sub-filter,
+     * such filters accept all directories.
+     */
+    private final boolean acceptsDirectories;
+
+    /**
+     * Sub-filters which cannot be merged into {@link #extensions}.
+     */
+    private final FileFilter[] customFileFilters;
+
+    /**
+     * Compiled compound file filter and its nested compound file filters.
+     */
+    private final CompoundFileFilter[] sourceFileFilters;
+
+    /**
+     * Counts of modifications of {@link #sourceFileFilters} lists at the moment of compilation.
+     */
+    private final int[] sourceModificationsCounts;
+
+    /**
+     * Compiles specified compound file filter.
+     *
+     * @param compoundFileFilter
+     *      Compound file filter to compile
+     */
+    CompiledCompoundFileFilter(CompoundFileFilter compoundFileFilter) {
+
+        description = compoundFileFilter.getDescription();
+
+        ArrayList<FileFilter> customFileFiltersList = new ArrayList<FileFilter>();
+        ArrayList<CompoundFileFilter> visitedFileFilters = new ArrayList<CompoundFileFilter>();
+        ArrayList<Integer> visitedModificationsCounts = new ArrayList<Integer>();
+        acceptsDirectories = collectFileFilters(compoundFileFilter, customFileFiltersList, visitedFileFilters, visitedModificationsCounts);
+        customFileFilters = customFileFiltersList.toArray(new FileFilter[customFileFiltersList.size()]);
+
+        sourceFileFilters = visitedFileFilters.toArray(new CompoundFileFilter[visitedFileFilters.size()]);
+        sourceModificationsCounts = new int[sourceFileFilters.length];
+        for (int sourceIndex = 0; sourceIndex < sourceFileFilters.length; sourceIndex++)
+            sourceModificationsCounts[sourceIndex] = visitedModificationsCounts.get(sourceIndex);
+    }
+
+    /**
+     * Checks whether compiled compound file filter and its nested compound file filters
+     * haven't been modified since compilation.
+     *
+     * @return
+     *      {@code true} if compiled filter is up to date, {@code false} otherwise
+     */
+    public boolean isUpToDate() {
+
+        for (int sourceIndex = 0; sourceIndex < sourceFileFilters.length; sourceIndex++) {
+
+            if (sourceFileFilters[sourceIndex].fileFilters.getModificationsCount() != sourceModificationsCounts[sourceIndex])
+                return false;
+        }
+
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean accept(File file) {
+
+        if (file == null)
+            return false;
+
+        // Looking extension up
+        if (!extensions.isEmpty()) {
+
+            String extension = getExtension(file.getName());
+            if (extension != null && extensions.contains(extension))
+                return true;
+        }
+
+        if (acceptsDirectories && file.isDirectory())
+            return true;
+
+        for (FileFilter fileFilter : customFileFilters) {
+
+            if (fileFilter.accept(file))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether specified path is accepted by compiled file filter.
+     *
+     * Extensions are matched against path's file name, so {@link java.io.File}
+     * instance is created only for custom sub-filters.
+     *
+     * @param path
+     *      Path to check
+     * @return
+     *      {@code true} if path has been accepted, {@code false} otherwise
+     */
+    @Override
+    public boolean accept(Path path) {
+
+        if (path == null)
+            return false;
+
+        // Looking extension up
+        if (!extensions.isEmpty()) {
+
+            Path fileName = path.getFileName();
+            String extension = fileName != null ? getExtension(fileName.toString()) : null;
+            if (extension != null && extensions.contains(extension))
+                return true;
+        }
+
+        if (acceptsDirectories && Files.isDirectory(path))
+            return true;
+
+        if (customFileFilters.length == 0)
+            return false;
+
+        File file = path.toFile();
+        for (FileFilter fileFilter : customFileFilters) {
+
+            if (fileFilter.accept(file))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Filters a collection of files, large collections are evaluated
+     * in parallel on all available processors.
+     *
+     * @param files
+     *      Files to filter
+     * @return
+     *      Accepted files in their original order, only files evaluated before
+     *      current thread has been interrupted are included in the case of interruption
+     */
+    public List<File> acceptAll(Collection<File> files) {
+
+        return FileFilterBatch.acceptAll(this, files, null);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getDescription() {
+
+        return description;
+    }
+
+    /**
+     * Retrieves merged lowercase extensions of extension sub-filters.
+     *
+     * @return
+     *      Unmodifiable set of extensions
+     */
+    public Set<String> getExtensions() {
+
+        return Collections.unmodifiableSet(extensions);
+    }
+
+    /**
+     * Retrieves sub-filters which are tried one by one.
+     *
+     * @return
+     *      Unmodifiable list of custom file filters
+     */
+    public List<FileFilter> getCustomFileFilters() {
+
+        ArrayList<FileFilter> customFileFiltersList = new ArrayList<FileFilter>(customFileFilters.length);
+        Collections.addAll(customFileFiltersList, customFileFilters);
+        return Collections.unmodifiableList(customFileFiltersList);
+    }
+
+    /**
+     * Retrieves lowercase extension of specified file's name the same way
+     * {@link javax.swing.filechooser.FileNameExtensionFilter} does.
+     *
+     * @param fileName
+     *      File's name
+     * @return
+     *      Lowercase extension or {@code null} if file's name has no extension
+     */
+    static String getExtension(String fileName) {
+
+        int extensionDotPosition = fileName.lastIndexOf('.');
+        if (extensionDotPosition <= 0 || extensionDotPosition >= fileName.length() - 1)
+            return null;
+
+        return fileName.substring(extensionDotPosition + 1).toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Collects extensions and custom sub-filters of compound file filter recursively.
+     *
+     * @param compoundFileFilter
+     *      Compound file filter
+     * @param customFileFiltersList
+     *      List custom sub-filters are added to
+     * @param visitedFileFilters
+     *      Compound filters which have been already collected
+     * @param visitedModificationsCounts
+     *      Counts of modifications of collected compound filters' lists
+     * @return
+     *      {@code true} if at least one extension sub-filter has been found
+     */
+    private boolean collectFileFilters(CompoundFileFilter compoundFileFilter, ArrayList<FileFilter> customFileFiltersList,
+            ArrayList<CompoundFileFilter> visitedFileFilters, ArrayList<Integer> visitedModificationsCounts) {
+
+        for (CompoundFileFilter visitedFileFilter : visitedFileFilters) {
+
+            if (visitedFileFilter == compoundFileFilter)
+                return false;
+        }
+
+        // Modifications count is taken before sub-filters are read, so concurrent modifications make the snapshot stale
+        visitedFileFilters.add(compoundFileFilter);
+        visitedModificationsCounts.add(compoundFileFilter.fileFilters.getModificationsCount());
+
+        boolean hasExtensionFilters = false;
+        for (FileFilter fileFilter : compoundFileFilter.getFileFilters()) {
+
+            if (fileFilter instanceof FileNameExtensionFilter) {
+
+                for (String extension : ((FileNameExtensionFilter)fileFilter).getExtensions())
+                    extensions.add(extension.toLowerCase(Locale.ENGLISH));
+                hasExtensionFilters = true;
+            }
+            else if (fileFilter instanceof CompoundFileFilter)
+                hasExtensionFilters |= collectFileFilters((CompoundFileFilter)fileFilter, customFileFiltersList, visitedFileFilters, visitedModificationsCounts);
+            else if (fileFilter != null && !customFileFiltersList.contains(fileFilter))
+                customFileFiltersList.add(fileFilter);
+        }
+
+        return hasExtensionFilters;
+    }
+}
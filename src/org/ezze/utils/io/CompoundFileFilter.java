@@ -1,17 +1,31 @@
 package org.ezze.utils.io;
 
 import java.io.File;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.swing.filechooser.FileFilter;
 
 /**
  * Represents compound file filter providing a set
  * of single choosable file filters.
+ *
+ * Besides Swing file choosers compound file filter may be passed wherever
+ * {@link java.io.FileFilter} is expected (e.g. to {@link DirectoryManager#removeDirectoryFiles(java.lang.String, java.io.FileFilter)}
+ * or {@link FileManager#copyDirectoryFiles(java.io.File, java.io.File, java.io.FileFilter)})
+ * and used as {@link java.nio.file.DirectoryStream.Filter} of directory listings.
  * 
  * @author Dmitriy Pushkov
  * @version 0.0.1
  */
-public class CompoundFileFilter extends FileFilter {
+public class CompoundFileFilter extends FileFilter implements java.io.FileFilter, DirectoryStream.Filter<Path> {
 
     /**
      * Keeps compound file filter's description.
@@ -21,12 +35,55 @@ public class CompoundFileFilter extends FileFilter {
     /**
      * A list of single choosable file filters.
      */
-    ArrayList<FileFilter> fileFilters = new ArrayList<FileFilter>();
+    final FileFilterList fileFilters = new FileFilterList();
     
     /**
      * Keeps an index of default single choosable file filter.
      */
     int defaultFileFilterIndex = -1;
+
+    /**
+     * Results of {@link #acceptAll(java.util.Collection)} keyed by absolute paths
+     * or {@code null} if results are not cached.
+     */
+    ConcurrentHashMap<String, FileFilterBatch.CachedResult> resultCache = null;
+
+    /**
+     * Count of {@link #accept(java.io.File)} calls between reorderings of adaptive evaluation order.
+     */
+    static final int REORDER_INTERVAL = 1024;
+
+    /**
+     * Shows whether evaluation statistics of single file filters are collected.
+     */
+    volatile boolean isStatisticsEnabled = false;
+
+    /**
+     * Shows whether single file filters are reordered according to their statistics.
+     */
+    volatile boolean isAdaptive = false;
+
+    /**
+     * Statistics of single file filters in current evaluation order
+     * or {@code null} if it has to be rebuilt.
+     */
+    volatile FileFilterStatistics[] evaluationOrder = null;
+
+    /**
+     * Count of modifications of the list of single file filters current evaluation order has been built for.
+     */
+    volatile int evaluationOrderModificationsCount = -1;
+
+    /**
+     * Count of {@link #accept(java.io.File)} calls collecting statistics.
+     */
+    final AtomicLong evaluationsCount = new AtomicLong();
+
+    /**
+     * Compiled form used to filter paths and collections of files
+     * or {@code null} if it has to be compiled again.
+     */
+    volatile CompiledCompoundFileFilter compiledFileFilter = null;
     
     /**
      * Creates empty compound file filter.
@@ -64,11 +121,43 @@ public class CompoundFileFilter extends FileFilter {
             return;
         
         fileFilters.add(fileFilter);
+        evaluationOrder = null;
+        compiledFileFilter = null;
+        clearResultCache();
+    }
+
+    /**
+     * Removes single choosable file filter.
+     *
+     * @param fileFilter
+     *      Single file filter.
+     * @return
+     *      {@code true} if file filter has been removed, {@code false} if it hasn't been found
+     */
+    public final boolean remove(FileFilter fileFilter) {
+
+        int fileFilterIndex = fileFilters.indexOf(fileFilter);
+        if (fileFilterIndex < 0)
+            return false;
+
+        fileFilters.remove(fileFilterIndex);
+        if (defaultFileFilterIndex == fileFilterIndex)
+            defaultFileFilterIndex = -1;
+        else if (defaultFileFilterIndex > fileFilterIndex)
+            defaultFileFilterIndex--;
+
+        evaluationOrder = null;
+        compiledFileFilter = null;
+        clearResultCache();
+        return true;
     }
 
     /** {@inheritDoc} */
     @Override
     public boolean accept(File file) {
+
+        if (isStatisticsEnabled || isAdaptive)
+            return acceptWithStatistics(file);
         
         int fileFilterIndex = 0;
         while (fileFilterIndex < fileFilters.size()) {
@@ -81,7 +170,315 @@ public class CompoundFileFilter extends FileFilter {
         
         return false;
     }
-    
+
+    /**
+     * Checks whether specified path is accepted by any single file filter.
+     *
+     * Extension file filters are matched against path's file name, so
+     * {@link java.io.File} instance is created only if there are custom file filters
+     * which haven't accepted the path by its name.
+     *
+     * @param path
+     *      Path to check
+     * @return
+     *      {@code true} if path has been accepted, {@code false} otherwise
+     */
+    @Override
+    public boolean accept(Path path) {
+
+        return getCompiledFileFilter().accept(path);
+    }
+
+    /**
+     * Evaluates single file filters in current evaluation order collecting their statistics.
+     *
+     * @param file
+     *      File to evaluate
+     * @return
+     *      {@code true} if file has been accepted by any single file filter, {@code false} otherwise
+     */
+    private boolean acceptWithStatistics(File file) {
+
+        FileFilterStatistics[] currentOrder = getEvaluationOrder();
+        boolean isAccepted = false;
+        for (FileFilterStatistics fileFilterStatistics : currentOrder) {
+
+            long startTime = System.nanoTime();
+            isAccepted = fileFilterStatistics.getFileFilter().accept(file);
+            fileFilterStatistics.record(isAccepted, System.nanoTime() - startTime);
+            if (isAccepted)
+                break;
+        }
+
+        // Reordering single file filters periodically
+        if (isAdaptive && evaluationsCount.incrementAndGet() % REORDER_INTERVAL == 0)
+            reorder(currentOrder);
+
+        return isAccepted;
+    }
+
+    /**
+     * Retrieves statistics of single file filters in current evaluation order
+     * rebuilding it if the list of file filters has been changed.
+     *
+     * @return
+     *      Statistics of single file filters
+     */
+    private FileFilterStatistics[] getEvaluationOrder() {
+
+        FileFilterStatistics[] currentOrder = evaluationOrder;
+        if (currentOrder != null && evaluationOrderModificationsCount == fileFilters.getModificationsCount())
+            return currentOrder;
+
+        synchronized (this) {
+
+            int modificationsCount = fileFilters.getModificationsCount();
+            currentOrder = evaluationOrder;
+            if (currentOrder != null && evaluationOrderModificationsCount == modificationsCount)
+                return currentOrder;
+
+            // Keeping already collected statistics of remaining file filters
+            IdentityHashMap<FileFilter, FileFilterStatistics> collectedStatistics = new IdentityHashMap<FileFilter, FileFilterStatistics>();
+            if (currentOrder != null) {
+
+                for (FileFilterStatistics fileFilterStatistics : currentOrder)
+                    collectedStatistics.put(fileFilterStatistics.getFileFilter(), fileFilterStatistics);
+            }
+
+            FileFilterStatistics[] newOrder = new FileFilterStatistics[fileFilters.size()];
+            for (int fileFilterIndex = 0; fileFilterIndex < newOrder.length; fileFilterIndex++) {
+
+                FileFilter fileFilter = fileFilters.get(fileFilterIndex);
+                FileFilterStatistics fileFilterStatistics = collectedStatistics.get(fileFilter);
+                newOrder[fileFilterIndex] = fileFilterStatistics != null ? fileFilterStatistics : new FileFilterStatistics(fileFilter);
+            }
+
+            if (isAdaptive)
+                sortEvaluationOrder(newOrder);
+
+            evaluationOrder = newOrder;
+            evaluationOrderModificationsCount = modificationsCount;
+            return newOrder;
+        }
+    }
+
+    /**
+     * Publishes a new evaluation order sorted by estimated costs of single file filters.
+     *
+     * @param currentOrder
+     *      Evaluation order to sort
+     */
+    private synchronized void reorder(FileFilterStatistics[] currentOrder) {
+
+        // Evaluation order might have been rebuilt concurrently
+        if (evaluationOrder != currentOrder)
+            return;
+
+        FileFilterStatistics[] newOrder = Arrays.copyOf(currentOrder, currentOrder.length);
+        sortEvaluationOrder(newOrder);
+        evaluationOrder = newOrder;
+    }
+
+    /**
+     * Sorts single file filters so cheap and frequently accepting ones are evaluated first.
+     *
+     * @param order
+     *      Statistics of single file filters to sort
+     */
+    private static void sortEvaluationOrder(FileFilterStatistics[] order) {
+
+        // Costs are snapshotted since statistics change concurrently
+        final IdentityHashMap<FileFilterStatistics, Double> costs = new IdentityHashMap<FileFilterStatistics, Double>();
+        for (FileFilterStatistics fileFilterStatistics : order)
+            costs.put(fileFilterStatistics, fileFilterStatistics.getCostPerAccept());
+
+        Arrays.sort(order, new Comparator<FileFilterStatistics>() {
+
+            @Override
+            public int compare(FileFilterStatistics statistics1, FileFilterStatistics statistics2) {
+
+                return Double.compare(costs.get(statistics1), costs.get(statistics2));
+            }
+        });
+    }
+
+    /**
+     * Checks whether evaluation statistics of single file filters are collected.
+     *
+     * @return
+     *      {@code true} if statistics are collected, {@code false} otherwise
+     */
+    public boolean isStatisticsEnabled() {
+
+        return isStatisticsEnabled;
+    }
+
+    /**
+     * Enables or disables collection of single file filters' statistics
+     * (calls, accepts and cumulative evaluation time).
+     *
+     * @param isStatisticsEnabled
+     *      Shows whether statistics should be collected
+     * @see #getStatistics()
+     */
+    public void setStatisticsEnabled(boolean isStatisticsEnabled) {
+
+        this.isStatisticsEnabled = isStatisticsEnabled;
+    }
+
+    /**
+     * Checks whether single file filters are evaluated in adaptive order.
+     *
+     * @return
+     *      {@code true} if evaluation order is adaptive, {@code false} otherwise
+     */
+    public boolean isAdaptive() {
+
+        return isAdaptive;
+    }
+
+    /**
+     * Enables or disables adaptive evaluation order. Adaptive compound file filter
+     * collects statistics and periodically reorders single file filters so cheap
+     * and frequently accepting ones are tried first. The list of file filters
+     * and {@link #getDefaultFileFilterIndex()} are not affected.
+     *
+     * @param isAdaptive
+     *      Shows whether evaluation order should be adaptive
+     */
+    public synchronized void setAdaptive(boolean isAdaptive) {
+
+        this.isAdaptive = isAdaptive;
+        evaluationOrder = null;
+    }
+
+    /**
+     * Retrieves evaluation statistics of single file filters.
+     *
+     * @return
+     *      Statistics in the order of {@link #getFileFilters()}
+     * @see #setStatisticsEnabled(boolean)
+     */
+    public List<FileFilterStatistics> getStatistics() {
+
+        IdentityHashMap<FileFilter, FileFilterStatistics> collectedStatistics = new IdentityHashMap<FileFilter, FileFilterStatistics>();
+        for (FileFilterStatistics fileFilterStatistics : getEvaluationOrder())
+            collectedStatistics.put(fileFilterStatistics.getFileFilter(), fileFilterStatistics);
+
+        ArrayList<FileFilterStatistics> statistics = new ArrayList<FileFilterStatistics>(fileFilters.size());
+        for (FileFilter fileFilter : fileFilters) {
+
+            FileFilterStatistics fileFilterStatistics = collectedStatistics.get(fileFilter);
+            statistics.add(fileFilterStatistics != null ? fileFilterStatistics : new FileFilterStatistics(fileFilter));
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Resets evaluation statistics of all single file filters.
+     */
+    public void resetStatistics() {
+
+        for (FileFilterStatistics fileFilterStatistics : getEvaluationOrder())
+            fileFilterStatistics.reset();
+        evaluationsCount.set(0);
+    }
+
+    /**
+     * Filters a collection of files, large collections are evaluated
+     * in parallel on all available processors.
+     *
+     * Compiled form of this filter (see {@link #compile()}) is used
+     * unless statistics are collected. If result cache is enabled then files whose
+     * modification time hasn't changed since the previous evaluation are not evaluated again,
+     * cached results are dropped once this filter or its nested compound filters are modified.
+     *
+     * @param files
+     *      Files to filter
+     * @return
+     *      Accepted files in their original order, only files evaluated before
+     *      current thread has been interrupted are included in the case of interruption
+     * @see #setResultCacheEnabled(boolean)
+     */
+    public List<File> acceptAll(Collection<File> files) {
+
+        // Compiled form is checked even if it isn't used to drop results of modified file filters
+        CompiledCompoundFileFilter currentFileFilter = getCompiledFileFilter();
+        return FileFilterBatch.acceptAll(isStatisticsEnabled || isAdaptive ? this : currentFileFilter, files, resultCache);
+    }
+
+    /**
+     * Checks whether results of {@link #acceptAll(java.util.Collection)} are cached.
+     *
+     * @return
+     *      {@code true} if results are cached, {@code false} otherwise
+     */
+    public boolean isResultCacheEnabled() {
+
+        return resultCache != null;
+    }
+
+    /**
+     * Enables or disables caching of {@link #acceptAll(java.util.Collection)} results
+     * keyed by files' paths and modification times. Caching pays off when sub-filters
+     * do more work than reading file's modification time. The cache keeps at most
+     * {@code 65536} results evicting arbitrary ones when it is full.
+     *
+     * @param isResultCacheEnabled
+     *      Shows whether results should be cached
+     */
+    public void setResultCacheEnabled(boolean isResultCacheEnabled) {
+
+        if (isResultCacheEnabled == isResultCacheEnabled())
+            return;
+
+        resultCache = isResultCacheEnabled ? new ConcurrentHashMap<String, FileFilterBatch.CachedResult>() : null;
+    }
+
+    /**
+     * Removes all cached results of {@link #acceptAll(java.util.Collection)}.
+     */
+    public final void clearResultCache() {
+
+        if (resultCache != null)
+            resultCache.clear();
+    }
+
+    /**
+     * Compiles this compound file filter into a form looking extensions
+     * of all extension sub-filters up at once.
+     *
+     * @return
+     *      Compiled snapshot of this compound file filter
+     * @see CompiledCompoundFileFilter
+     */
+    public CompiledCompoundFileFilter compile() {
+
+        return new CompiledCompoundFileFilter(this);
+    }
+
+    /**
+     * Retrieves compiled form of this compound file filter compiling it again
+     * if this filter or its nested compound filters have been modified since the last compilation,
+     * cached results of {@link #acceptAll(java.util.Collection)} are dropped along with the compiled form.
+     *
+     * @return
+     *      Compiled form of this compound file filter
+     */
+    CompiledCompoundFileFilter getCompiledFileFilter() {
+
+        CompiledCompoundFileFilter currentFileFilter = compiledFileFilter;
+        if (currentFileFilter == null || !currentFileFilter.isUpToDate()) {
+
+            clearResultCache();
+            currentFileFilter = compile();
+            compiledFileFilter = currentFileFilter;
+        }
+
+        return currentFileFilter;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String getDescription() {
@@ -104,6 +501,9 @@ public class CompoundFileFilter extends FileFilter {
     
     /**
      * Retrieves a list of single choosable file filters.
+     *
+     * Modifications of the returned list are tracked, so compiled form
+     * of this compound file filter is rebuilt after them.
      */
     public ArrayList<FileFilter> getFileFilters() {
         
@@ -134,4 +534,35 @@ public class CompoundFileFilter extends FileFilter {
         
         this.defaultFileFilterIndex = defaultFileFilterIndex;
     }
-}
\ No newline at end of file
+
+    /**
+     * List of single file filters exposing count of its modifications.
+     */
+    static class FileFilterList extends ArrayList<FileFilter> {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Retrieves count of list's modifications.
+         *
+         * @return
+         *      Count of modifications
+         */
+        int getModificationsCount() {
+
+            return modCount;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public FileFilter set(int index, FileFilter fileFilter) {
+
+            // Replacement isn't counted as structural modification by ArrayList
+            modCount++;
+            return super.set(index, fileFilter);
+        }
+    }
+}
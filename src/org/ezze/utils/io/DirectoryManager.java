@@ -2,6 +2,14 @@ package org.ezze.utils.io;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Collects a set of static methods to manage directories.
@@ -121,6 +129,62 @@ public class DirectoryManager {
         return removeResult;
     }
 
+    /**
+     * Lists directory's items accepted by directory stream filter
+     * without creating {@link java.io.File} instances for them.
+     *
+     * @param directoryName
+     *      Directory's name
+     * @param filter
+     *      Filter of directory's items (e.g. {@link CompoundFileFilter})
+     *      or {@code null} to list all items
+     * @return
+     *      Paths of accepted directory's items or {@code null} if directory cannot be listed
+     */
+    public static List<Path> listDirectoryFiles(String directoryName, DirectoryStream.Filter<? super Path> filter) {
+
+        // Checking that directory's name is specified
+        if (directoryName == null)
+            return null;
+
+        if (directoryName.isEmpty())
+            return null;
+
+        Path directoryPath = Paths.get(directoryName);
+        if (!Files.isDirectory(directoryPath))
+            return null;
+
+        ArrayList<Path> paths = new ArrayList<Path>();
+        DirectoryStream<Path> directoryStream = null;
+        try {
+
+            directoryStream = filter != null ? Files.newDirectoryStream(directoryPath, filter) : Files.newDirectoryStream(directoryPath);
+            for (Path path : directoryStream)
+                paths.add(path);
+        }
+        catch (IOException ex) {
+
+            return null;
+        }
+        catch (DirectoryIteratorException ex) {
+
+            return null;
+        }
+        finally {
+
+            try {
+
+                if (directoryStream != null)
+                    directoryStream.close();
+            }
+            catch (IOException ex) {
+
+            }
+        }
+
+        return paths;
+    }
+
     /**
      * Truncates ending slashes in directory name.
      *
@@ -0,0 +1,473 @@
+package org.ezze.utils.io;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.xml.sax.EntityResolver;
+
+/**
+ * Bounded pool of reusable {@link javax.xml.parsers.DocumentBuilder} instances
+ * sharing the same parser configuration.
+ *
+ * Parser features are set once before the first builder is borrowed,
+ * the configuration cannot be changed afterwards (create a new pool instead).
+ * Builders are reset when they are returned to the pool, the ones exceeding
+ * pool's capacity are discarded. External DTDs and entities are not loaded
+ * by default, so parsing never blocks on network access.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see XMLHelper#setDocumentBuilderPool(org.ezze.utils.io.DocumentBuilderPool)
+ */
+public class DocumentBuilderPool {
+
+    /**
+     * Default maximal count of idle builders kept by the pool.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Idle builders ready to be borrowed.
+     */
+    private final ArrayBlockingQueue<DocumentBuilder> idleBuilders;
+
+    /**
+     * Factory creating new builders or {@code null} if no builder has been created yet.
+     */
+    private DocumentBuilderFactory factory = null;
+
+    /**
+     * Count of created builders.
+     */
+    private final AtomicLong createdBuildersCount = new AtomicLong();
+
+    /**
+     * Count of borrowed builders.
+     */
+    private final AtomicLong borrowedBuildersCount = new AtomicLong();
+
+    /**
+     * Shows whether created builders are namespace aware.
+     */
+    private boolean isNamespaceAware = false;
+
+    /**
+     * Shows whether created builders validate documents.
+     */
+    private boolean isValidating = false;
+
+    /**
+     * Shows whether created builders ignore comments.
+     */
+    private boolean isIgnoringComments = false;
+
+    /**
+     * Shows whether created builders ignore whitespaces in element content.
+     */
+    private boolean isIgnoringElementContentWhitespace = false;
+
+    /**
+     * Shows whether created builders convert CDATA sections to text nodes.
+     */
+    private boolean isCoalescing = false;
+
+    /**
+     * Shows whether created builders process documents securely.
+     */
+    private boolean isSecureProcessing = false;
+
+    /**
+     * Shows whether created builders load external DTDs and entities.
+     */
+    private boolean isLoadingExternalEntities = false;
+
+    /**
+     * Resolver of external DTDs and entities set to created builders or {@code null}.
+     */
+    private EntityResolver entityResolver = null;
+
+    /**
+     * Creates pool keeping up to {@link #DEFAULT_CAPACITY} idle builders.
+     */
+    public DocumentBuilderPool() {
+
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates pool keeping up to {@code capacity} idle builders.
+     *
+     * @param capacity
+     *      Maximal count of idle builders
+     */
+    public DocumentBuilderPool(int capacity) {
+
+        idleBuilders = new ArrayBlockingQueue<DocumentBuilder>(Math.max(1, capacity));
+    }
+
+    /**
+     * Borrows a builder from the pool creating new one if there are no idle builders.
+     * Borrowed builder must be returned by {@link #release(javax.xml.parsers.DocumentBuilder)}.
+     *
+     * @return
+     *      Document builder or {@code null} if it cannot be created
+     */
+    public DocumentBuilder borrow() {
+
+        borrowedBuildersCount.incrementAndGet();
+        DocumentBuilder documentBuilder = idleBuilders.poll();
+        if (documentBuilder != null)
+            return documentBuilder;
+
+        return createDocumentBuilder();
+    }
+
+    /**
+     * Resets borrowed builder and returns it to the pool.
+     *
+     * @param documentBuilder
+     *      Borrowed document builder
+     */
+    public void release(DocumentBuilder documentBuilder) {
+
+        if (documentBuilder == null)
+            return;
+
+        try {
+
+            documentBuilder.reset();
+        }
+        catch (UnsupportedOperationException ex) {
+
+            // Builders which cannot be reset are not reused
+            return;
+        }
+
+        // Resetting restores builder's initial entity resolver
+        if (entityResolver != null)
+            documentBuilder.setEntityResolver(entityResolver);
+        else if (!isLoadingExternalEntities)
+            documentBuilder.setEntityResolver(XMLParserFeatures.EMPTY_ENTITY_RESOLVER);
+
+        idleBuilders.offer(documentBuilder);
+    }
+
+    /**
+     * Retrieves count of builders created by the pool.
+     *
+     * @return
+     *      Count of created builders
+     */
+    public long getCreatedBuildersCount() {
+
+        return createdBuildersCount.get();
+    }
+
+    /**
+     * Retrieves count of {@link #borrow()} calls.
+     *
+     * @return
+     *      Count of borrowed builders
+     */
+    public long getBorrowedBuildersCount() {
+
+        return borrowedBuildersCount.get();
+    }
+
+    /**
+     * Checks whether created builders are namespace aware.
+     *
+     * @return
+     *      {@code true} if builders are namespace aware, {@code false} otherwise
+     */
+    public synchronized boolean isNamespaceAware() {
+
+        return isNamespaceAware;
+    }
+
+    /**
+     * Sets whether created builders are namespace aware ({@code false} by default).
+     *
+     * @param isNamespaceAware
+     *      Namespace awareness flag
+     * @throws IllegalStateException
+     *      If the pool has already created a builder
+     */
+    public synchronized void setNamespaceAware(boolean isNamespaceAware) {
+
+        checkConfigurable();
+        this.isNamespaceAware = isNamespaceAware;
+    }
+
+    /**
+     * Checks whether created builders validate documents.
+     *
+     * @return
+     *      {@code true} if builders validate documents, {@code false} otherwise
+     */
+    public synchronized boolean isValidating() {
+
+        return isValidating;
+    }
+
+    /**
+     * Sets whether created builders validate documents ({@code false} by default).
+     *
+     * @param isValidating
+     *      Validation flag
+     * @throws IllegalStateException
+     *      If the pool has already created a builder
+     */
+    public synchronized void setValidating(boolean isValidating) {
+
+        checkConfigurable();
+        this.isValidating = isValidating;
+    }
+
+    /**
+     * Checks whether created builders ignore comments.
+     *
+     * @return
+     *      {@code true} if builders ignore comments, {@code false} otherwise
+     */
+    public synchronized boolean isIgnoringComments() {
+
+        return isIgnoringComments;
+    }
+
+    /**
+     * Sets whether created builders ignore comments ({@code false} by default).
+     *
+     * @param isIgnoringComments
+     *      Comments ignoring flag
+     * @throws IllegalStateException
+     *      If the pool has already created a builder
+     */
+    public synchronized void setIgnoringComments(boolean isIgnoringComments) {
+
+        checkConfigurable();
+        this.isIgnoringComments = isIgnoringComments;
+    }
+
+    /**
+     * Checks whether created builders ignore whitespaces in element content.
+     *
+     * @return
+     *      {@code true} if builders ignore whitespaces, {@code false} otherwise
+     */
+    public synchronized boolean isIgnoringElementContentWhitespace() {
+
+        return isIgnoringElementContentWhitespace;
+    }
+
+    /**
+     * Sets whether created builders ignore whitespaces in element content
+     * ({@code false} by default, requires validation to take effect).
+     *
+     * @param isIgnoringElementContentWhitespace
+     *      Whitespaces ignoring flag
+     * @throws IllegalStateException
+     *      If the pool has already created a builder
+     */
+    public synchronized void setIgnoringElementContentWhitespace(boolean isIgnoringElementContentWhitespace) {
+
+        checkConfigurable();
+        this.isIgnoringElementContentWhitespace = isIgnoringElementContentWhitespace;
+    }
+
+    /**
+     * Checks whether created builders convert CDATA sections to text nodes.
+     *
+     * @return
+     *      {@code true} if builders convert CDATA sections, {@code false} otherwise
+     */
+    public synchronized boolean isCoalescing() {
+
+        return isCoalescing;
+    }
+
+    /**
+     * Sets whether created builders convert CDATA sections to text nodes ({@code false} by default).
+     *
+     * @param isCoalescing
+     *      Coalescing flag
+     * @throws IllegalStateException
+     *      If the pool has already created a builder
+     */
+    public synchronized void setCoalescing(boolean isCoalescing) {
+
+        checkConfigurable();
+        this.isCoalescing = isCoalescing;
+    }
+
+    /**
+     * Checks whether created builders process documents securely.
+     *
+     * @return
+     *      {@code true} if secure processing is enabled, {@code false} otherwise
+     */
+    public synchronized boolean isSecureProcessing() {
+
+        return isSecureProcessing;
+    }
+
+    /**
+     * Sets whether created builders process documents securely limiting
+     * resources a document may consume ({@code false} by default).
+     *
+     * @param isSecureProcessing
+     *      Secure processing flag
+     * @throws IllegalStateException
+     *      If the pool has already created a builder
+     */
+    public synchronized void setSecureProcessing(boolean isSecureProcessing) {
+
+        checkConfigurable();
+        this.isSecureProcessing = isSecureProcessing;
+    }
+
+    /**
+     * Checks whether created builders load external DTDs and entities.
+     *
+     * @return
+     *      {@code true} if external DTDs and entities are loaded, {@code false} otherwise
+     */
+    public synchronized boolean isLoadingExternalEntities() {
+
+        return isLoadingExternalEntities;
+    }
+
+    /**
+     * Sets whether created builders load external DTDs and entities ({@code false} by default).
+     * Validating builders require external DTDs to be loaded.
+     *
+     * @param isLoadingExternalEntities
+     *      External entities loading flag
+     * @throws IllegalStateException
+     *      If the pool has already created a builder
+     */
+    public synchronized void setLoadingExternalEntities(boolean isLoadingExternalEntities) {
+
+        checkConfigurable();
+        this.isLoadingExternalEntities = isLoadingExternalEntities;
+    }
+
+    /**
+     * Retrieves resolver of external DTDs and entities.
+     *
+     * @return
+     *      Entity resolver or {@code null} if it's not set
+     */
+    public synchronized EntityResolver getEntityResolver() {
+
+        return entityResolver;
+    }
+
+    /**
+     * Sets resolver of external DTDs and entities, e.g. {@link XMLEntityCatalog}.
+     * External DTDs and entities are loaded through the resolver only,
+     * regardless of {@link #setLoadingExternalEntities(boolean)}.
+     *
+     * @param entityResolver
+     *      Entity resolver or {@code null}
+     * @throws IllegalStateException
+     *      If the pool has already created a builder
+     */
+    public synchronized void setEntityResolver(EntityResolver entityResolver) {
+
+        checkConfigurable();
+        this.entityResolver = entityResolver;
+    }
+
+    /**
+     * Makes sure that parser configuration may still be changed.
+     *
+     * @throws IllegalStateException
+     *      If the pool has already created a builder
+     */
+    private void checkConfigurable() {
+
+        if (factory != null)
+            throw new IllegalStateException("Document builder pool's configuration cannot be changed after the first builder is created");
+    }
+
+    /**
+     * Creates new builder configuring the factory on the first call.
+     *
+     * @return
+     *      Document builder or {@code null} if it cannot be created
+     */
+    private synchronized DocumentBuilder createDocumentBuilder() {
+
+        if (factory == null) {
+
+            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            dbf.setNamespaceAware(isNamespaceAware);
+            dbf.setValidating(isValidating);
+            dbf.setIgnoringComments(isIgnoringComments);
+            dbf.setIgnoringElementContentWhitespace(isIgnoringElementContentWhitespace);
+            dbf.setCoalescing(isCoalescing);
+            if (isSecureProcessing) {
+
+                try {
+
+                    dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+                }
+                catch (ParserConfigurationException ex) {
+
+                    return null;
+                }
+            }
+
+            if (!isLoadingExternalEntities && entityResolver == null) {
+
+                // Parsers not supporting these features still resolve entities to empty content
+                setFeature(dbf, XMLParserFeatures.LOAD_EXTERNAL_DTD, false);
+                setFeature(dbf, XMLParserFeatures.EXTERNAL_GENERAL_ENTITIES, false);
+                setFeature(dbf, XMLParserFeatures.EXTERNAL_PARAMETER_ENTITIES, false);
+            }
+
+            factory = dbf;
+        }
+
+        try {
+
+            DocumentBuilder documentBuilder = factory.newDocumentBuilder();
+            if (entityResolver != null)
+                documentBuilder.setEntityResolver(entityResolver);
+            else if (!isLoadingExternalEntities)
+                documentBuilder.setEntityResolver(XMLParserFeatures.EMPTY_ENTITY_RESOLVER);
+            createdBuildersCount.incrementAndGet();
+            return documentBuilder;
+        }
+        catch (ParserConfigurationException ex) {
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Sets optional parser feature ignoring parsers which don't support it.
+     *
+     * @param dbf
+     *      Document builder factory
+     * @param feature
+     *      Feature's name
+     * @param value
+     *      Feature's value
+     */
+    private static void setFeature(DocumentBuilderFactory dbf, String feature, boolean value) {
+
+        try {
+
+            dbf.setFeature(feature, value);
+        }
+        catch (ParserConfigurationException ex) {
+
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package org.ezze.utils.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.filechooser.FileFilter;
+
+/**
+ * Evaluates file filters over large collections of files,
+ * collections exceeding {@link #PARALLEL_THRESHOLD} are split
+ * into chunks evaluated on all available processors.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+class FileFilterBatch {
+
+    /**
+     * Minimal count of files evaluated in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 2048;
+
+    /**
+     * Count of chunks per available processor.
+     */
+    private static final int CHUNKS_PER_PROCESSOR = 4;
+
+    /**
+     * Maximal count of cached results, a quarter of them is evicted when the cache is full.
+     */
+    static final int RESULT_CACHE_CAPACITY = 65536;
+
+    /**
+     * Shared executor of evaluation chunks created on demand.
+     */
+    private static ExecutorService executor = null;
+
+    /**
+     * Evaluates specified file filter over a collection of files.
+     *
+     * @param fileFilter
+     *      File filter to evaluate
+     * @param files
+     *      Files to filter
+     * @param resultCache
+     *      Thread-safe cache of results keyed by absolute paths or {@code null}
+     *      if results should not be cached
+     * @return
+     *      Accepted files in their original order, if current thread has been interrupted
+     *      while waiting for parallel evaluation only files of chunks completed by then
+     *      are included and the interrupted status is kept
+     */
+    static List<File> acceptAll(final FileFilter fileFilter, Collection<File> files, final Map<String, CachedResult> resultCache) {
+
+        if (fileFilter == null || files == null || files.isEmpty())
+            return new ArrayList<File>();
+
+        final File[] filesArray = files.toArray(new File[files.size()]);
+        final boolean[] acceptResults = new boolean[filesArray.length];
+
+        int processorsCount = Runtime.getRuntime().availableProcessors();
+        if (filesArray.length < PARALLEL_THRESHOLD || processorsCount < 2 || Thread.currentThread() instanceof BatchThread) {
+
+            // Evaluating small collections on current thread
+            evaluate(fileFilter, filesArray, acceptResults, 0, filesArray.length, resultCache);
+        }
+        else {
+
+            int chunksCount = processorsCount * CHUNKS_PER_PROCESSOR;
+            int chunkSize = (filesArray.length + chunksCount - 1) / chunksCount;
+
+            ExecutorService chunksExecutor = getExecutor();
+            ArrayList<Future<?>> chunkFutures = new ArrayList<Future<?>>(chunksCount);
+            for (int chunkStart = chunkSize; chunkStart < filesArray.length; chunkStart += chunkSize) {
+
+                final int fromIndex = chunkStart;
+                final int toIndex = Math.min(chunkStart + chunkSize, filesArray.length);
+                chunkFutures.add(chunksExecutor.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        evaluate(fileFilter, filesArray, acceptResults, fromIndex, toIndex, resultCache);
+                    }
+                }));
+            }
+
+            // The first chunk is evaluated on current thread
+            evaluate(fileFilter, filesArray, acceptResults, 0, Math.min(chunkSize, filesArray.length), resultCache);
+
+            for (int chunkIndex = 0; chunkIndex < chunkFutures.size(); chunkIndex++) {
+
+                try {
+
+                    chunkFutures.get(chunkIndex).get();
+                }
+                catch (InterruptedException ex) {
+
+                    Thread.currentThread().interrupt();
+                    for (Future<?> cancelledFuture : chunkFutures)
+                        cancelledFuture.cancel(true);
+
+                    // Dropping results of chunks which haven't been completed
+                    for (; chunkIndex < chunkFutures.size(); chunkIndex++) {
+
+                        if (!isCompleted(chunkFutures.get(chunkIndex))) {
+
+                            int fromIndex = (chunkIndex + 1) * chunkSize;
+                            Arrays.fill(acceptResults, fromIndex, Math.min(fromIndex + chunkSize, filesArray.length), false);
+                        }
+                    }
+
+                    break;
+                }
+                catch (ExecutionException ex) {
+
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException)cause;
+                    if (cause instanceof Error)
+                        throw (Error)cause;
+                    throw new RuntimeException(cause);
+                }
+            }
+        }
+
+        // Collecting accepted files
+        ArrayList<File> acceptedFiles = new ArrayList<File>();
+        for (int fileIndex = 0; fileIndex < filesArray.length; fileIndex++) {
+
+            if (acceptResults[fileIndex])
+                acceptedFiles.add(filesArray[fileIndex]);
+        }
+
+        return acceptedFiles;
+    }
+
+    /**
+     * Checks whether evaluation chunk has been completed before its cancellation.
+     *
+     * @param chunkFuture
+     *      Future of evaluation chunk
+     * @return
+     *      {@code true} if chunk has been completed, {@code false} otherwise
+     */
+    private static boolean isCompleted(Future<?> chunkFuture) {
+
+        if (!chunkFuture.isDone() || chunkFuture.isCancelled())
+            return false;
+
+        // Completed future returns without waiting, so results of the chunk become visible
+        try {
+
+            chunkFuture.get();
+            return true;
+        }
+        catch (InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException ex) {
+
+        }
+
+        return false;
+    }
+
+    /**
+     * Evaluates file filter over a range of files.
+     *
+     * @param fileFilter
+     *      File filter to evaluate
+     * @param files
+     *      Files to filter
+     * @param acceptResults
+     *      Array evaluation results are written to
+     * @param fromIndex
+     *      Index of the first file to evaluate (inclusive)
+     * @param toIndex
+     *      Index of the last file to evaluate (exclusive)
+     * @param resultCache
+     *      Cache of results or {@code null}
+     */
+    private static void evaluate(FileFilter fileFilter, File[] files, boolean[] acceptResults, int fromIndex, int toIndex,
+            Map<String, CachedResult> resultCache) {
+
+        for (int fileIndex = fromIndex; fileIndex < toIndex; fileIndex++) {
+
+            File file = files[fileIndex];
+            if (file == null)
+                continue;
+
+            if (resultCache == null) {
+
+                acceptResults[fileIndex] = fileFilter.accept(file);
+                continue;
+            }
+
+            // Attributes are read once per file and reused by the filter, nonexistent files are not cached
+            String filePath = file.getAbsolutePath();
+            File attributedFile = AttributedFile.of(file);
+            long lastModified = attributedFile.lastModified();
+            CachedResult cachedResult = resultCache.get(filePath);
+            if (cachedResult != null && lastModified != 0 && cachedResult.lastModified == lastModified) {
+
+                acceptResults[fileIndex] = cachedResult.isAccepted;
+                continue;
+            }
+
+            boolean isAccepted = fileFilter.accept(attributedFile);
+            acceptResults[fileIndex] = isAccepted;
+            if (lastModified != 0)
+                cacheResult(resultCache, filePath, new CachedResult(lastModified, isAccepted));
+            else if (cachedResult != null)
+                resultCache.remove(filePath);
+        }
+    }
+
+    /**
+     * Puts result to the cache evicting arbitrary results if the cache is full.
+     *
+     * @param resultCache
+     *      Cache of results
+     * @param filePath
+     *      Absolute path of evaluated file
+     * @param cachedResult
+     *      Result to cache
+     */
+    private static void cacheResult(Map<String, CachedResult> resultCache, String filePath, CachedResult cachedResult) {
+
+        if (resultCache.size() >= RESULT_CACHE_CAPACITY && !resultCache.containsKey(filePath)) {
+
+            Iterator<String> filePathsIterator = resultCache.keySet().iterator();
+            for (int evictedCount = 0; evictedCount < RESULT_CACHE_CAPACITY / 4 && filePathsIterator.hasNext(); evictedCount++) {
+
+                filePathsIterator.next();
+                filePathsIterator.remove();
+            }
+        }
+
+        resultCache.put(filePath, cachedResult);
+    }
+
+    /**
+     * Retrieves shared executor creating it if necessary.
+     *
+     * @return
+     *      Executor of evaluation chunks
+     */
+    private static synchronized ExecutorService getExecutor() {
+
+        if (executor == null) {
+
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+
+                    return new BatchThread(runnable);
+                }
+            });
+        }
+
+        return executor;
+    }
+
+    /**
+     * Cached result of file filter's evaluation.
+     */
+    static final class CachedResult {
+
+        /**
+         * Modification time of evaluated file.
+         */
+        final long lastModified;
+
+        /**
+         * Shows whether evaluated file has been accepted.
+         */
+        final boolean isAccepted;
+
+        /**
+         * Creates cached result.
+         *
+         * @param lastModified
+         *      Modification time of evaluated file
+         * @param isAccepted
+         *      Shows whether evaluated file has been accepted
+         */
+        CachedResult(long lastModified, boolean isAccepted) {
+
+            this.lastModified = lastModified;
+            this.isAccepted = isAccepted;
+        }
+    }
+
+    /**
+     * File returning attributes read by a single call instead of querying
+     * the file system on each call.
+     */
+    static final class AttributedFile extends File {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * File's attributes.
+         */
+        private final transient BasicFileAttributes attributes;
+
+        /**
+         * Creates file with specified attributes.
+         *
+         * @param file
+         *      File
+         * @param attributes
+         *      File's attributes
+         */
+        private AttributedFile(File file, BasicFileAttributes attributes) {
+
+            super(file.getPath());
+            this.attributes = attributes;
+        }
+
+        /**
+         * Reads attributes of specified file.
+         *
+         * @param file
+         *      File
+         * @return
+         *      File with read attributes or specified file if attributes cannot be read
+         */
+        static File of(File file) {
+
+            try {
+
+                return new AttributedFile(file, Files.readAttributes(file.toPath(), BasicFileAttributes.class));
+            }
+            catch (IOException ex) {
+
+            }
+            catch (InvalidPathException ex) {
+
+            }
+
+            return file;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean exists() {
+
+            return true;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean isDirectory() {
+
+            return attributes.isDirectory();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean isFile() {
+
+            return attributes.isRegularFile();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public long lastModified() {
+
+            return attributes.lastModifiedTime().toMillis();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public long length() {
+
+            return attributes.size();
+        }
+    }
+
+    /**
+     * Daemon thread of shared executor, collections filtered on such threads
+     * are evaluated sequentially to avoid waiting for the executor from inside of it.
+     */
+    private static class BatchThread extends Thread {
+
+        /**
+         * Creates daemon thread running specified task.
+         *
+         * @param runnable
+         *      Task to run
+         */
+        BatchThread(Runnable runnable) {
+
+            super(runnable, "file-filter-batch");
+            setDaemon(true);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.ezze.utils.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.filechooser.FileFilter;
+
+/**
+ * Keeps evaluation statistics of a single file filter
+ * collected by {@link CompoundFileFilter}.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see CompoundFileFilter#getStatistics()
+ */
+public class FileFilterStatistics {
+
+    /**
+     * File filter the statistics belong to.
+     */
+    private final FileFilter fileFilter;
+
+    /**
+     * Count of evaluations.
+     */
+    private final AtomicLong callsCount = new AtomicLong();
+
+    /**
+     * Count of accepted files.
+     */
+    private final AtomicLong acceptsCount = new AtomicLong();
+
+    /**
+     * Cumulative evaluation time in nanoseconds.
+     */
+    private final AtomicLong totalTime = new AtomicLong();
+
+    /**
+     * Creates empty statistics of specified file filter.
+     *
+     * @param fileFilter
+     *      File filter
+     */
+    FileFilterStatistics(FileFilter fileFilter) {
+
+        this.fileFilter = fileFilter;
+    }
+
+    /**
+     * Retrieves file filter the statistics belong to.
+     *
+     * @return
+     *      File filter
+     */
+    public FileFilter getFileFilter() {
+
+        return fileFilter;
+    }
+
+    /**
+     * Retrieves count of file filter's evaluations.
+     *
+     * @return
+     *      Count of calls
+     */
+    public long getCallsCount() {
+
+        return callsCount.get();
+    }
+
+    /**
+     * Retrieves count of files accepted by file filter.
+     *
+     * @return
+     *      Count of accepted files
+     */
+    public long getAcceptsCount() {
+
+        return acceptsCount.get();
+    }
+
+    /**
+     * Retrieves cumulative evaluation time of file filter.
+     *
+     * @return
+     *      Evaluation time in nanoseconds
+     */
+    public long getTotalTime() {
+
+        return totalTime.get();
+    }
+
+    /**
+     * Retrieves average evaluation time of file filter.
+     *
+     * @return
+     *      Average evaluation time in nanoseconds or {@code 0} if file filter hasn't been called yet
+     */
+    public double getAverageTime() {
+
+        long calls = getCallsCount();
+        return calls > 0 ? (double)getTotalTime() / calls : 0.0;
+    }
+
+    /**
+     * Retrieves a share of files accepted by file filter.
+     *
+     * @return
+     *      Acceptance rate from {@code 0.0} to {@code 1.0} or {@code 0} if file filter hasn't been called yet
+     */
+    public double getAcceptanceRate() {
+
+        long calls = getCallsCount();
+        return calls > 0 ? (double)getAcceptsCount() / calls : 0.0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+
+        return String.format("%s: %d calls, %d accepts, %d ns", fileFilter.getDescription(),
+                getCallsCount(), getAcceptsCount(), getTotalTime());
+    }
+
+    /**
+     * Records single evaluation of file filter.
+     *
+     * @param isAccepted
+     *      Shows whether file has been accepted
+     * @param evaluationTime
+     *      Evaluation time in nanoseconds
+     */
+    void record(boolean isAccepted, long evaluationTime) {
+
+        callsCount.incrementAndGet();
+        if (isAccepted)
+            acceptsCount.incrementAndGet();
+        totalTime.addAndGet(evaluationTime);
+    }
+
+    /**
+     * Resets collected statistics.
+     */
+    void reset() {
+
+        callsCount.set(0);
+        acceptsCount.set(0);
+        totalTime.set(0);
+    }
+
+    /**
+     * Estimates time spent by file filter per accepted file,
+     * an order of such costs is the cheapest order of evaluation.
+     *
+     * @return
+     *      Estimated cost in nanoseconds
+     */
+    double getCostPerAccept() {
+
+        long calls = getCallsCount();
+        if (calls == 0)
+            return 0.0;
+
+        // Filters which haven't accepted anything yet are treated as if they were about to
+        double acceptanceRate = Math.max(getAcceptanceRate(), 1.0 / (calls + 1));
+        return getAverageTime() / acceptanceRate;
+    }
+}
@@ -15,6 +15,9 @@ import java.util.zip.GZIPInputStream;
 /**
  * Collects a set of static methods to manage files.
  *
+ * Copying and extraction request their permits from {@link IOScheduler#getDefault()}
+ * using the current thread's {@link IOPriority}.
+ *
  * @author Dmitriy Pushkov
  * @version 0.0.1
  */
@@ -60,6 +63,11 @@ public class FileManager {
             destinationFile = new File(String.format("%s\\%s", destinationDirectoryName, sourceFile.getName()));
         }
 
+        // Waiting for a permit to open the file
+        IOScheduler scheduler = IOScheduler.getDefault();
+        if (!scheduler.acquireOperation())
+            return false;
+
         try {
 
             FileInputStream sourceStream = null;
@@ -92,22 +100,45 @@ public class FileManager {
 
             byte buffer[] = new byte[1024];
             int bytesRead = 0;
+            boolean isCopied = true;
             try {
 
                 // Reading source stream and writing read data to destination one
-                while ((bytesRead = sourceStream.read(buffer)) > 0)
+                while ((bytesRead = sourceStream.read(buffer)) > 0) {
+
+                    if (!scheduler.acquireBytes(bytesRead)) {
+
+                        // Copying has been interrupted
+                        isCopied = false;
+                        break;
+                    }
+
                     destinationStream.write(buffer, 0, bytesRead);
+                }
             }
             catch (IOException ex) {
 
-                return false;
+                isCopied = false;
             }
+            finally {
 
-            // Closing source and destination streams
-            destinationStream.close();
-            sourceStream.close();
+                // Closing source and destination streams
+                try {
 
-            return true;
+                    destinationStream.close();
+                }
+                catch (IOException ex) {
+
+                    isCopied = false;
+                }
+                sourceStream.close();
+            }
+
+            // Removing partially copied destination file
+            if (!isCopied)
+                destinationFile.delete();
+
+            return isCopied;
         }
         catch (IOException ex) {
             
@@ -371,6 +402,11 @@ public class FileManager {
                     sourceFile.getName().substring(0, sourceFileExtensionDotPosition)));
         }
 
+        // Waiting for a permit to open the archive
+        IOScheduler scheduler = IOScheduler.getDefault();
+        if (!scheduler.acquireOperation())
+            return false;
+
         // Opening source stream
         FileInputStream sourceStream = null;
         try {
@@ -412,31 +448,52 @@ public class FileManager {
         }
 
         // Extracting
+        boolean isExtracted = true;
         try {
 
             byte[] buffer = new byte[1024];
             int bytesRead = 0;
-            while ((bytesRead = gzipSourceStream.read(buffer)) > 0)
+            while ((bytesRead = gzipSourceStream.read(buffer)) > 0) {
+
+                if (!scheduler.acquireBytes(bytesRead)) {
+
+                    // Extraction has been interrupted
+                    isExtracted = false;
+                    break;
+                }
+
                 destinationStream.write(buffer, 0, bytesRead);
+            }
         }
         catch (IOException ex) {
 
             // Something went wrong during the extraction
-            return false;
+            isExtracted = false;
         }
 
         // Closing streams
         try {
 
             destinationStream.close();
+        }
+        catch (IOException ex) {
+
+            isExtracted = false;
+        }
+
+        try {
+
             gzipSourceStream.close();
             sourceStream.close();
         }
         catch (IOException ex) {
 
-            return false;
         }
 
-        return true;
+        // Removing partially extracted destination file
+        if (!isExtracted)
+            destinationFile.delete();
+
+        return isExtracted;
     }
 }
\ No newline at end of file
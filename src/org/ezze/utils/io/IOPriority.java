@@ -0,0 +1,20 @@
+package org.ezze.utils.io;
+
+/**
+ * Priority classes of I/O operations scheduled by {@link IOScheduler}.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public enum IOPriority {
+
+    /**
+     * Latency-sensitive operations, they are granted permits before background ones.
+     */
+    FOREGROUND,
+
+    /**
+     * Bulk operations (copying, extraction and so on) yielding to foreground ones.
+     */
+    BACKGROUND
+}
@@ -0,0 +1,572 @@
+package org.ezze.utils.io;
+
+/**
+ * Central scheduler of file I/O operations limiting transferred bytes
+ * and performed operations per second with token buckets.
+ *
+ * Each {@link IOPriority} class has its own pair of limits. Foreground
+ * consumption is also charged to background buckets, so background limits
+ * act as an overall budget of a disk that is shared with foreground operations,
+ * and background requests don't get permits while foreground ones are waiting.
+ *
+ * Limits may be changed at any time, waiting threads pick new values up immediately.
+ * A priority of operations performed by the current thread is set by
+ * {@link #setThreadPriority(org.ezze.utils.io.IOPriority)}, {@link FileManager}'s
+ * copy and extract methods request their permits from {@link #getDefault()} scheduler.
+ * Operations managed by the scheduler are bulk ones, so threads start with
+ * {@link IOPriority#BACKGROUND} priority and are throttled by background limits
+ * unless latency-sensitive threads switch to {@link IOPriority#FOREGROUND}.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public class IOScheduler {
+
+    /**
+     * Scheduler used by {@link FileManager}.
+     */
+    private static final IOScheduler defaultScheduler = new IOScheduler();
+
+    /**
+     * Length of a window the current transfer rate is measured over in nanoseconds.
+     */
+    private static final long RATE_WINDOW = 1000000000L;
+
+    /**
+     * Priority of I/O operations performed by the current thread.
+     */
+    private final ThreadLocal<IOPriority> threadPriority = new ThreadLocal<IOPriority>() {
+
+        @Override
+        protected IOPriority initialValue() {
+
+            return IOPriority.BACKGROUND;
+        }
+    };
+
+    /**
+     * Limits and usage of each priority class indexed by {@link IOPriority#ordinal()}.
+     */
+    private final PriorityClass[] priorityClasses;
+
+    /**
+     * Count of foreground threads currently waiting for permits.
+     */
+    private int foregroundWaitersCount = 0;
+
+    /**
+     * Creates scheduler without any limits.
+     */
+    public IOScheduler() {
+
+        IOPriority[] priorities = IOPriority.values();
+        priorityClasses = new PriorityClass[priorities.length];
+        for (int priorityIndex = 0; priorityIndex < priorities.length; priorityIndex++)
+            priorityClasses[priorityIndex] = new PriorityClass();
+    }
+
+    /**
+     * Retrieves scheduler used by {@link FileManager}.
+     *
+     * @return
+     *      Default scheduler
+     */
+    public static IOScheduler getDefault() {
+
+        return defaultScheduler;
+    }
+
+    /**
+     * Retrieves priority of I/O operations performed by the current thread.
+     *
+     * @return
+     *      Current thread's priority ({@link IOPriority#BACKGROUND} by default)
+     */
+    public IOPriority getThreadPriority() {
+
+        return threadPriority.get();
+    }
+
+    /**
+     * Sets priority of I/O operations performed by the current thread.
+     *
+     * @param priority
+     *      Current thread's priority
+     */
+    public void setThreadPriority(IOPriority priority) {
+
+        if (priority == null)
+            return;
+
+        threadPriority.set(priority);
+    }
+
+    /**
+     * Retrieves bytes per second limit of specified priority class.
+     *
+     * @param priority
+     *      Priority class
+     * @return
+     *      Bytes per second limit or {@code 0} if bytes are not limited
+     */
+    public synchronized long getBytesPerSecondLimit(IOPriority priority) {
+
+        return getPriorityClass(priority).bytesBucket.rate;
+    }
+
+    /**
+     * Sets bytes per second limit of specified priority class.
+     *
+     * @param priority
+     *      Priority class
+     * @param bytesPerSecond
+     *      Bytes per second limit, zero or negative value removes the limit
+     */
+    public synchronized void setBytesPerSecondLimit(IOPriority priority, long bytesPerSecond) {
+
+        getPriorityClass(priority).bytesBucket.setRate(bytesPerSecond, System.nanoTime());
+        notifyAll();
+    }
+
+    /**
+     * Retrieves operations per second limit of specified priority class.
+     *
+     * @param priority
+     *      Priority class
+     * @return
+     *      Operations per second limit or {@code 0} if operations are not limited
+     */
+    public synchronized long getOperationsPerSecondLimit(IOPriority priority) {
+
+        return getPriorityClass(priority).operationsBucket.rate;
+    }
+
+    /**
+     * Sets operations per second limit of specified priority class.
+     *
+     * @param priority
+     *      Priority class
+     * @param operationsPerSecond
+     *      Operations per second limit, zero or negative value removes the limit
+     */
+    public synchronized void setOperationsPerSecondLimit(IOPriority priority, long operationsPerSecond) {
+
+        getPriorityClass(priority).operationsBucket.setRate(operationsPerSecond, System.nanoTime());
+        notifyAll();
+    }
+
+    /**
+     * Waits for a permit to transfer specified amount of bytes
+     * with the current thread's priority.
+     *
+     * @param bytesCount
+     *      Amount of bytes to transfer
+     * @return
+     *      {@code true} if permit has been granted, {@code false} if the thread was interrupted
+     * @see #acquireBytes(long, org.ezze.utils.io.IOPriority)
+     */
+    public boolean acquireBytes(long bytesCount) {
+
+        return acquireBytes(bytesCount, getThreadPriority());
+    }
+
+    /**
+     * Waits for a permit to transfer specified amount of bytes.
+     *
+     * @param bytesCount
+     *      Amount of bytes to transfer
+     * @param priority
+     *      Priority class of the transfer
+     * @return
+     *      {@code true} if permit has been granted, {@code false} if the thread was interrupted
+     * @see #acquireBytes(long)
+     */
+    public boolean acquireBytes(long bytesCount, IOPriority priority) {
+
+        if (bytesCount <= 0)
+            return true;
+
+        return acquire(priority, bytesCount, true);
+    }
+
+    /**
+     * Waits for a permit to perform single I/O operation (opening a file and so on)
+     * with the current thread's priority.
+     *
+     * @return
+     *      {@code true} if permit has been granted, {@code false} if the thread was interrupted
+     * @see #acquireOperation(org.ezze.utils.io.IOPriority)
+     */
+    public boolean acquireOperation() {
+
+        return acquireOperation(getThreadPriority());
+    }
+
+    /**
+     * Waits for a permit to perform single I/O operation (opening a file and so on).
+     *
+     * @param priority
+     *      Priority class of the operation
+     * @return
+     *      {@code true} if permit has been granted, {@code false} if the thread was interrupted
+     * @see #acquireOperation()
+     */
+    public boolean acquireOperation(IOPriority priority) {
+
+        return acquire(priority, 1, false);
+    }
+
+    /**
+     * Retrieves total amount of bytes transferred by specified priority class.
+     *
+     * @param priority
+     *      Priority class
+     * @return
+     *      Amount of transferred bytes
+     */
+    public synchronized long getTransferredBytes(IOPriority priority) {
+
+        return getPriorityClass(priority).transferredBytes;
+    }
+
+    /**
+     * Retrieves total count of operations performed by specified priority class.
+     *
+     * @param priority
+     *      Priority class
+     * @return
+     *      Count of performed operations
+     */
+    public synchronized long getPerformedOperations(IOPriority priority) {
+
+        return getPriorityClass(priority).performedOperations;
+    }
+
+    /**
+     * Retrieves total time threads of specified priority class have spent waiting for permits.
+     *
+     * @param priority
+     *      Priority class
+     * @return
+     *      Waiting time in milliseconds
+     */
+    public synchronized long getWaitingTime(IOPriority priority) {
+
+        return getPriorityClass(priority).waitingTime / 1000000L;
+    }
+
+    /**
+     * Retrieves current transfer rate of specified priority class
+     * measured over the last second.
+     *
+     * @param priority
+     *      Priority class
+     * @return
+     *      Transferred bytes per second
+     */
+    public synchronized long getCurrentBytesRate(IOPriority priority) {
+
+        PriorityClass priorityClass = getPriorityClass(priority);
+        priorityClass.updateRateWindow(System.nanoTime());
+        return priorityClass.lastWindowBytes;
+    }
+
+    /**
+     * Resets usage statistics of all priority classes, limits are kept.
+     */
+    public synchronized void resetStatistics() {
+
+        long currentTime = System.nanoTime();
+        for (PriorityClass priorityClass : priorityClasses) {
+
+            priorityClass.transferredBytes = 0;
+            priorityClass.performedOperations = 0;
+            priorityClass.waitingTime = 0;
+            priorityClass.windowStartTime = currentTime;
+            priorityClass.windowBytes = 0;
+            priorityClass.lastWindowBytes = 0;
+        }
+    }
+
+    /**
+     * Waits until bytes or operations bucket of specified priority class grants a permit.
+     *
+     * @param priority
+     *      Priority class
+     * @param amount
+     *      Amount of bytes or operations
+     * @param isBytesAmount
+     *      Shows whether {@code amount} is measured in bytes or in operations
+     * @return
+     *      {@code true} if permit has been granted, {@code false} if the thread was interrupted
+     */
+    private synchronized boolean acquire(IOPriority priority, long amount, boolean isBytesAmount) {
+
+        if (priority == null)
+            priority = IOPriority.FOREGROUND;
+
+        boolean isForeground = priority == IOPriority.FOREGROUND;
+        PriorityClass priorityClass = getPriorityClass(priority);
+        TokenBucket bucket = isBytesAmount ? priorityClass.bytesBucket : priorityClass.operationsBucket;
+
+        long waitingStartTime = System.nanoTime();
+        long currentTime = waitingStartTime;
+        boolean isWaiting = false;
+
+        try {
+
+            while (true) {
+
+                long delay;
+                if (!isForeground && foregroundWaitersCount > 0) {
+
+                    // Background operations yield to waiting foreground ones
+                    delay = TokenBucket.MAXIMUM_DELAY;
+                }
+                else {
+
+                    delay = bucket.consume(amount, currentTime);
+                    if (delay == 0)
+                        break;
+                }
+
+                if (isForeground && !isWaiting)
+                    foregroundWaitersCount++;
+                isWaiting = true;
+
+                long delayMilliseconds = Math.max(1, (delay + 999999L) / 1000000L);
+                wait(delayMilliseconds);
+                currentTime = System.nanoTime();
+            }
+        }
+        catch (InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally {
+
+            if (isForeground && isWaiting) {
+
+                foregroundWaitersCount--;
+                if (foregroundWaitersCount == 0)
+                    notifyAll();
+            }
+
+            priorityClass.waitingTime += currentTime - waitingStartTime;
+        }
+
+        // Foreground usage is charged to background budget too
+        if (isForeground) {
+
+            for (int priorityIndex = 0; priorityIndex < priorityClasses.length; priorityIndex++) {
+
+                if (priorityIndex == priority.ordinal())
+                    continue;
+
+                PriorityClass backgroundClass = priorityClasses[priorityIndex];
+                (isBytesAmount ? backgroundClass.bytesBucket : backgroundClass.operationsBucket).charge(amount, currentTime);
+            }
+        }
+
+        if (isBytesAmount) {
+
+            priorityClass.updateRateWindow(currentTime);
+            priorityClass.transferredBytes += amount;
+            priorityClass.windowBytes += amount;
+        }
+        else
+            priorityClass.performedOperations += amount;
+
+        return true;
+    }
+
+    /**
+     * Retrieves limits and usage of specified priority class.
+     *
+     * @param priority
+     *      Priority class
+     * @return
+     *      Priority class' limits and usage
+     */
+    private PriorityClass getPriorityClass(IOPriority priority) {
+
+        return priorityClasses[(priority != null ? priority : IOPriority.FOREGROUND).ordinal()];
+    }
+
+    /**
+     * Keeps limits and usage statistics of a single priority class.
+     */
+    private static class PriorityClass {
+
+        /**
+         * Limits transferred bytes.
+         */
+        final TokenBucket bytesBucket = new TokenBucket();
+
+        /**
+         * Limits performed operations.
+         */
+        final TokenBucket operationsBucket = new TokenBucket();
+
+        /**
+         * Total amount of transferred bytes.
+         */
+        long transferredBytes = 0;
+
+        /**
+         * Total count of performed operations.
+         */
+        long performedOperations = 0;
+
+        /**
+         * Total time spent waiting for permits in nanoseconds.
+         */
+        long waitingTime = 0;
+
+        /**
+         * Start time of current rate measurement window.
+         */
+        long windowStartTime = System.nanoTime();
+
+        /**
+         * Bytes transferred during current rate measurement window.
+         */
+        long windowBytes = 0;
+
+        /**
+         * Bytes transferred during the last completed rate measurement window.
+         */
+        long lastWindowBytes = 0;
+
+        /**
+         * Completes current rate measurement window if it has expired.
+         *
+         * @param currentTime
+         *      Current time in nanoseconds
+         */
+        void updateRateWindow(long currentTime) {
+
+            long elapsedTime = currentTime - windowStartTime;
+            if (elapsedTime < RATE_WINDOW)
+                return;
+
+            lastWindowBytes = elapsedTime < 2 * RATE_WINDOW ? windowBytes * RATE_WINDOW / elapsedTime : 0;
+            windowBytes = 0;
+            windowStartTime = currentTime;
+        }
+    }
+
+    /**
+     * Token bucket holding up to one second worth of tokens.
+     */
+    private static class TokenBucket {
+
+        /**
+         * Maximal delay returned by {@link #consume(long, long)} in nanoseconds,
+         * waiting threads recheck the bucket at least this often.
+         */
+        static final long MAXIMUM_DELAY = 100000000L;
+
+        /**
+         * Tokens added per second, zero means unlimited bucket.
+         */
+        long rate = 0;
+
+        /**
+         * Currently available tokens, negative value means a debt.
+         */
+        double tokens = 0;
+
+        /**
+         * Time of the last refill in nanoseconds.
+         */
+        long lastRefillTime = System.nanoTime();
+
+        /**
+         * Changes bucket's rate keeping already accumulated tokens.
+         *
+         * @param rate
+         *      Tokens per second, zero or negative value makes the bucket unlimited
+         * @param currentTime
+         *      Current time in nanoseconds
+         */
+        void setRate(long rate, long currentTime) {
+
+            refill(currentTime);
+            if (rate <= 0) {
+
+                this.rate = 0;
+                return;
+            }
+
+            if (this.rate == 0)
+                tokens = rate;
+
+            this.rate = rate;
+            tokens = Math.min(tokens, rate);
+        }
+
+        /**
+         * Consumes tokens if enough of them are available.
+         * Amounts exceeding bucket's capacity are granted when the bucket is full.
+         *
+         * @param amount
+         *      Amount of tokens to consume
+         * @param currentTime
+         *      Current time in nanoseconds
+         * @return
+         *      {@code 0} if tokens have been consumed, otherwise a delay
+         *      in nanoseconds to wait before the next attempt
+         */
+        long consume(long amount, long currentTime) {
+
+            if (rate == 0)
+                return 0;
+
+            refill(currentTime);
+            double requiredTokens = Math.min(amount, rate);
+            if (tokens >= requiredTokens) {
+
+                tokens -= amount;
+                return 0;
+            }
+
+            long delay = (long)Math.ceil((requiredTokens - tokens) * 1000000000.0 / rate);
+            return Math.min(Math.max(delay, 1), MAXIMUM_DELAY);
+        }
+
+        /**
+         * Consumes tokens unconditionally, a debt is limited by bucket's capacity.
+         *
+         * @param amount
+         *      Amount of tokens to consume
+         * @param currentTime
+         *      Current time in nanoseconds
+         */
+        void charge(long amount, long currentTime) {
+
+            if (rate == 0)
+                return;
+
+            refill(currentTime);
+            tokens = Math.max(tokens - amount, -rate);
+        }
+
+        /**
+         * Adds tokens accumulated since the last refill.
+         *
+         * @param currentTime
+         *      Current time in nanoseconds
+         */
+        private void refill(long currentTime) {
+
+            long elapsedTime = currentTime - lastRefillTime;
+            lastRefillTime = currentTime;
+            if (rate == 0 || elapsedTime <= 0)
+                return;
+
+            tokens = Math.min(rate, tokens + elapsedTime * (double)rate / 1000000000.0);
+        }
+    }
+}
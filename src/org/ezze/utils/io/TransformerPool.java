@@ -0,0 +1,189 @@
+package org.ezze.utils.io;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+
+/**
+ * Thread-safe pool of identity {@link javax.xml.transform.Transformer} instances
+ * configured to write indented XML with specified charset and indent size.
+ *
+ * Transformers of each (charset, indent size) combination are kept separately,
+ * so borrowed transformer is ready to use without any further configuration.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see XMLHelper#writeXMLDocument(org.w3c.dom.Document, java.io.OutputStream, java.lang.String, java.lang.Integer)
+ */
+public class TransformerPool {
+
+    /**
+     * Default maximal count of idle transformers kept per configuration.
+     */
+    public static final int DEFAULT_CAPACITY = 8;
+
+    /**
+     * Maximal count of idle transformers kept per configuration.
+     */
+    private final int capacity;
+
+    /**
+     * Idle transformers keyed by configuration.
+     */
+    private final ConcurrentHashMap<String, ArrayBlockingQueue<Transformer>> idleTransformers =
+            new ConcurrentHashMap<String, ArrayBlockingQueue<Transformer>>();
+
+    /**
+     * Transformer factories keyed by indent size.
+     */
+    private final ConcurrentHashMap<Integer, TransformerFactory> factories = new ConcurrentHashMap<Integer, TransformerFactory>();
+
+    /**
+     * Count of created transformers.
+     */
+    private final AtomicLong createdTransformersCount = new AtomicLong();
+
+    /**
+     * Creates pool keeping up to {@link #DEFAULT_CAPACITY} idle transformers per configuration.
+     */
+    public TransformerPool() {
+
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates pool keeping up to {@code capacity} idle transformers per configuration.
+     *
+     * @param capacity
+     *      Maximal count of idle transformers per configuration
+     */
+    public TransformerPool(int capacity) {
+
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Borrows a transformer from the pool creating new one if there are no idle transformers.
+     * Borrowed transformer must be returned by {@link #release(javax.xml.transform.Transformer, java.lang.String, int)}
+     * with the same charset and indent size.
+     *
+     * @param charset
+     *      Charset declared by written XML
+     * @param indentSize
+     *      Tabs indent size in space characters
+     * @return
+     *      Transformer or {@code null} if it cannot be created
+     */
+    public Transformer borrow(String charset, int indentSize) {
+
+        ArrayBlockingQueue<Transformer> transformers = idleTransformers.get(getKey(charset, indentSize));
+        Transformer transformer = transformers != null ? transformers.poll() : null;
+        if (transformer != null)
+            return transformer;
+
+        return createTransformer(charset, indentSize);
+    }
+
+    /**
+     * Returns borrowed transformer to the pool.
+     *
+     * @param transformer
+     *      Borrowed transformer
+     * @param charset
+     *      Charset the transformer has been borrowed with
+     * @param indentSize
+     *      Indent size the transformer has been borrowed with
+     */
+    public void release(Transformer transformer, String charset, int indentSize) {
+
+        if (transformer == null)
+            return;
+
+        String key = getKey(charset, indentSize);
+        ArrayBlockingQueue<Transformer> transformers = idleTransformers.get(key);
+        if (transformers == null) {
+
+            ArrayBlockingQueue<Transformer> newTransformers = new ArrayBlockingQueue<Transformer>(capacity);
+            transformers = idleTransformers.putIfAbsent(key, newTransformers);
+            if (transformers == null)
+                transformers = newTransformers;
+        }
+
+        transformers.offer(transformer);
+    }
+
+    /**
+     * Retrieves count of transformers created by the pool.
+     *
+     * @return
+     *      Count of created transformers
+     */
+    public long getCreatedTransformersCount() {
+
+        return createdTransformersCount.get();
+    }
+
+    /**
+     * Creates new transformer with specified configuration.
+     *
+     * @param charset
+     *      Charset declared by written XML
+     * @param indentSize
+     *      Tabs indent size in space characters
+     * @return
+     *      Transformer or {@code null} if it cannot be created
+     */
+    private Transformer createTransformer(String charset, int indentSize) {
+
+        TransformerFactory factory = factories.get(indentSize);
+        if (factory == null) {
+
+            TransformerFactory newFactory = TransformerFactory.newInstance();
+            newFactory.setAttribute("indent-number", indentSize);      // setting tabs' size in space characters
+            factory = factories.putIfAbsent(indentSize, newFactory);
+            if (factory == null)
+                factory = newFactory;
+        }
+
+        Transformer transformer = null;
+        try {
+
+            // Factories are not guaranteed to be thread-safe
+            synchronized (factory) {
+
+                transformer = factory.newTransformer();
+            }
+        }
+        catch (TransformerConfigurationException ex) {
+
+            return null;
+        }
+
+        if (transformer == null)
+            return null;
+
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");             // requiring tabs (indent) usage
+        transformer.setOutputProperty(OutputKeys.ENCODING, charset);
+        createdTransformersCount.incrementAndGet();
+        return transformer;
+    }
+
+    /**
+     * Builds a key of transformers' configuration.
+     *
+     * @param charset
+     *      Charset declared by written XML
+     * @param indentSize
+     *      Tabs indent size in space characters
+     * @return
+     *      Configuration's key
+     */
+    private static String getKey(String charset, int indentSize) {
+
+        return charset + '|' + indentSize;
+    }
+}
@@ -0,0 +1,421 @@
+package org.ezze.utils.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Indexes elements with specified tag name by value of their attribute
+ * to look them up in O(1) instead of scanning the document.
+ *
+ * Index covers the elements {@link XMLHelper#getChildElementWithAttribute(org.w3c.dom.Element, java.lang.String, java.lang.String, java.lang.String)}
+ * would scan: all descendants of scope element or all elements of scope document.
+ * Index of a document indexed by {@link XMLHelper#indexDocument(org.w3c.dom.Document)}
+ * is built on the first lookup and rebuilt automatically on the next lookup after
+ * the document has been modified. Modifications of other documents cannot be detected,
+ * so their indices are rebuilt on each lookup. Several elements may share the same
+ * attribute value, lookups of a single element return the first one in document order.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see XMLHelper#getAttributeIndex(org.w3c.dom.Element, java.lang.String, java.lang.String)
+ */
+public class XMLAttributeIndex {
+
+    /**
+     * Key of scope node's user data keeping its cached indices.
+     */
+    private static final String USER_DATA_KEY = XMLAttributeIndex.class.getName();
+
+    /**
+     * Document or element which descendants are indexed.
+     */
+    private final Node scopeNode;
+
+    /**
+     * Tag name of indexed elements ("*" for any element).
+     */
+    private final String elementName;
+
+    /**
+     * Name of indexed attribute.
+     */
+    private final String attributeName;
+
+    /**
+     * Current state of the index or {@code null} if it hasn't been built yet.
+     */
+    private volatile IndexedValues indexedValues = null;
+
+    /**
+     * Creates index of document's elements.
+     *
+     * @param xmlDocument
+     *      XML document
+     * @param elementName
+     *      Tag name of indexed elements ("*" for any element)
+     * @param attributeName
+     *      Name of indexed attribute
+     */
+    public XMLAttributeIndex(Document xmlDocument, String elementName, String attributeName) {
+
+        this((Node)xmlDocument, elementName, attributeName);
+    }
+
+    /**
+     * Creates index of element's descendants.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param elementName
+     *      Tag name of indexed elements ("*" for any element)
+     * @param attributeName
+     *      Name of indexed attribute
+     */
+    public XMLAttributeIndex(Element xmlElement, String elementName, String attributeName) {
+
+        this((Node)xmlElement, elementName, attributeName);
+    }
+
+    /**
+     * Creates index of scope node's descendants.
+     *
+     * @param scopeNode
+     *      Document or element which descendants are indexed
+     * @param elementName
+     *      Tag name of indexed elements
+     * @param attributeName
+     *      Name of indexed attribute
+     */
+    private XMLAttributeIndex(Node scopeNode, String elementName, String attributeName) {
+
+        this.scopeNode = scopeNode;
+        this.elementName = elementName;
+        this.attributeName = attributeName;
+    }
+
+    /**
+     * Retrieves index of scope node's descendants cached by the scope node if its document is indexed.
+     *
+     * @param scopeNode
+     *      Document or element which descendants are indexed
+     * @param elementName
+     *      Tag name of indexed elements
+     * @param attributeName
+     *      Name of indexed attribute
+     * @return
+     *      Cached or new index
+     */
+    @SuppressWarnings("unchecked")
+    static XMLAttributeIndex of(Node scopeNode, String elementName, String attributeName) {
+
+        if (scopeNode == null || elementName == null || attributeName == null)
+            return new XMLAttributeIndex(scopeNode, elementName, attributeName);
+
+        Document xmlDocument = scopeNode.getNodeType() == Node.DOCUMENT_NODE ? (Document)scopeNode : scopeNode.getOwnerDocument();
+        if (XMLDocumentVersion.getVersion(xmlDocument) == XMLDocumentVersion.UNTRACKED)
+            return new XMLAttributeIndex(scopeNode, elementName, attributeName);
+
+        String indexKey = elementName + '\u0000' + attributeName;
+        synchronized (xmlDocument) {
+
+            Object userData = scopeNode.getUserData(USER_DATA_KEY);
+            HashMap<String, XMLAttributeIndex> cachedIndices;
+            if (userData instanceof HashMap)
+                cachedIndices = (HashMap<String, XMLAttributeIndex>)userData;
+            else {
+
+                cachedIndices = new HashMap<String, XMLAttributeIndex>();
+                scopeNode.setUserData(USER_DATA_KEY, cachedIndices, null);
+            }
+
+            XMLAttributeIndex attributeIndex = cachedIndices.get(indexKey);
+            if (attributeIndex == null) {
+
+                attributeIndex = new XMLAttributeIndex(scopeNode, elementName, attributeName);
+                cachedIndices.put(indexKey, attributeIndex);
+            }
+
+            return attributeIndex;
+        }
+    }
+
+    /**
+     * Retrieves the first element with specified attribute value.
+     *
+     * @param attributeValue
+     *      Attribute's value
+     * @return
+     *      Element or {@code null} if no element is found
+     */
+    public Element get(String attributeValue) {
+
+        if (attributeValue == null)
+            return null;
+
+        return getIndexedValues().firstElements.get(attributeValue);
+    }
+
+    /**
+     * Retrieves all elements with specified attribute value in document order.
+     *
+     * @param attributeValue
+     *      Attribute's value
+     * @return
+     *      Unmodifiable list of elements (empty if no element is found)
+     */
+    public List<Element> getAll(String attributeValue) {
+
+        if (attributeValue == null)
+            return Collections.emptyList();
+
+        IndexedValues indexedValues = getIndexedValues();
+        List<Element> elements = indexedValues.duplicatedElements.get(attributeValue);
+        if (elements != null)
+            return elements;
+
+        Element element = indexedValues.firstElements.get(attributeValue);
+        if (element != null)
+            return Collections.singletonList(element);
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Checks whether any element has specified attribute value.
+     *
+     * @param attributeValue
+     *      Attribute's value
+     * @return
+     *      {@code true} if element is found, {@code false} otherwise
+     */
+    public boolean contains(String attributeValue) {
+
+        return get(attributeValue) != null;
+    }
+
+    /**
+     * Checks whether each attribute value belongs to a single element.
+     *
+     * @return
+     *      {@code true} if there are no duplicated attribute values, {@code false} otherwise
+     */
+    public boolean isUnique() {
+
+        return getIndexedValues().duplicatedElements.isEmpty();
+    }
+
+    /**
+     * Retrieves count of distinct attribute values.
+     *
+     * @return
+     *      Count of distinct values
+     */
+    public int getValuesCount() {
+
+        return getIndexedValues().firstElements.size();
+    }
+
+    /**
+     * Retrieves count of indexed elements.
+     *
+     * @return
+     *      Count of elements having indexed attribute
+     */
+    public int getElementsCount() {
+
+        return getIndexedValues().elementsCount;
+    }
+
+    /**
+     * Retrieves tag name of indexed elements.
+     *
+     * @return
+     *      Tag name of indexed elements
+     */
+    public String getElementName() {
+
+        return elementName;
+    }
+
+    /**
+     * Retrieves name of indexed attribute.
+     *
+     * @return
+     *      Name of indexed attribute
+     */
+    public String getAttributeName() {
+
+        return attributeName;
+    }
+
+    /**
+     * Retrieves current state of the index rebuilding it if the document has been modified.
+     *
+     * @return
+     *      Indexed values
+     */
+    private IndexedValues getIndexedValues() {
+
+        IndexedValues indexedValues = this.indexedValues;
+        if (indexedValues != null && indexedValues.isValid(scopeNode))
+            return indexedValues;
+
+        synchronized (this) {
+
+            indexedValues = this.indexedValues;
+            if (indexedValues != null && indexedValues.isValid(scopeNode))
+                return indexedValues;
+
+            indexedValues = buildIndexedValues();
+            this.indexedValues = indexedValues;
+            return indexedValues;
+        }
+    }
+
+    /**
+     * Collects attribute values of scope node's descendants.
+     *
+     * @return
+     *      Indexed values
+     */
+    private IndexedValues buildIndexedValues() {
+
+        Document xmlDocument = scopeNode == null ? null : scopeNode.getNodeType() == Node.DOCUMENT_NODE ?
+                (Document)scopeNode : scopeNode.getOwnerDocument();
+        long version = XMLDocumentVersion.getVersion(xmlDocument);
+        if (scopeNode != null && !XMLDocumentVersion.isAttached(scopeNode))
+            version = XMLDocumentVersion.UNTRACKED;
+
+        IndexedValues indexedValues = new IndexedValues(version);
+        if (scopeNode == null || elementName == null || attributeName == null)
+            return indexedValues;
+
+        boolean isAnyElement = "*".equals(elementName);
+
+        // Traversing descendants in document order without recursion
+        Node node = scopeNode.getFirstChild();
+        while (node != null) {
+
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+
+                Element element = (Element)node;
+                if ((isAnyElement || elementName.equals(element.getTagName())) && element.hasAttribute(attributeName))
+                    indexedValues.add(element.getAttribute(attributeName), element);
+            }
+
+            if (node.getFirstChild() != null) {
+
+                node = node.getFirstChild();
+                continue;
+            }
+
+            while (node != null && node != scopeNode && node.getNextSibling() == null)
+                node = node.getParentNode();
+
+            node = node == null || node == scopeNode ? null : node.getNextSibling();
+        }
+
+        indexedValues.freeze();
+        return indexedValues;
+    }
+
+    /**
+     * Keeps elements by attribute values at specific document's version.
+     */
+    private static class IndexedValues {
+
+        /**
+         * Document's version the values have been collected at.
+         */
+        final long version;
+
+        /**
+         * The first element of each attribute value.
+         */
+        final HashMap<String, Element> firstElements = new HashMap<String, Element>();
+
+        /**
+         * All elements of attribute values shared by several elements.
+         */
+        final HashMap<String, List<Element>> duplicatedElements = new HashMap<String, List<Element>>();
+
+        /**
+         * Count of indexed elements.
+         */
+        int elementsCount = 0;
+
+        /**
+         * Creates empty values.
+         *
+         * @param version
+         *      Document's version the values are collected at
+         */
+        IndexedValues(long version) {
+
+            this.version = version;
+        }
+
+        /**
+         * Adds element with specified attribute value.
+         *
+         * @param attributeValue
+         *      Attribute's value
+         * @param element
+         *      Element
+         */
+        void add(String attributeValue, Element element) {
+
+            elementsCount++;
+            Element firstElement = firstElements.get(attributeValue);
+            if (firstElement == null) {
+
+                firstElements.put(attributeValue, element);
+                return;
+            }
+
+            List<Element> elements = duplicatedElements.get(attributeValue);
+            if (elements == null) {
+
+                elements = new ArrayList<Element>(4);
+                elements.add(firstElement);
+                duplicatedElements.put(attributeValue, elements);
+            }
+            elements.add(element);
+        }
+
+        /**
+         * Makes lists of duplicated elements unmodifiable.
+         */
+        void freeze() {
+
+            for (Map.Entry<String, List<Element>> duplicatedEntry : duplicatedElements.entrySet())
+                duplicatedEntry.setValue(Collections.unmodifiableList(duplicatedEntry.getValue()));
+        }
+
+        /**
+         * Checks whether scope node's document hasn't been modified since the values were collected.
+         *
+         * @param scopeNode
+         *      Document or element which descendants are indexed
+         * @return
+         *      {@code true} if the values are valid, {@code false} otherwise
+         */
+        boolean isValid(Node scopeNode) {
+
+            if (scopeNode == null)
+                return true;
+
+            if (version == XMLDocumentVersion.UNTRACKED)
+                return false;
+
+            Document xmlDocument = scopeNode.getNodeType() == Node.DOCUMENT_NODE ? (Document)scopeNode : scopeNode.getOwnerDocument();
+            return XMLDocumentVersion.getVersion(xmlDocument) == version;
+        }
+    }
+}
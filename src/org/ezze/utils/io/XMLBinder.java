@@ -0,0 +1,701 @@
+package org.ezze.utils.io;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Binds XML elements to objects which fields are annotated with {@link XMLPath}.
+ *
+ * Binders are created once per class and keep method handles of annotated fields
+ * and parsed paths, so binding doesn't involve reflection. Primitive fields
+ * are set without boxing. Supported field types are {@code String}, {@code int},
+ * {@code long}, {@code double}, {@code boolean} and their wrappers. Values are parsed
+ * the same way {@link XMLHelper}'s getters parse them, fields which values
+ * are missing or malformed keep their initial values.
+ *
+ * Records may be bound from DOM elements or from elements read by {@link XMLStreamingReader}.
+ *
+ * @param <T>
+ *      Type of bound objects
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public class XMLBinder<T> {
+
+    /**
+     * Binders of already processed classes.
+     */
+    private static final ConcurrentHashMap<Class<?>, XMLBinder<?>> binders = new ConcurrentHashMap<Class<?>, XMLBinder<?>>();
+
+    /**
+     * Bound class.
+     */
+    private final Class<T> type;
+
+    /**
+     * Handle of bound class' constructor without arguments or {@code null}.
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * Bindings of annotated fields.
+     */
+    private final FieldBinding[] fieldBindings;
+
+    /**
+     * Creates binder.
+     *
+     * @param type
+     *      Bound class
+     * @param constructor
+     *      Handle of constructor without arguments or {@code null}
+     * @param fieldBindings
+     *      Bindings of annotated fields
+     */
+    private XMLBinder(Class<T> type, MethodHandle constructor, FieldBinding[] fieldBindings) {
+
+        this.type = type;
+        this.constructor = constructor;
+        this.fieldBindings = fieldBindings;
+    }
+
+    /**
+     * Retrieves binder of specified class creating it on the first request.
+     *
+     * @param <T>
+     *      Type of bound objects
+     * @param type
+     *      Bound class
+     * @return
+     *      Binder or {@code null} if an annotated field has invalid path or unsupported type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> XMLBinder<T> of(Class<T> type) {
+
+        if (type == null)
+            return null;
+
+        XMLBinder<?> binder = binders.get(type);
+        if (binder == null) {
+
+            binder = createBinder(type);
+            if (binder == null)
+                return null;
+
+            XMLBinder<?> existingBinder = binders.putIfAbsent(type, binder);
+            if (existingBinder != null)
+                binder = existingBinder;
+        }
+
+        return (XMLBinder<T>)binder;
+    }
+
+    /**
+     * Creates binder of specified class collecting its annotated fields.
+     *
+     * @param <T>
+     *      Type of bound objects
+     * @param type
+     *      Bound class
+     * @return
+     *      Binder or {@code null} if an annotated field cannot be bound
+     */
+    private static <T> XMLBinder<T> createBinder(Class<T> type) {
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        ArrayList<FieldBinding> fieldBindings = new ArrayList<FieldBinding>();
+        try {
+
+            for (Class<?> declaringClass = type; declaringClass != null && declaringClass != Object.class; declaringClass = declaringClass.getSuperclass()) {
+
+                for (Field field : declaringClass.getDeclaredFields()) {
+
+                    XMLPath fieldPath = field.getAnnotation(XMLPath.class);
+                    if (fieldPath == null)
+                        continue;
+
+                    if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()))
+                        return null;
+
+                    FieldBinding fieldBinding = FieldBinding.create(lookup, field, fieldPath.value());
+                    if (fieldBinding == null)
+                        return null;
+                    fieldBindings.add(fieldBinding);
+                }
+            }
+
+            MethodHandle constructor = null;
+            try {
+
+                Constructor<T> defaultConstructor = type.getDeclaredConstructor();
+                defaultConstructor.setAccessible(true);
+                constructor = lookup.unreflectConstructor(defaultConstructor).asType(MethodType.methodType(Object.class));
+            }
+            catch (NoSuchMethodException ex) {
+
+                // Objects can only be bound to existing instances
+            }
+
+            return new XMLBinder<T>(type, constructor, fieldBindings.toArray(new FieldBinding[fieldBindings.size()]));
+        }
+        catch (IllegalAccessException ex) {
+
+        }
+        catch (SecurityException ex) {
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Retrieves bound class.
+     *
+     * @return
+     *      Bound class
+     */
+    public Class<T> getType() {
+
+        return type;
+    }
+
+    /**
+     * Creates new object bound to specified element.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @return
+     *      Bound object or {@code null} if object cannot be created
+     */
+    public T bind(Element xmlElement) {
+
+        if (xmlElement == null)
+            return null;
+
+        T record = newInstance();
+        if (record == null || !bind(xmlElement, record))
+            return null;
+
+        return record;
+    }
+
+    /**
+     * Binds existing object to specified element.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param record
+     *      Bound object
+     * @return
+     *      {@code true} if object has been bound, {@code false} otherwise
+     */
+    public boolean bind(Element xmlElement, T record) {
+
+        if (xmlElement == null || record == null)
+            return false;
+
+        for (FieldBinding fieldBinding : fieldBindings) {
+
+            Element valueElement = fieldBinding.findElement(xmlElement, 0);
+            if (valueElement == null)
+                continue;
+
+            String value = fieldBinding.attributeName != null ? valueElement.getAttribute(fieldBinding.attributeName) : valueElement.getTextContent();
+            if (!fieldBinding.setValue(record, value))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Binds all elements matched by specified expression to new objects.
+     *
+     * @param contextNode
+     *      Document or element the expression is evaluated against
+     * @param recordExpression
+     *      XPath expression of bound elements
+     * @return
+     *      List of bound objects in document order (empty if objects cannot be created)
+     * @see XMLHelper#selectElements(org.w3c.dom.Node, java.lang.String)
+     */
+    public List<T> bindAll(Node contextNode, String recordExpression) {
+
+        if (constructor == null)
+            return Collections.emptyList();
+
+        List<Element> recordElements = XMLHelper.selectElements(contextNode, recordExpression);
+        ArrayList<T> records = new ArrayList<T>(recordElements.size());
+        for (Element recordElement : recordElements) {
+
+            T record = bind(recordElement);
+            if (record != null)
+                records.add(record);
+        }
+
+        return records;
+    }
+
+    /**
+     * Registers handlers binding streamed records with specified absolute path to new objects.
+     *
+     * Values of record's child elements are collected as soon as child elements end,
+     * bound object is passed to record handler once record's end tag is read.
+     * Text values are elements' direct text, text of their descendant elements isn't bound.
+     *
+     * @param streamingReader
+     *      Streaming reader
+     * @param recordPath
+     *      Absolute path of record elements ("/catalog/items/item")
+     * @param recordHandler
+     *      Handler of bound objects
+     * @return
+     *      {@code true} if handlers have been registered, {@code false} if path is not absolute
+     *      or objects of bound class cannot be created
+     */
+    public boolean addHandler(XMLStreamingReader streamingReader, String recordPath, XMLRecordHandler<? super T> recordHandler) {
+
+        String normalizedPath = XMLPathTracker.normalize(recordPath);
+        if (streamingReader == null || recordHandler == null || constructor == null || normalizedPath == null || normalizedPath.startsWith("//"))
+            return false;
+
+        final StreamedRecords streamedRecords = new StreamedRecords(recordHandler);
+        for (int fieldIndex = 0; fieldIndex < fieldBindings.length; fieldIndex++) {
+
+            final FieldBinding fieldBinding = fieldBindings[fieldIndex];
+            if (fieldBinding.elementSteps.length == 0)
+                continue;
+
+            StringBuilder fieldPath = new StringBuilder(normalizedPath);
+            for (String elementStep : fieldBinding.elementSteps)
+                fieldPath.append('/').append(elementStep);
+
+            final int boundFieldIndex = fieldIndex;
+            streamingReader.addHandler(fieldPath.toString(), new XMLElementHandler() {
+
+                @Override
+                public void handleElement(XMLStreamElement element) {
+
+                    streamedRecords.bindField(boundFieldIndex, element);
+                }
+            });
+        }
+
+        return streamingReader.addHandler(normalizedPath, streamedRecords);
+    }
+
+    /**
+     * Creates new instance of bound class.
+     *
+     * @return
+     *      New instance or {@code null} if it cannot be created
+     */
+    private T newInstance() {
+
+        if (constructor == null)
+            return null;
+
+        try {
+
+            return type.cast((Object)constructor.invokeExact());
+        }
+        catch (Throwable ex) {
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Collects values of streamed records separately for each reading thread.
+     * A pending record is dropped when the start tag of the next record is read,
+     * so values of a record left unfinished by a failed read never leak into the next one.
+     */
+    private class StreamedRecords implements XMLElementStartHandler {
+
+        /**
+         * Handler of bound objects.
+         */
+        private final XMLRecordHandler<? super T> recordHandler;
+
+        /**
+         * Record being read by current thread.
+         */
+        private final ThreadLocal<StreamedRecord> currentRecord = new ThreadLocal<StreamedRecord>();
+
+        /**
+         * Creates collector of streamed records.
+         *
+         * @param recordHandler
+         *      Handler of bound objects
+         */
+        StreamedRecords(XMLRecordHandler<? super T> recordHandler) {
+
+            this.recordHandler = recordHandler;
+        }
+
+        /**
+         * Drops record left unfinished on current thread before a new record is read.
+         *
+         * @param path
+         *      Record element's absolute path
+         */
+        @Override
+        public void handleElementStart(String path) {
+
+            currentRecord.remove();
+        }
+
+        /**
+         * Binds field of current record to value of its ended child element.
+         * Only the first child element with a value is bound like in DOM binding.
+         *
+         * @param fieldIndex
+         *      Index of field's binding
+         * @param element
+         *      Ended child element
+         */
+        void bindField(int fieldIndex, XMLStreamElement element) {
+
+            StreamedRecord streamedRecord = getCurrentRecord();
+            if (streamedRecord == null || streamedRecord.boundFields[fieldIndex])
+                return;
+
+            FieldBinding fieldBinding = fieldBindings[fieldIndex];
+            String value = fieldBinding.attributeName != null ? (element.hasAttribute(fieldBinding.attributeName) ?
+                    element.getAttribute(fieldBinding.attributeName) : null) : element.getText();
+            if (value != null && fieldBinding.setValue(streamedRecord.record, value))
+                streamedRecord.boundFields[fieldIndex] = true;
+        }
+
+        /**
+         * Binds record's own attributes and text and passes bound object to record handler.
+         *
+         * @param element
+         *      Ended record element
+         */
+        @Override
+        public void handleElement(XMLStreamElement element) {
+
+            StreamedRecord streamedRecord = getCurrentRecord();
+            currentRecord.remove();
+            if (streamedRecord == null)
+                return;
+
+            for (FieldBinding fieldBinding : fieldBindings) {
+
+                if (fieldBinding.elementSteps.length > 0)
+                    continue;
+
+                if (fieldBinding.attributeName == null)
+                    fieldBinding.setValue(streamedRecord.record, element.getText());
+                else if (element.hasAttribute(fieldBinding.attributeName))
+                    fieldBinding.setValue(streamedRecord.record, element.getAttribute(fieldBinding.attributeName));
+            }
+
+            recordHandler.handleRecord(streamedRecord.record);
+        }
+
+        /**
+         * Retrieves record being read by current thread creating it if necessary.
+         *
+         * @return
+         *      Current record or {@code null} if object cannot be created
+         */
+        private StreamedRecord getCurrentRecord() {
+
+            StreamedRecord streamedRecord = currentRecord.get();
+            if (streamedRecord == null) {
+
+                T record = newInstance();
+                if (record == null)
+                    return null;
+
+                streamedRecord = new StreamedRecord(record, new boolean[fieldBindings.length]);
+                currentRecord.set(streamedRecord);
+            }
+
+            return streamedRecord;
+        }
+    }
+
+    /**
+     * Keeps object of a streamed record being read.
+     */
+    private class StreamedRecord {
+
+        /**
+         * Bound object.
+         */
+        final T record;
+
+        /**
+         * Shows which fields have already been bound.
+         */
+        final boolean[] boundFields;
+
+        /**
+         * Creates streamed record.
+         *
+         * @param record
+         *      Bound object
+         * @param boundFields
+         *      Flags of bound fields
+         */
+        StreamedRecord(T record, boolean[] boundFields) {
+
+            this.record = record;
+            this.boundFields = boundFields;
+        }
+    }
+
+    /**
+     * Binds a single field to value of relative path.
+     */
+    private static class FieldBinding {
+
+        static final int TYPE_STRING = 0;
+        static final int TYPE_INT = 1;
+        static final int TYPE_LONG = 2;
+        static final int TYPE_DOUBLE = 3;
+        static final int TYPE_BOOLEAN = 4;
+        static final int TYPE_INTEGER_OBJECT = 5;
+        static final int TYPE_LONG_OBJECT = 6;
+        static final int TYPE_DOUBLE_OBJECT = 7;
+        static final int TYPE_BOOLEAN_OBJECT = 8;
+
+        /**
+         * Names of child elements leading to the value.
+         */
+        final String[] elementSteps;
+
+        /**
+         * Name of attribute keeping the value or {@code null} for element's text.
+         */
+        final String attributeName;
+
+        /**
+         * Field's value type.
+         */
+        final int valueType;
+
+        /**
+         * Field's setter accepting object and value of field's type.
+         */
+        final MethodHandle setter;
+
+        /**
+         * Creates field binding.
+         *
+         * @param elementSteps
+         *      Names of child elements leading to the value
+         * @param attributeName
+         *      Name of attribute or {@code null}
+         * @param valueType
+         *      Field's value type
+         * @param setter
+         *      Field's setter
+         */
+        FieldBinding(String[] elementSteps, String attributeName, int valueType, MethodHandle setter) {
+
+            this.elementSteps = elementSteps;
+            this.attributeName = attributeName;
+            this.valueType = valueType;
+            this.setter = setter;
+        }
+
+        /**
+         * Creates binding of annotated field.
+         *
+         * @param lookup
+         *      Lookup creating field's setter
+         * @param field
+         *      Annotated field
+         * @param path
+         *      Field's path
+         * @return
+         *      Field binding or {@code null} if path is invalid or field's type is not supported
+         * @throws IllegalAccessException
+         *      If field's setter cannot be created
+         */
+        static FieldBinding create(MethodHandles.Lookup lookup, Field field, String path) throws IllegalAccessException {
+
+            String[] elementSteps = new String[0];
+            String attributeName = null;
+            if (!".".equals(path)) {
+
+                XMLQuery pathQuery = path != null ? XMLQuery.parseSimplePath(path) : null;
+                if (pathQuery == null || pathQuery.isAbsolute())
+                    return null;
+
+                elementSteps = pathQuery.getElementSteps();
+                attributeName = pathQuery.getAttributeName();
+            }
+
+            Class<?> fieldType = field.getType();
+            int valueType;
+            if (fieldType == String.class)
+                valueType = TYPE_STRING;
+            else if (fieldType == int.class)
+                valueType = TYPE_INT;
+            else if (fieldType == long.class)
+                valueType = TYPE_LONG;
+            else if (fieldType == double.class)
+                valueType = TYPE_DOUBLE;
+            else if (fieldType == boolean.class)
+                valueType = TYPE_BOOLEAN;
+            else if (fieldType == Integer.class)
+                valueType = TYPE_INTEGER_OBJECT;
+            else if (fieldType == Long.class)
+                valueType = TYPE_LONG_OBJECT;
+            else if (fieldType == Double.class)
+                valueType = TYPE_DOUBLE_OBJECT;
+            else if (fieldType == Boolean.class)
+                valueType = TYPE_BOOLEAN_OBJECT;
+            else
+                return null;
+
+            field.setAccessible(true);
+            Class<?> setterValueType = fieldType.isPrimitive() ? fieldType : Object.class;
+            MethodHandle setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, setterValueType));
+            return new FieldBinding(elementSteps, attributeName, valueType, setter);
+        }
+
+        /**
+         * Finds the first element in document order matched by element steps
+         * and having bound attribute if any.
+         *
+         * @param xmlElement
+         *      Element matched by previous steps
+         * @param stepIndex
+         *      Index of the next step
+         * @return
+         *      Element keeping the value or {@code null} if no element is matched
+         */
+        Element findElement(Element xmlElement, int stepIndex) {
+
+            if (stepIndex == elementSteps.length)
+                return attributeName == null || xmlElement.hasAttribute(attributeName) ? xmlElement : null;
+
+            XMLElementChildren childElements = XMLElementChildren.of(xmlElement).getNamed(elementSteps[stepIndex]);
+            for (int childIndex = 0; childIndex < childElements.size(); childIndex++) {
+
+                Element valueElement = findElement(childElements.get(childIndex), stepIndex + 1);
+                if (valueElement != null)
+                    return valueElement;
+            }
+
+            return null;
+        }
+
+        /**
+         * Parses value and sets it to object's field, malformed values are ignored.
+         *
+         * @param record
+         *      Bound object
+         * @param value
+         *      Value's text
+         * @return
+         *      {@code true} if field has been set or value has been ignored, {@code false} if setter has failed
+         */
+        boolean setValue(Object record, String value) {
+
+            if (value == null)
+                return true;
+
+            try {
+
+                switch (valueType) {
+
+                    case TYPE_STRING:
+
+                        setter.invokeExact(record, (Object)value);
+                        break;
+
+                    case TYPE_INT:
+
+                        // Sentinel value is parsed again to tell it from malformed value
+                        int intValue = XMLHelper.parseIntValue(value, Integer.MIN_VALUE);
+                        if (intValue != Integer.MIN_VALUE || XMLHelper.parseIntValue(value, 0) != 0)
+                            setter.invokeExact(record, intValue);
+                        break;
+
+                    case TYPE_LONG:
+
+                        long primitiveLongValue = XMLHelper.parseLongValue(value, Long.MIN_VALUE);
+                        if (primitiveLongValue != Long.MIN_VALUE || XMLHelper.parseLongValue(value, 0) != 0)
+                            setter.invokeExact(record, primitiveLongValue);
+                        break;
+
+                    case TYPE_DOUBLE:
+
+                        double primitiveDoubleValue = XMLHelper.parseDoubleValue(value, Double.NaN);
+                        if (!Double.isNaN(primitiveDoubleValue) || Double.isNaN(XMLHelper.parseDoubleValue(value, 0)))
+                            setter.invokeExact(record, primitiveDoubleValue);
+                        break;
+
+                    case TYPE_BOOLEAN:
+
+                        setter.invokeExact(record, parseBoolean(value).booleanValue());
+                        break;
+
+                    case TYPE_INTEGER_OBJECT:
+
+                        Integer integerValue = XMLHelper.parseInteger(value);
+                        if (integerValue != null)
+                            setter.invokeExact(record, (Object)integerValue);
+                        break;
+
+                    case TYPE_LONG_OBJECT:
+
+                        Long longValue = XMLHelper.parseLong(value);
+                        if (longValue != null)
+                            setter.invokeExact(record, (Object)longValue);
+                        break;
+
+                    case TYPE_DOUBLE_OBJECT:
+
+                        Double doubleValue = XMLHelper.parseDouble(value);
+                        if (doubleValue != null)
+                            setter.invokeExact(record, (Object)doubleValue);
+                        break;
+
+                    case TYPE_BOOLEAN_OBJECT:
+
+                        setter.invokeExact(record, (Object)parseBoolean(value));
+                        break;
+                }
+
+                return true;
+            }
+            catch (Throwable ex) {
+
+            }
+
+            return false;
+        }
+
+        /**
+         * Parses boolean value the way {@link XMLHelper} parses element text or attribute value.
+         *
+         * @param value
+         *      Value's text
+         * @return
+         *      Parsed value
+         */
+        private Boolean parseBoolean(String value) {
+
+            return attributeName != null ? XMLHelper.parseAttributeBoolean(value) : XMLHelper.parseBoolean(value);
+        }
+    }
+}
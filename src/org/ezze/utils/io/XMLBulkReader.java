@@ -0,0 +1,384 @@
+package org.ezze.utils.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.parsers.DocumentBuilder;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Parses many XML files concurrently.
+ *
+ * Files are parsed by a fixed count of daemon threads with builders borrowed
+ * from {@link XMLHelper#getDocumentBuilderPool()}. Only a limited count of files
+ * is scheduled ahead of the results consumed, so memory consumption doesn't grow
+ * with the count of files. Results are passed to handlers on the calling thread
+ * in completion order, so processing of parsed documents overlaps with parsing.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public class XMLBulkReader {
+
+    /**
+     * Count of files scheduled ahead per parsing thread.
+     */
+    private static final int SCHEDULED_FILES_PER_THREAD = 4;
+
+    /**
+     * Count of created readers used to name their threads.
+     */
+    private static final AtomicInteger readersCount = new AtomicInteger();
+
+    /**
+     * Count of parsing threads.
+     */
+    private final int threadsCount;
+
+    /**
+     * Executor of parsing tasks created on demand.
+     */
+    private ExecutorService executor = null;
+
+    /**
+     * Creates reader parsing files on all available processors.
+     */
+    public XMLBulkReader() {
+
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates reader parsing files on specified count of threads.
+     *
+     * @param threadsCount
+     *      Count of parsing threads
+     */
+    public XMLBulkReader(int threadsCount) {
+
+        this.threadsCount = Math.max(1, threadsCount);
+    }
+
+    /**
+     * Retrieves count of parsing threads.
+     *
+     * @return
+     *      Count of parsing threads
+     */
+    public int getThreadsCount() {
+
+        return threadsCount;
+    }
+
+    /**
+     * Parses specified files passing results to handler in completion order.
+     *
+     * @param xmlFiles
+     *      XML files to parse
+     * @param resultHandler
+     *      Handler called on current thread for each file
+     * @return
+     *      {@code true} if all files have been processed, {@code false} if reading
+     *      has been interrupted or parameters are invalid
+     */
+    public boolean read(Collection<File> xmlFiles, XMLParseResultHandler resultHandler) {
+
+        if (xmlFiles == null || resultHandler == null)
+            return false;
+
+        CompletionService<XMLParseResult> completionService = new ExecutorCompletionService<XMLParseResult>(getExecutor());
+        int maximalScheduledCount = threadsCount * SCHEDULED_FILES_PER_THREAD;
+        int scheduledCount = 0;
+        int fileIndex = 0;
+
+        Iterator<File> xmlFilesIterator = xmlFiles.iterator();
+        while (scheduledCount < maximalScheduledCount && xmlFilesIterator.hasNext()) {
+
+            completionService.submit(new ParseTask(xmlFilesIterator.next(), fileIndex++));
+            scheduledCount++;
+        }
+
+        try {
+
+            while (scheduledCount > 0) {
+
+                Future<XMLParseResult> completedTask = completionService.take();
+                scheduledCount--;
+
+                // Scheduling the next file before the result is processed
+                if (xmlFilesIterator.hasNext()) {
+
+                    completionService.submit(new ParseTask(xmlFilesIterator.next(), fileIndex++));
+                    scheduledCount++;
+                }
+
+                resultHandler.handleResult(completedTask.get());
+            }
+        }
+        catch (InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        catch (ExecutionException ex) {
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses specified files.
+     *
+     * @param xmlFiles
+     *      XML files to parse
+     * @return
+     *      Results in files' order or {@code null} if parameters are invalid,
+     *      files which haven't been processed because reading has been interrupted
+     *      have {@code null} entries
+     */
+    public List<XMLParseResult> readAll(Collection<File> xmlFiles) {
+
+        if (xmlFiles == null)
+            return null;
+
+        final XMLParseResult[] results = new XMLParseResult[xmlFiles.size()];
+        read(xmlFiles, new XMLParseResultHandler() {
+
+            @Override
+            public void handleResult(XMLParseResult result) {
+
+                results[result.getFileIndex()] = result;
+            }
+        });
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Parses files of specified directory passing results to handler in completion order.
+     *
+     * @param directoryName
+     *      Directory's name
+     * @param filter
+     *      Filter of files to parse or {@code null} to parse all files
+     * @param resultHandler
+     *      Handler called on current thread for each file
+     * @return
+     *      {@code true} if all files have been processed, {@code false} if directory
+     *      cannot be listed or reading has been interrupted
+     * @see #read(java.util.Collection, org.ezze.utils.io.XMLParseResultHandler)
+     */
+    public boolean readDirectory(String directoryName, FileFilter filter, XMLParseResultHandler resultHandler) {
+
+        List<File> xmlFiles = listFiles(directoryName, filter);
+        if (xmlFiles == null)
+            return false;
+
+        return read(xmlFiles, resultHandler);
+    }
+
+    /**
+     * Parses files of specified directory.
+     *
+     * @param directoryName
+     *      Directory's name
+     * @param filter
+     *      Filter of files to parse or {@code null} to parse all files
+     * @return
+     *      Results in directory listing's order or {@code null} if directory
+     *      cannot be listed
+     * @see #readAll(java.util.Collection)
+     */
+    public List<XMLParseResult> readDirectory(String directoryName, FileFilter filter) {
+
+        List<File> xmlFiles = listFiles(directoryName, filter);
+        if (xmlFiles == null)
+            return null;
+
+        return readAll(xmlFiles);
+    }
+
+    /**
+     * Stops parsing threads, the reader can still be used afterwards.
+     */
+    public synchronized void shutdown() {
+
+        if (executor != null) {
+
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Lists regular files of specified directory accepted by filter.
+     *
+     * @param directoryName
+     *      Directory's name
+     * @param filter
+     *      Filter of files or {@code null}
+     * @return
+     *      List of files or {@code null} if directory cannot be listed
+     */
+    private static List<File> listFiles(String directoryName, FileFilter filter) {
+
+        if (directoryName == null)
+            return null;
+
+        File[] files = new File(directoryName).listFiles();
+        if (files == null)
+            return null;
+
+        ArrayList<File> xmlFiles = new ArrayList<File>(files.length);
+        for (File file : files) {
+
+            if (file.isFile() && (filter == null || filter.accept(file)))
+                xmlFiles.add(file);
+        }
+
+        return xmlFiles;
+    }
+
+    /**
+     * Retrieves executor of parsing tasks creating it if necessary.
+     *
+     * @return
+     *      Executor of parsing tasks
+     */
+    private synchronized ExecutorService getExecutor() {
+
+        if (executor == null) {
+
+            final int readerIndex = readersCount.incrementAndGet();
+            executor = Executors.newFixedThreadPool(threadsCount, new ThreadFactory() {
+
+                /**
+                 * Count of created threads.
+                 */
+                private final AtomicInteger threadsCounter = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+
+                    Thread thread = new Thread(runnable, "XMLBulkReader-" + readerIndex + "-" + threadsCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return executor;
+    }
+
+    /**
+     * Parses a single file with a pooled builder.
+     */
+    private static class ParseTask implements Callable<XMLParseResult> {
+
+        /**
+         * File to parse.
+         */
+        private final File xmlFile;
+
+        /**
+         * Position of the file in the collection being read.
+         */
+        private final int fileIndex;
+
+        /**
+         * Creates parsing task.
+         *
+         * @param xmlFile
+         *      File to parse
+         * @param fileIndex
+         *      Position of the file in the collection being read
+         */
+        ParseTask(File xmlFile, int fileIndex) {
+
+            this.xmlFile = xmlFile;
+            this.fileIndex = fileIndex;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public XMLParseResult call() {
+
+            if (xmlFile == null || !xmlFile.isFile())
+                return new XMLParseResult(xmlFile, fileIndex, null, new FileNotFoundException(String.valueOf(xmlFile)));
+
+            DocumentBuilderPool pool = XMLHelper.getDocumentBuilderPool();
+            DocumentBuilder db = pool.borrow();
+            if (db == null)
+                return new XMLParseResult(xmlFile, fileIndex, null, new IllegalStateException("Document builder is not available"));
+
+            InputStream inputStream = null;
+            try {
+
+                // Looking for valid cached document
+                XMLDocumentCache cache = XMLHelper.getDocumentCache();
+                long lastModified = 0;
+                long length = 0;
+                if (cache != null) {
+
+                    Document cachedDocument = cache.get(xmlFile);
+                    if (cachedDocument != null)
+                        return new XMLParseResult(xmlFile, fileIndex, cachedDocument, null);
+
+                    lastModified = xmlFile.lastModified();
+                    length = xmlFile.length();
+                }
+
+                inputStream = new FileInputStream(xmlFile);
+                InputSource inputSource = new InputSource(XMLStreamingReader.decompressIfGZipped(inputStream));
+                inputSource.setSystemId(xmlFile.toURI().toString());
+                Document xmlDocument = db.parse(inputSource);
+
+                // Caching parsed document and returning its clone
+                if (cache != null && xmlDocument != null) {
+
+                    cache.put(xmlFile, xmlDocument, lastModified, length);
+                    xmlDocument = (Document)xmlDocument.cloneNode(true);
+                }
+
+                return new XMLParseResult(xmlFile, fileIndex, xmlDocument, null);
+            }
+            catch (Exception ex) {
+
+                return new XMLParseResult(xmlFile, fileIndex, null, ex);
+            }
+            finally {
+
+                try {
+
+                    if (inputStream != null)
+                        inputStream.close();
+                }
+                catch (IOException ex) {
+
+                }
+
+                pool.release(db);
+            }
+        }
+    }
+}
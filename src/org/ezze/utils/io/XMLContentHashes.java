@@ -0,0 +1,250 @@
+package org.ezze.utils.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps digests of XML files' contents, so a save of unchanged
+ * document's content can be detected without rewriting the file.
+ *
+ * A stored digest is valid while file's modification time and length stay the same.
+ * A digest read from the file is trusted only if it has been computed later than
+ * the modification time's granularity after the modification, otherwise file's contents
+ * are read and digested again, so a file rewritten by another process with the same length
+ * within a single modification time's tick is never mistaken for an unchanged one.
+ * Digests of contents written by {@link XMLHelper} itself are trusted right away,
+ * so bursts of saves don't read written files back.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+class XMLContentHashes {
+
+    /**
+     * Maximal count of files digests are kept for.
+     */
+    private static final int CAPACITY = 256;
+
+    /**
+     * The coarsest modification time's granularity of supported file systems (FAT) in milliseconds.
+     */
+    private static final long MODIFICATION_TIME_GRANULARITY = 2000;
+
+    /**
+     * Digest algorithm.
+     */
+    private static final String ALGORITHM = "SHA-1";
+
+    /**
+     * Stored digests keyed by files' absolute paths in access order.
+     */
+    private final LinkedHashMap<String, FileDigest> fileDigests = new LinkedHashMap<String, FileDigest>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FileDigest> eldest) {
+
+            return size() > CAPACITY;
+        }
+    };
+
+    /**
+     * Checks whether file's modification time is older than the modification time's granularity,
+     * so any further modification of the file is guaranteed to change it.
+     *
+     * @param lastModified
+     *      File's modification time
+     * @return
+     *      {@code true} if modification time is settled, {@code false} otherwise
+     */
+    static boolean isModificationSettled(long lastModified) {
+
+        return System.currentTimeMillis() - lastModified > MODIFICATION_TIME_GRANULARITY;
+    }
+
+    /**
+     * Checks whether file's contents match content of specified length and digest.
+     *
+     * @param xmlFile
+     *      XML file
+     * @param contentLength
+     *      Length of content
+     * @param contentDigest
+     *      Digest of content
+     * @return
+     *      {@code true} if file's contents are the same, {@code false} otherwise
+     */
+    boolean isUnchanged(File xmlFile, long contentLength, byte[] contentDigest) {
+
+        if (contentDigest == null || !xmlFile.isFile())
+            return false;
+
+        long lastModified = xmlFile.lastModified();
+        long length = xmlFile.length();
+        if (length != contentLength)
+            return false;
+
+        String filePath = xmlFile.getAbsolutePath();
+        FileDigest fileDigest;
+        synchronized (fileDigests) {
+
+            fileDigest = fileDigests.get(filePath);
+        }
+
+        if (fileDigest == null || !fileDigest.isStable || fileDigest.lastModified != lastModified || fileDigest.length != length) {
+
+            // Digesting current file's contents
+            byte[] digest = readDigest(xmlFile);
+            if (digest == null)
+                return false;
+
+            fileDigest = new FileDigest(digest, lastModified, length, isModificationSettled(lastModified));
+            synchronized (fileDigests) {
+
+                fileDigests.put(filePath, fileDigest);
+            }
+        }
+
+        return Arrays.equals(fileDigest.digest, contentDigest);
+    }
+
+    /**
+     * Stores digest of file's contents just written by {@link XMLHelper}, the digest is trusted
+     * until file's modification time or length changes.
+     *
+     * @param xmlFile
+     *      XML file
+     * @param contentDigest
+     *      Digest of written content
+     */
+    void update(File xmlFile, byte[] contentDigest) {
+
+        if (contentDigest == null)
+            return;
+
+        FileDigest fileDigest = new FileDigest(contentDigest, xmlFile.lastModified(), xmlFile.length(), true);
+        synchronized (fileDigests) {
+
+            fileDigests.put(xmlFile.getAbsolutePath(), fileDigest);
+        }
+    }
+
+    /**
+     * Reads and digests file's contents.
+     *
+     * @param xmlFile
+     *      XML file
+     * @return
+     *      Digest of file's contents or {@code null} if file cannot be read
+     */
+    private static byte[] readDigest(File xmlFile) {
+
+        MessageDigest messageDigest = createMessageDigest();
+        if (messageDigest == null)
+            return null;
+
+        FileInputStream inputStream = null;
+        try {
+
+            inputStream = new FileInputStream(xmlFile);
+            FileChannel fileChannel = inputStream.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(65536);
+            while (fileChannel.read(buffer) >= 0) {
+
+                buffer.flip();
+                messageDigest.update(buffer);
+                buffer.clear();
+            }
+
+            return messageDigest.digest();
+        }
+        catch (IOException ex) {
+
+        }
+        finally {
+
+            try {
+
+                if (inputStream != null)
+                    inputStream.close();
+            }
+            catch (IOException ex) {
+
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates digest of {@link #ALGORITHM}.
+     *
+     * @return
+     *      Message digest or {@code null} if algorithm is unavailable
+     */
+    static MessageDigest createMessageDigest() {
+
+        try {
+
+            return MessageDigest.getInstance(ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException ex) {
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Digest of file's contents.
+     */
+    private static class FileDigest {
+
+        /**
+         * Contents' digest.
+         */
+        final byte[] digest;
+
+        /**
+         * File's modification time when digest has been computed.
+         */
+        final long lastModified;
+
+        /**
+         * File's length when digest has been computed.
+         */
+        final long length;
+
+        /**
+         * Shows whether digest may be trusted while file's modification time and length stay the same.
+         */
+        final boolean isStable;
+
+        /**
+         * Creates file's digest.
+         *
+         * @param digest
+         *      Contents' digest
+         * @param lastModified
+         *      File's modification time
+         * @param length
+         *      File's length
+         * @param isStable
+         *      Shows whether digest may be trusted while file's modification time and length stay the same
+         */
+        FileDigest(byte[] digest, long lastModified, long length, boolean isStable) {
+
+            this.digest = digest;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.isStable = isStable;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package org.ezze.utils.io;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.w3c.dom.Document;
+
+/**
+ * LRU cache of parsed XML documents keyed by files' absolute paths.
+ *
+ * Cached document is valid while its file's modification time and length
+ * stay the same. Documents of files modified within the modification time's granularity
+ * are not cached, since a further modification might keep the same modification time,
+ * and {@link XMLHelper} invalidates documents of files it writes.
+ * Cached documents are never handed out: each hit returns
+ * a deep clone, so callers may modify returned documents freely.
+ * Cache's capacity is measured in bytes of source files which approximates
+ * memory consumed by parsed documents.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see XMLHelper#setDocumentCache(org.ezze.utils.io.XMLDocumentCache)
+ */
+public class XMLDocumentCache {
+
+    /**
+     * Default capacity in bytes of source files.
+     */
+    public static final long DEFAULT_CAPACITY = 16L * 1024 * 1024;
+
+    /**
+     * Maximal total length of cached documents' files.
+     */
+    private final long capacity;
+
+    /**
+     * Cached documents in access order.
+     */
+    private final LinkedHashMap<String, CachedDocument> cachedDocuments = new LinkedHashMap<String, CachedDocument>(16, 0.75f, true);
+
+    /**
+     * Total length of cached documents' files.
+     */
+    private long size = 0;
+
+    /**
+     * Count of cache hits.
+     */
+    private final AtomicLong hitsCount = new AtomicLong();
+
+    /**
+     * Count of cache misses.
+     */
+    private final AtomicLong missesCount = new AtomicLong();
+
+    /**
+     * Count of evicted documents.
+     */
+    private final AtomicLong evictionsCount = new AtomicLong();
+
+    /**
+     * Creates cache of {@link #DEFAULT_CAPACITY} bytes.
+     */
+    public XMLDocumentCache() {
+
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates cache of specified capacity.
+     *
+     * @param capacity
+     *      Maximal total length of cached documents' files in bytes
+     */
+    public XMLDocumentCache(long capacity) {
+
+        this.capacity = Math.max(0, capacity);
+    }
+
+    /**
+     * Retrieves a clone of cached document of specified file if it's still valid.
+     *
+     * @param xmlFile
+     *      XML file
+     * @return
+     *      Clone of cached document or {@code null} if there is no valid cached document
+     */
+    public Document get(File xmlFile) {
+
+        if (xmlFile == null)
+            return null;
+
+        String key = xmlFile.getAbsolutePath();
+        long lastModified = xmlFile.lastModified();
+        long length = xmlFile.length();
+
+        CachedDocument cachedDocument;
+        synchronized (this) {
+
+            cachedDocument = cachedDocuments.get(key);
+            if (cachedDocument != null && (cachedDocument.lastModified != lastModified || cachedDocument.length != length)) {
+
+                // Removing outdated document
+                cachedDocuments.remove(key);
+                size -= cachedDocument.length;
+                cachedDocument = null;
+            }
+        }
+
+        if (cachedDocument == null) {
+
+            missesCount.incrementAndGet();
+            return null;
+        }
+
+        hitsCount.incrementAndGet();
+
+        // Cached documents might be cloned by several threads simultaneously
+        synchronized (cachedDocument) {
+
+            return (Document)cachedDocument.document.cloneNode(true);
+        }
+    }
+
+    /**
+     * Caches parsed document of specified file. The document must not be modified afterwards.
+     * Documents of just modified files are not cached.
+     *
+     * @param xmlFile
+     *      XML file
+     * @param xmlDocument
+     *      Parsed XML document
+     * @param lastModified
+     *      File's modification time before it has been parsed
+     * @param length
+     *      File's length before it has been parsed
+     */
+    public void put(File xmlFile, Document xmlDocument, long lastModified, long length) {
+
+        if (xmlFile == null || xmlDocument == null || lastModified == 0 || !XMLContentHashes.isModificationSettled(lastModified))
+            return;
+
+        // Documents larger than the whole cache are not cached
+        if (length > capacity)
+            return;
+
+        String key = xmlFile.getAbsolutePath();
+        synchronized (this) {
+
+            CachedDocument previousDocument = cachedDocuments.put(key, new CachedDocument(xmlDocument, lastModified, length));
+            if (previousDocument != null)
+                size -= previousDocument.length;
+            size += length;
+
+            // Evicting least recently used documents
+            Iterator<Map.Entry<String, CachedDocument>> cachedDocumentsIterator = cachedDocuments.entrySet().iterator();
+            while (size > capacity && cachedDocumentsIterator.hasNext()) {
+
+                Map.Entry<String, CachedDocument> eldestEntry = cachedDocumentsIterator.next();
+                if (eldestEntry.getKey().equals(key))
+                    continue;
+
+                size -= eldestEntry.getValue().length;
+                cachedDocumentsIterator.remove();
+                evictionsCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes cached document of specified file.
+     *
+     * @param xmlFile
+     *      XML file
+     */
+    public synchronized void invalidate(File xmlFile) {
+
+        if (xmlFile == null)
+            return;
+
+        CachedDocument cachedDocument = cachedDocuments.remove(xmlFile.getAbsolutePath());
+        if (cachedDocument != null)
+            size -= cachedDocument.length;
+    }
+
+    /**
+     * Removes all cached documents.
+     */
+    public synchronized void clear() {
+
+        cachedDocuments.clear();
+        size = 0;
+    }
+
+    /**
+     * Retrieves count of cached documents.
+     *
+     * @return
+     *      Count of cached documents
+     */
+    public synchronized int getCount() {
+
+        return cachedDocuments.size();
+    }
+
+    /**
+     * Retrieves total length of cached documents' files.
+     *
+     * @return
+     *      Cache's size in bytes
+     */
+    public synchronized long getSize() {
+
+        return size;
+    }
+
+    /**
+     * Retrieves cache's capacity.
+     *
+     * @return
+     *      Maximal total length of cached documents' files in bytes
+     */
+    public long getCapacity() {
+
+        return capacity;
+    }
+
+    /**
+     * Retrieves count of cache hits.
+     *
+     * @return
+     *      Count of hits
+     */
+    public long getHitsCount() {
+
+        return hitsCount.get();
+    }
+
+    /**
+     * Retrieves count of cache misses.
+     *
+     * @return
+     *      Count of misses
+     */
+    public long getMissesCount() {
+
+        return missesCount.get();
+    }
+
+    /**
+     * Retrieves count of documents evicted to keep cache's size within its capacity.
+     *
+     * @return
+     *      Count of evictions
+     */
+    public long getEvictionsCount() {
+
+        return evictionsCount.get();
+    }
+
+    /**
+     * Keeps cached document and its file's attributes.
+     */
+    private static class CachedDocument {
+
+        /**
+         * Parsed XML document.
+         */
+        final Document document;
+
+        /**
+         * File's modification time.
+         */
+        final long lastModified;
+
+        /**
+         * File's length.
+         */
+        final long length;
+
+        /**
+         * Creates cached document.
+         *
+         * @param document
+         *      Parsed XML document
+         * @param lastModified
+         *      File's modification time
+         * @param length
+         *      File's length
+         */
+        CachedDocument(Document document, long lastModified, long length) {
+
+            this.document = document;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.ezze.utils.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.events.Event;
+import org.w3c.dom.events.EventListener;
+import org.w3c.dom.events.EventTarget;
+
+/**
+ * Tracks modifications of DOM documents with mutation events, so indices
+ * built over a document can check whether they are still valid in O(1).
+ *
+ * Tracking is started explicitly by {@link #startTracking(org.w3c.dom.Document)} and lasts
+ * until {@link #stopTracking(org.w3c.dom.Document)} is called, so reading a document
+ * never modifies it. Versions are taken from a sequence shared by all documents,
+ * so a version is never repeated when tracking is restarted. Documents which aren't
+ * tracked or don't support mutation events are reported as untracked, indices over them
+ * must be rebuilt on each use. Document's user data is accessed while holding its lock.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+class XMLDocumentVersion {
+
+    /**
+     * Version of documents which modifications cannot be tracked.
+     */
+    static final long UNTRACKED = -1;
+
+    /**
+     * Key of document's user data keeping its modifications counter.
+     */
+    private static final String USER_DATA_KEY = XMLDocumentVersion.class.getName();
+
+    /**
+     * Mutation events changing document's structure or attributes.
+     */
+    private static final String[] MUTATION_EVENT_TYPES = { "DOMNodeInserted", "DOMNodeRemoved", "DOMAttrModified" };
+
+    /**
+     * Sequence of versions shared by all tracked documents.
+     */
+    private static final AtomicLong versionsSequence = new AtomicLong();
+
+    /**
+     * Retrieves current version of specified document.
+     *
+     * @param xmlDocument
+     *      XML document
+     * @return
+     *      Document's version or {@link #UNTRACKED} if document's modifications are not tracked
+     */
+    static long getVersion(Document xmlDocument) {
+
+        if (xmlDocument == null)
+            return UNTRACKED;
+
+        synchronized (xmlDocument) {
+
+            Object userData = xmlDocument.getUserData(USER_DATA_KEY);
+            return userData instanceof ModificationsCounter ? ((ModificationsCounter)userData).get() : UNTRACKED;
+        }
+    }
+
+    /**
+     * Starts tracking modifications of specified document installing its mutation event listeners.
+     *
+     * @param xmlDocument
+     *      XML document
+     * @return
+     *      {@code true} if document's modifications are tracked, {@code false} if document
+     *      doesn't support mutation events
+     */
+    static boolean startTracking(Document xmlDocument) {
+
+        if (!(xmlDocument instanceof EventTarget))
+            return false;
+
+        synchronized (xmlDocument) {
+
+            if (xmlDocument.getUserData(USER_DATA_KEY) instanceof ModificationsCounter)
+                return true;
+
+            ModificationsCounter modificationsCounter = new ModificationsCounter();
+            try {
+
+                for (String eventType : MUTATION_EVENT_TYPES)
+                    ((EventTarget)xmlDocument).addEventListener(eventType, modificationsCounter, true);
+            }
+            catch (RuntimeException ex) {
+
+                for (String eventType : MUTATION_EVENT_TYPES)
+                    ((EventTarget)xmlDocument).removeEventListener(eventType, modificationsCounter, true);
+                return false;
+            }
+
+            xmlDocument.setUserData(USER_DATA_KEY, modificationsCounter, null);
+            return true;
+        }
+    }
+
+    /**
+     * Stops tracking modifications of specified document removing its mutation event listeners.
+     *
+     * @param xmlDocument
+     *      XML document
+     */
+    static void stopTracking(Document xmlDocument) {
+
+        if (xmlDocument == null)
+            return;
+
+        synchronized (xmlDocument) {
+
+            Object userData = xmlDocument.getUserData(USER_DATA_KEY);
+            if (!(userData instanceof ModificationsCounter))
+                return;
+
+            for (String eventType : MUTATION_EVENT_TYPES)
+                ((EventTarget)xmlDocument).removeEventListener(eventType, (ModificationsCounter)userData, true);
+            xmlDocument.setUserData(USER_DATA_KEY, null, null);
+        }
+    }
+
+    /**
+     * Checks whether specified node belongs to its owner document's tree,
+     * modifications of detached nodes are not reported by mutation events.
+     *
+     * @param node
+     *      DOM node
+     * @return
+     *      {@code true} if node is attached to document's tree, {@code false} otherwise
+     */
+    static boolean isAttached(Node node) {
+
+        Node ancestorNode = node;
+        while (ancestorNode != null) {
+
+            if (ancestorNode.getNodeType() == Node.DOCUMENT_NODE)
+                return true;
+            ancestorNode = ancestorNode.getParentNode();
+        }
+
+        return false;
+    }
+
+    /**
+     * Counts document's modifications.
+     */
+    private static class ModificationsCounter extends AtomicLong implements EventListener {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates counter starting with the next version of the sequence.
+         */
+        ModificationsCounter() {
+
+            super(versionsSequence.incrementAndGet());
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void handleEvent(Event event) {
+
+            set(versionsSequence.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package org.ezze.utils.io;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Represents direct child elements of a DOM element collected once
+ * and providing indexed access in O(1).
+ *
+ * Views of documents indexed by {@link XMLHelper#indexDocument(org.w3c.dom.Document)}
+ * are cached by their elements and stay valid until element's document is modified,
+ * {@link #of(org.w3c.dom.Element)} rebuilds outdated views automatically. Views of
+ * other documents are built on each call and never modify the document, so such
+ * documents can be read by concurrent threads. Child elements with a specific
+ * tag name are grouped on the first lookup by name.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see XMLHelper#getChildElements(org.w3c.dom.Element)
+ */
+public class XMLElementChildren implements Iterable<Element> {
+
+    /**
+     * Key of element's user data keeping cached view.
+     */
+    private static final String USER_DATA_KEY = XMLElementChildren.class.getName();
+
+    /**
+     * View of an element without children.
+     */
+    private static final XMLElementChildren EMPTY = new XMLElementChildren(null, new Element[0], XMLDocumentVersion.UNTRACKED);
+
+    /**
+     * Element the view belongs to.
+     */
+    private final Element parentElement;
+
+    /**
+     * Direct child elements in document order.
+     */
+    private final Element[] childElements;
+
+    /**
+     * Document's version the view has been built at.
+     */
+    private final long version;
+
+    /**
+     * Child elements grouped by tag name, built on the first lookup by name.
+     */
+    private volatile HashMap<String, XMLElementChildren> namedChildren = null;
+
+    /**
+     * Creates view of child elements.
+     *
+     * @param parentElement
+     *      Element the view belongs to
+     * @param childElements
+     *      Direct child elements
+     * @param version
+     *      Document's version the view has been built at
+     */
+    XMLElementChildren(Element parentElement, Element[] childElements, long version) {
+
+        this.parentElement = parentElement;
+        this.childElements = childElements;
+        this.version = version;
+    }
+
+    /**
+     * Retrieves view of direct child elements of specified element reusing cached one
+     * if the document is indexed and hasn't been modified since the view was built.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @return
+     *      View of child elements (empty if element is not specified)
+     */
+    public static XMLElementChildren of(Element xmlElement) {
+
+        if (xmlElement == null)
+            return EMPTY;
+
+        // Only views of attached elements can be invalidated by document's modifications
+        Document xmlDocument = xmlElement.getOwnerDocument();
+        long version = XMLDocumentVersion.getVersion(xmlDocument);
+        if (version == XMLDocumentVersion.UNTRACKED || !XMLDocumentVersion.isAttached(xmlElement))
+            return collect(xmlElement, XMLDocumentVersion.UNTRACKED);
+
+        synchronized (xmlDocument) {
+
+            Object userData = xmlElement.getUserData(USER_DATA_KEY);
+            if (userData instanceof XMLElementChildren && ((XMLElementChildren)userData).version == version)
+                return (XMLElementChildren)userData;
+        }
+
+        XMLElementChildren elementChildren = collect(xmlElement, version);
+        synchronized (xmlDocument) {
+
+            xmlElement.setUserData(USER_DATA_KEY, elementChildren, null);
+        }
+
+        return elementChildren;
+    }
+
+    /**
+     * Collects direct child elements of specified element.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param version
+     *      Document's version
+     * @return
+     *      View of child elements
+     */
+    private static XMLElementChildren collect(Element xmlElement, long version) {
+
+        int childElementsCount = 0;
+        for (Node childNode = xmlElement.getFirstChild(); childNode != null; childNode = childNode.getNextSibling()) {
+
+            if (childNode.getNodeType() == Node.ELEMENT_NODE)
+                childElementsCount++;
+        }
+
+        Element[] childElements = new Element[childElementsCount];
+        int childElementIndex = 0;
+        for (Node childNode = xmlElement.getFirstChild(); childNode != null; childNode = childNode.getNextSibling()) {
+
+            if (childNode.getNodeType() == Node.ELEMENT_NODE)
+                childElements[childElementIndex++] = (Element)childNode;
+        }
+
+        return new XMLElementChildren(xmlElement, childElements, version);
+    }
+
+    /**
+     * Retrieves element the view belongs to.
+     *
+     * @return
+     *      Parent element or {@code null} for an empty view of unspecified element
+     */
+    public Element getParentElement() {
+
+        return parentElement;
+    }
+
+    /**
+     * Retrieves count of child elements.
+     *
+     * @return
+     *      Count of child elements
+     */
+    public int size() {
+
+        return childElements.length;
+    }
+
+    /**
+     * Checks whether there are no child elements.
+     *
+     * @return
+     *      {@code true} if element has no child elements, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+
+        return childElements.length == 0;
+    }
+
+    /**
+     * Retrieves child element with specified index.
+     *
+     * @param childElementIndex
+     *      Index of child element
+     * @return
+     *      Child element or {@code null} if index is out of range
+     */
+    public Element get(int childElementIndex) {
+
+        if (childElementIndex < 0 || childElementIndex >= childElements.length)
+            return null;
+
+        return childElements[childElementIndex];
+    }
+
+    /**
+     * Retrieves child elements with specified tag name.
+     *
+     * @param childElementName
+     *      Tag name of child elements
+     * @return
+     *      View of child elements with specified tag name (empty if there are no such elements)
+     */
+    public XMLElementChildren getNamed(String childElementName) {
+
+        if (childElementName == null || childElements.length == 0)
+            return EMPTY;
+
+        // Views which aren't cached are filtered by the single name instead of grouping
+        if (version == XMLDocumentVersion.UNTRACKED) {
+
+            int sameNamedElementsCount = 0;
+            for (Element childElement : childElements) {
+
+                if (childElementName.equals(childElement.getTagName()))
+                    sameNamedElementsCount++;
+            }
+
+            if (sameNamedElementsCount == 0)
+                return EMPTY;
+
+            Element[] sameNamedElements = new Element[sameNamedElementsCount];
+            int sameNamedElementIndex = 0;
+            for (Element childElement : childElements) {
+
+                if (childElementName.equals(childElement.getTagName()))
+                    sameNamedElements[sameNamedElementIndex++] = childElement;
+            }
+
+            return new XMLElementChildren(parentElement, sameNamedElements, version);
+        }
+
+        HashMap<String, XMLElementChildren> namedChildren = this.namedChildren;
+        if (namedChildren == null) {
+
+            // Grouping child elements by tag name
+            HashMap<String, ArrayList<Element>> groupedChildElements = new HashMap<String, ArrayList<Element>>();
+            for (Element childElement : childElements) {
+
+                ArrayList<Element> sameNamedElements = groupedChildElements.get(childElement.getTagName());
+                if (sameNamedElements == null) {
+
+                    sameNamedElements = new ArrayList<Element>();
+                    groupedChildElements.put(childElement.getTagName(), sameNamedElements);
+                }
+                sameNamedElements.add(childElement);
+            }
+
+            namedChildren = new HashMap<String, XMLElementChildren>(groupedChildElements.size() * 2);
+            for (String groupName : groupedChildElements.keySet()) {
+
+                ArrayList<Element> sameNamedElements = groupedChildElements.get(groupName);
+                namedChildren.put(groupName, new XMLElementChildren(parentElement,
+                        sameNamedElements.toArray(new Element[sameNamedElements.size()]), version));
+            }
+
+            this.namedChildren = namedChildren;
+        }
+
+        XMLElementChildren sameNamedChildren = namedChildren.get(childElementName);
+        return sameNamedChildren != null ? sameNamedChildren : EMPTY;
+    }
+
+    /**
+     * Checks whether element's document hasn't been modified since the view was built.
+     *
+     * @return
+     *      {@code true} if the view is valid, {@code false} otherwise
+     */
+    public boolean isValid() {
+
+        if (parentElement == null)
+            return true;
+
+        if (version == XMLDocumentVersion.UNTRACKED)
+            return false;
+
+        return XMLDocumentVersion.getVersion(parentElement.getOwnerDocument()) == version;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Iterator<Element> iterator() {
+
+        return new Iterator<Element>() {
+
+            /**
+             * Index of the next child element.
+             */
+            private int nextIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+
+                return nextIndex < childElements.length;
+            }
+
+            @Override
+            public Element next() {
+
+                if (nextIndex >= childElements.length)
+                    throw new NoSuchElementException();
+
+                return childElements[nextIndex++];
+            }
+
+            @Override
+            public void remove() {
+
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package org.ezze.utils.io;
+
+/**
+ * Receives elements matched by {@link XMLStreamingReader}.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public interface XMLElementHandler {
+
+    /**
+     * Handles matched element once its end tag has been read.
+     *
+     * @param element
+     *      Matched element with its attributes and text content
+     */
+    void handleElement(XMLStreamElement element);
+}
@@ -0,0 +1,21 @@
+package org.ezze.utils.io;
+
+/**
+ * Element handler which is also notified when start tag of a matched element is read,
+ * so it can drop state left by an element which hasn't been ended (for example, when
+ * reading of a malformed document has failed).
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see XMLStreamingReader
+ */
+interface XMLElementStartHandler extends XMLElementHandler {
+
+    /**
+     * Handles start tag of matched element before its content is read.
+     *
+     * @param path
+     *      Element's absolute path
+     */
+    void handleElementStart(String path);
+}
@@ -0,0 +1,260 @@
+package org.ezze.utils.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+/**
+ * Resolves external DTDs and entities from local files and keeps
+ * their contents in memory, so each entity is read only once.
+ *
+ * Entities are registered by public or system identifiers. Unknown entities
+ * are resolved to empty content unless remote loading is enabled, so documents
+ * referencing public DTDs are parsed without network access.
+ * The catalog is thread-safe and may be shared by any count of parsers.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see DocumentBuilderPool#setEntityResolver(org.xml.sax.EntityResolver)
+ * @see XMLStreamingReader#setXMLResolver(javax.xml.stream.XMLResolver)
+ * @see XMLProjectionReader#setEntityResolver(org.xml.sax.EntityResolver)
+ */
+public class XMLEntityCatalog implements EntityResolver, XMLResolver {
+
+    /**
+     * Empty entity content.
+     */
+    private static final byte[] EMPTY_CONTENT = new byte[0];
+
+    /**
+     * Local sources of registered entities keyed by public or system identifiers.
+     */
+    private final ConcurrentHashMap<String, String> localSources = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Contents of resolved entities keyed by public or system identifiers.
+     */
+    private final ConcurrentHashMap<String, byte[]> cachedContents = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * Shows whether unknown entities are loaded from their system identifiers.
+     */
+    private volatile boolean isRemoteLoading = false;
+
+    /**
+     * Count of entities resolved from memory.
+     */
+    private final AtomicLong hitsCount = new AtomicLong();
+
+    /**
+     * Count of entities read from their sources.
+     */
+    private final AtomicLong missesCount = new AtomicLong();
+
+    /**
+     * Registers local file of an entity.
+     *
+     * @param identifier
+     *      Entity's public or system identifier
+     * @param entityFile
+     *      Local file keeping entity's content
+     * @return
+     *      {@code true} if entity has been registered, {@code false} otherwise
+     */
+    public boolean addEntity(String identifier, File entityFile) {
+
+        if (identifier == null || entityFile == null)
+            return false;
+
+        localSources.put(identifier, entityFile.toURI().toString());
+        cachedContents.remove(identifier);
+        return true;
+    }
+
+    /**
+     * Registers content of an entity.
+     *
+     * @param identifier
+     *      Entity's public or system identifier
+     * @param content
+     *      Entity's content
+     * @return
+     *      {@code true} if entity has been registered, {@code false} otherwise
+     */
+    public boolean addEntity(String identifier, byte[] content) {
+
+        if (identifier == null || content == null)
+            return false;
+
+        cachedContents.put(identifier, content.clone());
+        return true;
+    }
+
+    /**
+     * Sets whether unknown entities are loaded from their system identifiers
+     * ({@code false} by default, unknown entities are resolved to empty content).
+     *
+     * @param isRemoteLoading
+     *      Remote loading flag
+     */
+    public void setRemoteLoading(boolean isRemoteLoading) {
+
+        this.isRemoteLoading = isRemoteLoading;
+    }
+
+    /**
+     * Checks whether unknown entities are loaded from their system identifiers.
+     *
+     * @return
+     *      {@code true} if remote loading is enabled, {@code false} otherwise
+     */
+    public boolean isRemoteLoading() {
+
+        return isRemoteLoading;
+    }
+
+    /**
+     * Removes cached contents of entities, registered local files are read again on demand.
+     */
+    public void clearCache() {
+
+        cachedContents.clear();
+    }
+
+    /**
+     * Retrieves count of entities resolved from memory.
+     *
+     * @return
+     *      Count of hits
+     */
+    public long getHitsCount() {
+
+        return hitsCount.get();
+    }
+
+    /**
+     * Retrieves count of entities read from their sources.
+     *
+     * @return
+     *      Count of misses
+     */
+    public long getMissesCount() {
+
+        return missesCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputSource resolveEntity(String publicId, String systemId) {
+
+        InputSource inputSource = new InputSource(new ByteArrayInputStream(getContent(publicId, systemId)));
+        inputSource.setPublicId(publicId);
+        inputSource.setSystemId(systemId);
+        return inputSource;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) throws XMLStreamException {
+
+        return new ByteArrayInputStream(getContent(publicID, systemID));
+    }
+
+    /**
+     * Retrieves content of an entity reading it on the first request.
+     *
+     * @param publicId
+     *      Entity's public identifier or {@code null}
+     * @param systemId
+     *      Entity's system identifier or {@code null}
+     * @return
+     *      Entity's content (empty if entity is unknown or cannot be read)
+     */
+    private byte[] getContent(String publicId, String systemId) {
+
+        // Public identifiers take precedence over system ones
+        String[] identifiers = { publicId, systemId };
+        for (String identifier : identifiers) {
+
+            if (identifier == null)
+                continue;
+
+            byte[] content = cachedContents.get(identifier);
+            if (content != null) {
+
+                hitsCount.incrementAndGet();
+                return content;
+            }
+        }
+
+        for (String identifier : identifiers) {
+
+            if (identifier == null)
+                continue;
+
+            String localSource = localSources.get(identifier);
+            if (localSource != null)
+                return readContent(identifier, localSource);
+        }
+
+        if (isRemoteLoading && systemId != null)
+            return readContent(systemId, systemId);
+
+        return EMPTY_CONTENT;
+    }
+
+    /**
+     * Reads entity's content and caches it.
+     *
+     * @param identifier
+     *      Identifier to cache content by
+     * @param source
+     *      URL of entity's content
+     * @return
+     *      Entity's content (empty if it cannot be read)
+     */
+    private byte[] readContent(String identifier, String source) {
+
+        missesCount.incrementAndGet();
+
+        InputStream inputStream = null;
+        try {
+
+            inputStream = new URL(source).openStream();
+            ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) >= 0)
+                contentStream.write(buffer, 0, bytesRead);
+
+            byte[] content = contentStream.toByteArray();
+            cachedContents.put(identifier, content);
+            return content;
+        }
+        catch (IOException ex) {
+
+        }
+        finally {
+
+            try {
+
+                if (inputStream != null)
+                    inputStream.close();
+            }
+            catch (IOException ex) {
+
+            }
+        }
+
+        return EMPTY_CONTENT;
+    }
+}
@@ -0,0 +1,521 @@
+package org.ezze.utils.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import org.w3c.dom.Attr;
+import org.w3c.dom.CharacterData;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Immutable copy of DOM document's elements, attributes and text
+ * which is safe to read from any count of threads without synchronization.
+ *
+ * Elements are numbered in breadth-first order, so children of each element
+ * are kept contiguously and accessed by index in constant time. Element names,
+ * attributes and text are kept in arrays with repeated strings shared.
+ * Comments and processing instructions are not kept. Elements are accessed through
+ * lightweight {@link XMLFrozenElement} instances offering {@link XMLHelper}'s getters.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see XMLHelper#readFrozenXMLDocument(java.lang.String)
+ */
+public final class XMLFrozenDocument {
+
+    /**
+     * Name matching elements of any name.
+     */
+    private static final String ANY_NAME = "*";
+
+    /**
+     * Elements' names.
+     */
+    private final String[] names;
+
+    /**
+     * Indices of elements' parents, {@code -1} for the root element.
+     */
+    private final int[] parentIndices;
+
+    /**
+     * Indices of elements' first children.
+     */
+    private final int[] childrenStarts;
+
+    /**
+     * Counts of elements' children.
+     */
+    private final int[] childrenCounts;
+
+    /**
+     * Starts of elements' attributes in attributes' arrays, the last value is the total count.
+     */
+    private final int[] attributesStarts;
+
+    /**
+     * Attributes' names.
+     */
+    private final String[] attributeNames;
+
+    /**
+     * Attributes' values.
+     */
+    private final String[] attributeValues;
+
+    /**
+     * Starts of elements' text segments, the last value is the total count.
+     */
+    private final int[] textsStarts;
+
+    /**
+     * Text segments, data of adjacent text nodes.
+     */
+    private final String[] texts;
+
+    /**
+     * Counts of child elements preceding text segments.
+     */
+    private final int[] textPositions;
+
+    /**
+     * Creates frozen document from DOM document's elements.
+     *
+     * @param rootElement
+     *      Document's root element
+     */
+    private XMLFrozenDocument(Element rootElement) {
+
+        // Numbering elements in breadth-first order
+        ArrayList<Element> elements = new ArrayList<Element>();
+        elements.add(rootElement);
+        for (int elementIndex = 0; elementIndex < elements.size(); elementIndex++) {
+
+            for (Node childNode = elements.get(elementIndex).getFirstChild(); childNode != null; childNode = childNode.getNextSibling()) {
+
+                if (childNode.getNodeType() == Node.ELEMENT_NODE)
+                    elements.add((Element)childNode);
+            }
+        }
+
+        int elementsCount = elements.size();
+        names = new String[elementsCount];
+        parentIndices = new int[elementsCount];
+        childrenStarts = new int[elementsCount];
+        childrenCounts = new int[elementsCount];
+        attributesStarts = new int[elementsCount + 1];
+        textsStarts = new int[elementsCount + 1];
+
+        HashMap<String, String> sharedStrings = new HashMap<String, String>();
+        ArrayList<String> attributeNamesList = new ArrayList<String>();
+        ArrayList<String> attributeValuesList = new ArrayList<String>();
+        ArrayList<String> textsList = new ArrayList<String>();
+        int[] textPositions = new int[16];
+
+        parentIndices[0] = -1;
+        int nextChildIndex = 1;
+        for (int elementIndex = 0; elementIndex < elementsCount; elementIndex++) {
+
+            Element element = elements.get(elementIndex);
+            names[elementIndex] = share(sharedStrings, element.getTagName());
+
+            attributesStarts[elementIndex] = attributeNamesList.size();
+            NamedNodeMap attributes = element.getAttributes();
+            for (int attributeIndex = 0; attributeIndex < attributes.getLength(); attributeIndex++) {
+
+                Attr attribute = (Attr)attributes.item(attributeIndex);
+                attributeNamesList.add(share(sharedStrings, attribute.getName()));
+                attributeValuesList.add(share(sharedStrings, attribute.getValue()));
+            }
+
+            textsStarts[elementIndex] = textsList.size();
+            childrenStarts[elementIndex] = nextChildIndex;
+            int childrenCount = 0;
+            StringBuilder text = null;
+            for (Node childNode = element.getFirstChild(); childNode != null; childNode = childNode.getNextSibling()) {
+
+                String childText;
+                switch (childNode.getNodeType()) {
+
+                    case Node.ELEMENT_NODE:
+
+                        parentIndices[nextChildIndex++] = elementIndex;
+                        childrenCount++;
+                        continue;
+
+                    case Node.TEXT_NODE:
+                    case Node.CDATA_SECTION_NODE:
+
+                        childText = ((CharacterData)childNode).getData();
+                        break;
+
+                    case Node.ENTITY_REFERENCE_NODE:
+
+                        childText = childNode.getTextContent();
+                        break;
+
+                    default:
+
+                        continue;
+                }
+
+                // Merging adjacent text nodes into a single segment
+                int lastTextIndex = textsList.size() - 1;
+                if (lastTextIndex >= textsStarts[elementIndex] && textPositions[lastTextIndex] == childrenCount) {
+
+                    if (text == null)
+                        text = new StringBuilder(textsList.get(lastTextIndex));
+                    text.append(childText);
+                    textsList.set(lastTextIndex, text.toString());
+                    continue;
+                }
+
+                text = null;
+                if (textsList.size() == textPositions.length)
+                    textPositions = Arrays.copyOf(textPositions, textPositions.length * 2);
+                textPositions[textsList.size()] = childrenCount;
+                textsList.add(share(sharedStrings, childText));
+            }
+
+            childrenCounts[elementIndex] = childrenCount;
+        }
+
+        attributesStarts[elementsCount] = attributeNamesList.size();
+        textsStarts[elementsCount] = textsList.size();
+        attributeNames = attributeNamesList.toArray(new String[attributeNamesList.size()]);
+        attributeValues = attributeValuesList.toArray(new String[attributeValuesList.size()]);
+        texts = textsList.toArray(new String[textsList.size()]);
+        this.textPositions = Arrays.copyOf(textPositions, texts.length);
+    }
+
+    /**
+     * Freezes DOM document. The document is only read, its later changes
+     * don't affect the frozen copy.
+     *
+     * @param xmlDocument
+     *      XML document
+     * @return
+     *      Frozen document or {@code null} if document doesn't have root element
+     */
+    public static XMLFrozenDocument freeze(Document xmlDocument) {
+
+        if (xmlDocument == null || xmlDocument.getDocumentElement() == null)
+            return null;
+
+        return new XMLFrozenDocument(xmlDocument.getDocumentElement());
+    }
+
+    /**
+     * Retrieves root element.
+     *
+     * @return
+     *      Root element
+     */
+    public XMLFrozenElement getDocumentElement() {
+
+        return new XMLFrozenElement(this, 0);
+    }
+
+    /**
+     * Retrieves count of document's elements.
+     *
+     * @return
+     *      Count of elements
+     */
+    public int getElementsCount() {
+
+        return names.length;
+    }
+
+    /**
+     * Shares equal strings.
+     *
+     * @param sharedStrings
+     *      Shared strings
+     * @param string
+     *      String to share
+     * @return
+     *      Shared string equal to specified one
+     */
+    private static String share(HashMap<String, String> sharedStrings, String string) {
+
+        String sharedString = sharedStrings.get(string);
+        if (sharedString == null) {
+
+            sharedStrings.put(string, string);
+            sharedString = string;
+        }
+
+        return sharedString;
+    }
+
+    /**
+     * Retrieves element's name.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @return
+     *      Element's name
+     */
+    String getName(int elementIndex) {
+
+        return names[elementIndex];
+    }
+
+    /**
+     * Retrieves index of element's parent.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @return
+     *      Parent's index or {@code -1} for the root element
+     */
+    int getParentIndex(int elementIndex) {
+
+        return parentIndices[elementIndex];
+    }
+
+    /**
+     * Retrieves index of element's first child.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @return
+     *      Index of the first child
+     */
+    int getChildrenStart(int elementIndex) {
+
+        return childrenStarts[elementIndex];
+    }
+
+    /**
+     * Retrieves count of element's children.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @return
+     *      Count of children
+     */
+    int getChildrenCount(int elementIndex) {
+
+        return childrenCounts[elementIndex];
+    }
+
+    /**
+     * Retrieves element's attribute's value.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      Attribute's value or {@code null} if attribute is not set
+     */
+    String getAttribute(int elementIndex, String attributeName) {
+
+        for (int attributeIndex = attributesStarts[elementIndex]; attributeIndex < attributesStarts[elementIndex + 1]; attributeIndex++) {
+
+            if (attributeNames[attributeIndex].equals(attributeName))
+                return attributeValues[attributeIndex];
+        }
+
+        return null;
+    }
+
+    /**
+     * Retrieves count of element's attributes.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @return
+     *      Count of attributes
+     */
+    int getAttributesCount(int elementIndex) {
+
+        return attributesStarts[elementIndex + 1] - attributesStarts[elementIndex];
+    }
+
+    /**
+     * Retrieves name of element's attribute.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @param attributeIndex
+     *      Attribute's index within element's attributes
+     * @return
+     *      Attribute's name
+     */
+    String getAttributeName(int elementIndex, int attributeIndex) {
+
+        return attributeNames[attributesStarts[elementIndex] + attributeIndex];
+    }
+
+    /**
+     * Retrieves value of element's attribute.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @param attributeIndex
+     *      Attribute's index within element's attributes
+     * @return
+     *      Attribute's value
+     */
+    String getAttributeValue(int elementIndex, int attributeIndex) {
+
+        return attributeValues[attributesStarts[elementIndex] + attributeIndex];
+    }
+
+    /**
+     * Retrieves element's text content the way {@link org.w3c.dom.Node#getTextContent()} does.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @return
+     *      Text content
+     */
+    String getText(int elementIndex) {
+
+        int textsCount = textsStarts[elementIndex + 1] - textsStarts[elementIndex];
+        if (childrenCounts[elementIndex] == 0) {
+
+            // Adjacent text nodes of elements without children are merged into a single segment
+            return textsCount == 0 ? "" : texts[textsStarts[elementIndex]];
+        }
+
+        StringBuilder text = new StringBuilder();
+        appendText(elementIndex, text);
+        return text.toString();
+    }
+
+    /**
+     * Appends text content of element and its descendants in document order.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @param text
+     *      Text content being built
+     */
+    private void appendText(int elementIndex, StringBuilder text) {
+
+        int textIndex = textsStarts[elementIndex];
+        int textsEnd = textsStarts[elementIndex + 1];
+        for (int childPosition = 0; childPosition <= childrenCounts[elementIndex]; childPosition++) {
+
+            while (textIndex < textsEnd && textPositions[textIndex] == childPosition)
+                text.append(texts[textIndex++]);
+
+            if (childPosition < childrenCounts[elementIndex])
+                appendText(childrenStarts[elementIndex] + childPosition, text);
+        }
+    }
+
+    /**
+     * Checks whether element's name matches specified one.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @param elementName
+     *      Element's name or "*" to match any name
+     * @return
+     *      {@code true} if element matches, {@code false} otherwise
+     */
+    boolean isMatching(int elementIndex, String elementName) {
+
+        return elementName.equals(ANY_NAME) || names[elementIndex].equals(elementName);
+    }
+
+    /**
+     * Looks for element's descendant in document order the way
+     * {@link org.w3c.dom.Element#getElementsByTagName(java.lang.String)} does.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @param elementName
+     *      Name of descendant or "*" to match any name
+     * @param attributeName
+     *      Name of attribute descendant must have or {@code null}
+     * @param attributeValue
+     *      Value of attribute descendant must have
+     * @param matchIndex
+     *      Order index of descendant among matching ones
+     * @return
+     *      Index of descendant or {@code -1} if it's not found
+     */
+    int findDescendant(int elementIndex, String elementName, String attributeName, String attributeValue, int matchIndex) {
+
+        if (matchIndex < 0)
+            return -1;
+
+        int descendantIndex = scanDescendants(elementIndex, elementName, attributeName, attributeValue, matchIndex);
+        return descendantIndex >= 0 ? descendantIndex : -1;
+    }
+
+    /**
+     * Counts element's descendants with specified name.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @param elementName
+     *      Name of descendants or "*" to match any name
+     * @return
+     *      Count of descendants
+     */
+    int countDescendants(int elementIndex, String elementName) {
+
+        return -1 - scanDescendants(elementIndex, elementName, null, null, -1);
+    }
+
+    /**
+     * Visits element's descendants in document order until the matching one with specified order index is found.
+     *
+     * @param elementIndex
+     *      Element's index
+     * @param elementName
+     *      Name of descendant or "*" to match any name
+     * @param attributeName
+     *      Name of attribute descendant must have or {@code null}
+     * @param attributeValue
+     *      Value of attribute descendant must have
+     * @param matchIndex
+     *      Order index of descendant among matching ones or {@code -1} to visit all descendants
+     * @return
+     *      Index of descendant or {@code -1 - count} of matching descendants if it's not found
+     */
+    private int scanDescendants(int elementIndex, String elementName, String attributeName, String attributeValue, int matchIndex) {
+
+        int[] pendingElements = new int[16];
+        int pendingCount = 0;
+        int matchesCount = 0;
+
+        // Pushing children in reverse order to visit them in document order
+        for (int childIndex = childrenStarts[elementIndex] + childrenCounts[elementIndex] - 1; childIndex >= childrenStarts[elementIndex]; childIndex--) {
+
+            if (pendingCount == pendingElements.length)
+                pendingElements = Arrays.copyOf(pendingElements, pendingCount * 2);
+            pendingElements[pendingCount++] = childIndex;
+        }
+
+        while (pendingCount > 0) {
+
+            int descendantIndex = pendingElements[--pendingCount];
+            if (isMatching(descendantIndex, elementName) &&
+                    (attributeName == null || attributeValue.equals(getAttribute(descendantIndex, attributeName)))) {
+
+                if (matchesCount++ == matchIndex)
+                    return descendantIndex;
+            }
+
+            for (int childIndex = childrenStarts[descendantIndex] + childrenCounts[descendantIndex] - 1; childIndex >= childrenStarts[descendantIndex]; childIndex--) {
+
+                if (pendingCount == pendingElements.length)
+                    pendingElements = Arrays.copyOf(pendingElements, pendingCount * 2);
+                pendingElements[pendingCount++] = childIndex;
+            }
+        }
+
+        return -1 - matchesCount;
+    }
+}
@@ -0,0 +1,726 @@
+package org.ezze.utils.io;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Element of {@link XMLFrozenDocument} offering the same getters as {@link XMLHelper}
+ * offers for DOM elements. Instances are immutable and safe to share between threads.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public final class XMLFrozenElement {
+
+    /**
+     * Document the element belongs to.
+     */
+    private final XMLFrozenDocument document;
+
+    /**
+     * Element's index in the document.
+     */
+    private final int elementIndex;
+
+    /**
+     * Creates element.
+     *
+     * @param document
+     *      Document the element belongs to
+     * @param elementIndex
+     *      Element's index in the document
+     */
+    XMLFrozenElement(XMLFrozenDocument document, int elementIndex) {
+
+        this.document = document;
+        this.elementIndex = elementIndex;
+    }
+
+    /**
+     * Retrieves document the element belongs to.
+     *
+     * @return
+     *      Frozen document
+     */
+    public XMLFrozenDocument getDocument() {
+
+        return document;
+    }
+
+    /**
+     * Retrieves element's tag name.
+     *
+     * @return
+     *      Tag name
+     */
+    public String getName() {
+
+        return document.getName(elementIndex);
+    }
+
+    /**
+     * Retrieves parent element.
+     *
+     * @return
+     *      Parent element or {@code null} for the root element
+     */
+    public XMLFrozenElement getParentElement() {
+
+        int parentIndex = document.getParentIndex(elementIndex);
+        return parentIndex < 0 ? null : new XMLFrozenElement(document, parentIndex);
+    }
+
+    /**
+     * Retrieves count of direct child elements.
+     *
+     * @return
+     *      Count of child elements
+     */
+    public int getChildElementsCount() {
+
+        return document.getChildrenCount(elementIndex);
+    }
+
+    /**
+     * Retrieves the first direct child element.
+     *
+     * @return
+     *      First child element or {@code null} if element doesn't have children
+     */
+    public XMLFrozenElement getChildElement() {
+
+        return getChildElement(0);
+    }
+
+    /**
+     * Retrieves direct child element with specified index.
+     *
+     * @param childElementIndex
+     *      Index of child element to retrieve
+     * @return
+     *      Child element or {@code null} if no child is found
+     */
+    public XMLFrozenElement getChildElement(int childElementIndex) {
+
+        if (childElementIndex < 0 || childElementIndex >= document.getChildrenCount(elementIndex))
+            return null;
+
+        return new XMLFrozenElement(document, document.getChildrenStart(elementIndex) + childElementIndex);
+    }
+
+    /**
+     * Retrieves direct child elements.
+     *
+     * @return
+     *      Unmodifiable list of child elements
+     */
+    public List<XMLFrozenElement> getChildElements() {
+
+        final int childrenStart = document.getChildrenStart(elementIndex);
+        final int childrenCount = document.getChildrenCount(elementIndex);
+        return new AbstractList<XMLFrozenElement>() {
+
+            @Override
+            public XMLFrozenElement get(int index) {
+
+                if (index < 0 || index >= childrenCount)
+                    throw new IndexOutOfBoundsException(String.valueOf(index));
+
+                return new XMLFrozenElement(document, childrenStart + index);
+            }
+
+            @Override
+            public int size() {
+
+                return childrenCount;
+            }
+        };
+    }
+
+    /**
+     * Retrieves count of descendant elements with specified tag name.
+     *
+     * @param childElementName
+     *      Tag name of descendant elements or "*" to count all of them
+     * @return
+     *      Count of descendants
+     * @see XMLHelper#getChildrenCount(org.w3c.dom.Element, java.lang.String)
+     */
+    public int getChildrenCount(String childElementName) {
+
+        if (childElementName == null)
+            return 0;
+
+        return document.countDescendants(elementIndex, childElementName);
+    }
+
+    /**
+     * Retrieves the first descendant element with specified tag name in document order.
+     *
+     * @param childElementName
+     *      Tag name of descendant element
+     * @return
+     *      Descendant element or {@code null} if it's not found
+     * @see XMLHelper#getChildElement(org.w3c.dom.Element, java.lang.String)
+     */
+    public XMLFrozenElement getChildElement(String childElementName) {
+
+        return getChildElement(childElementName, 0);
+    }
+
+    /**
+     * Retrieves descendant element with specified tag name and order index in document order.
+     *
+     * @param childElementName
+     *      Tag name of descendant element
+     * @param childElementIndex
+     *      Order index of descendant element
+     * @return
+     *      Descendant element or {@code null} if it's not found
+     * @see XMLHelper#getChildElement(org.w3c.dom.Element, java.lang.String, int)
+     */
+    public XMLFrozenElement getChildElement(String childElementName, int childElementIndex) {
+
+        if (childElementName == null)
+            return null;
+
+        return getElement(document.findDescendant(elementIndex, childElementName, null, null, childElementIndex));
+    }
+
+    /**
+     * Retrieves the first descendant element with specified tag name and attribute's value.
+     *
+     * @param childElementName
+     *      Tag name of descendant element
+     * @param attributeName
+     *      Attribute's name
+     * @param attributeValue
+     *      Attribute's value
+     * @return
+     *      Descendant element or {@code null} if it's not found
+     * @see XMLHelper#getChildElementWithAttribute(org.w3c.dom.Element, java.lang.String, java.lang.String, java.lang.String)
+     */
+    public XMLFrozenElement getChildElementWithAttribute(String childElementName, String attributeName, String attributeValue) {
+
+        if (childElementName == null || attributeName == null || attributeValue == null)
+            return null;
+
+        return getElement(document.findDescendant(elementIndex, childElementName, attributeName, attributeValue, 0));
+    }
+
+    /**
+     * Retrieves count of direct child elements with specified tag name.
+     *
+     * @param childElementName
+     *      Tag name of child elements or "*" to count all of them
+     * @return
+     *      Count of child elements
+     */
+    public int getDirectChildrenCount(String childElementName) {
+
+        if (childElementName == null)
+            return 0;
+
+        int childrenCount = 0;
+        int childrenEnd = document.getChildrenStart(elementIndex) + document.getChildrenCount(elementIndex);
+        for (int childIndex = document.getChildrenStart(elementIndex); childIndex < childrenEnd; childIndex++) {
+
+            if (document.isMatching(childIndex, childElementName))
+                childrenCount++;
+        }
+
+        return childrenCount;
+    }
+
+    /**
+     * Retrieves direct child elements with specified tag name.
+     *
+     * @param childElementName
+     *      Tag name of child elements or "*" to retrieve all of them
+     * @return
+     *      Unmodifiable list of child elements
+     */
+    public List<XMLFrozenElement> getDirectChildElements(String childElementName) {
+
+        if (childElementName == null)
+            return Collections.emptyList();
+
+        ArrayList<XMLFrozenElement> childElements = new ArrayList<XMLFrozenElement>();
+        int childrenEnd = document.getChildrenStart(elementIndex) + document.getChildrenCount(elementIndex);
+        for (int childIndex = document.getChildrenStart(elementIndex); childIndex < childrenEnd; childIndex++) {
+
+            if (document.isMatching(childIndex, childElementName))
+                childElements.add(new XMLFrozenElement(document, childIndex));
+        }
+
+        return Collections.unmodifiableList(childElements);
+    }
+
+    /**
+     * Retrieves the first direct child element with specified tag name.
+     *
+     * @param childElementName
+     *      Tag name of child element
+     * @return
+     *      Child element or {@code null} if it's not found
+     */
+    public XMLFrozenElement getDirectChildElement(String childElementName) {
+
+        return getDirectChildElement(childElementName, 0);
+    }
+
+    /**
+     * Retrieves direct child element with specified tag name and order index.
+     *
+     * @param childElementName
+     *      Tag name of child element
+     * @param childElementIndex
+     *      Order index of child element among children with the same name
+     * @return
+     *      Child element or {@code null} if it's not found
+     */
+    public XMLFrozenElement getDirectChildElement(String childElementName, int childElementIndex) {
+
+        if (childElementName == null || childElementIndex < 0)
+            return null;
+
+        int childrenEnd = document.getChildrenStart(elementIndex) + document.getChildrenCount(elementIndex);
+        for (int childIndex = document.getChildrenStart(elementIndex); childIndex < childrenEnd; childIndex++) {
+
+            if (document.isMatching(childIndex, childElementName) && childElementIndex-- == 0)
+                return new XMLFrozenElement(document, childIndex);
+        }
+
+        return null;
+    }
+
+    /**
+     * Retrieves the first direct child element with specified tag name and attribute's value.
+     *
+     * @param childElementName
+     *      Tag name of child element
+     * @param attributeName
+     *      Attribute's name
+     * @param attributeValue
+     *      Attribute's value
+     * @return
+     *      Child element or {@code null} if it's not found
+     */
+    public XMLFrozenElement getDirectChildElementWithAttribute(String childElementName, String attributeName, String attributeValue) {
+
+        if (childElementName == null || attributeName == null || attributeValue == null)
+            return null;
+
+        int childrenEnd = document.getChildrenStart(elementIndex) + document.getChildrenCount(elementIndex);
+        for (int childIndex = document.getChildrenStart(elementIndex); childIndex < childrenEnd; childIndex++) {
+
+            if (document.isMatching(childIndex, childElementName) && attributeValue.equals(document.getAttribute(childIndex, attributeName)))
+                return new XMLFrozenElement(document, childIndex);
+        }
+
+        return null;
+    }
+
+    /**
+     * Retrieves element's text content including text of descendants.
+     *
+     * @return
+     *      Text value
+     * @see XMLHelper#getElementText(org.w3c.dom.Element)
+     */
+    public String getText() {
+
+        return document.getText(elementIndex);
+    }
+
+    /**
+     * Parses element's text value to integer.
+     *
+     * @return
+     *      Parsed integer or {@code null} if text value cannot be parsed
+     */
+    public Integer getInteger() {
+
+        return XMLHelper.parseInteger(getText());
+    }
+
+    /**
+     * Parses element's text value to integer.
+     *
+     * @param defaultValue
+     *      Default value to return in the case of text value cannot be parsed
+     * @return
+     *      Parsed integer or {@code defaultValue}
+     */
+    public Integer getInteger(Integer defaultValue) {
+
+        Integer integerValue = getInteger();
+        return integerValue != null ? integerValue : defaultValue;
+    }
+
+    /**
+     * Parses element's text value to long.
+     *
+     * @return
+     *      Parsed long or {@code null} if text value cannot be parsed
+     */
+    public Long getLong() {
+
+        return XMLHelper.parseLong(getText());
+    }
+
+    /**
+     * Parses element's text value to long.
+     *
+     * @param defaultValue
+     *      Default value to return in the case of text value cannot be parsed
+     * @return
+     *      Parsed long or {@code defaultValue}
+     */
+    public Long getLong(Long defaultValue) {
+
+        Long longValue = getLong();
+        return longValue != null ? longValue : defaultValue;
+    }
+
+    /**
+     * Parses element's text value to double.
+     *
+     * @return
+     *      Parsed double or {@code null} if text value cannot be parsed
+     */
+    public Double getDouble() {
+
+        return XMLHelper.parseDouble(getText());
+    }
+
+    /**
+     * Parses element's text value to double.
+     *
+     * @param defaultValue
+     *      Default value to return in the case of text value cannot be parsed
+     * @return
+     *      Parsed double or {@code defaultValue}
+     */
+    public Double getDouble(Double defaultValue) {
+
+        Double doubleValue = getDouble();
+        return doubleValue != null ? doubleValue : defaultValue;
+    }
+
+    /**
+     * Parses element's text value to boolean, "true", "yes" and "1"
+     * are treated as {@code true} case-insensitively.
+     *
+     * @return
+     *      Parsed boolean
+     */
+    public Boolean getBoolean() {
+
+        return XMLHelper.parseBoolean(getText());
+    }
+
+    /**
+     * Parses element's text value to primitive int without boxing.
+     *
+     * @param defaultValue
+     *      Default value to return in the case of text value cannot be parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    public int getIntValue(int defaultValue) {
+
+        return XMLHelper.parseIntValue(getText(), defaultValue);
+    }
+
+    /**
+     * Parses element's text value to primitive long without boxing.
+     *
+     * @param defaultValue
+     *      Default value to return in the case of text value cannot be parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    public long getLongValue(long defaultValue) {
+
+        return XMLHelper.parseLongValue(getText(), defaultValue);
+    }
+
+    /**
+     * Parses element's text value to primitive double without boxing.
+     *
+     * @param defaultValue
+     *      Default value to return in the case of text value cannot be parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    public double getDoubleValue(double defaultValue) {
+
+        return XMLHelper.parseDoubleValue(getText(), defaultValue);
+    }
+
+    /**
+     * Parses element's text value to primitive boolean, "true", "yes" and "1"
+     * are treated as {@code true} case-insensitively.
+     *
+     * @return
+     *      Parsed value
+     */
+    public boolean getBooleanValue() {
+
+        return XMLHelper.parseBoolean(getText());
+    }
+
+    /**
+     * Checks whether element has specified attribute.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      {@code true} if attribute is set, {@code false} otherwise
+     */
+    public boolean hasAttribute(String attributeName) {
+
+        return attributeName != null && document.getAttribute(elementIndex, attributeName) != null;
+    }
+
+    /**
+     * Retrieves attribute's value.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      Attribute's value or empty string if attribute is not set
+     * @see XMLHelper#getElementAttribute(org.w3c.dom.Element, java.lang.String)
+     */
+    public String getAttribute(String attributeName) {
+
+        if (attributeName == null)
+            return null;
+
+        String attributeValue = document.getAttribute(elementIndex, attributeName);
+        return attributeValue != null ? attributeValue : "";
+    }
+
+    /**
+     * Retrieves attribute's value.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Attribute's default value returned in the case of attribute cannot be retrieved
+     * @return
+     *      Attribute's value or empty string if attribute is not set
+     * @see XMLHelper#getElementAttribute(org.w3c.dom.Element, java.lang.String, java.lang.String)
+     */
+    public String getAttribute(String attributeName, String defaultValue) {
+
+        String attributeValue = getAttribute(attributeName);
+        return attributeValue != null ? attributeValue : defaultValue;
+    }
+
+    /**
+     * Retrieves count of element's attributes.
+     *
+     * @return
+     *      Count of attributes
+     */
+    public int getAttributesCount() {
+
+        return document.getAttributesCount(elementIndex);
+    }
+
+    /**
+     * Retrieves name of attribute with specified index.
+     *
+     * @param attributeIndex
+     *      Attribute's index
+     * @return
+     *      Attribute's name or {@code null} if index is out of range
+     */
+    public String getAttributeName(int attributeIndex) {
+
+        if (attributeIndex < 0 || attributeIndex >= document.getAttributesCount(elementIndex))
+            return null;
+
+        return document.getAttributeName(elementIndex, attributeIndex);
+    }
+
+    /**
+     * Retrieves value of attribute with specified index.
+     *
+     * @param attributeIndex
+     *      Attribute's index
+     * @return
+     *      Attribute's value or {@code null} if index is out of range
+     */
+    public String getAttributeValue(int attributeIndex) {
+
+        if (attributeIndex < 0 || attributeIndex >= document.getAttributesCount(elementIndex))
+            return null;
+
+        return document.getAttributeValue(elementIndex, attributeIndex);
+    }
+
+    /**
+     * Retrieves attribute's integer value.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      Attribute's integer value or {@code null} if it cannot be parsed
+     */
+    public Integer getAttributeInteger(String attributeName) {
+
+        return XMLHelper.parseInteger(getAttribute(attributeName));
+    }
+
+    /**
+     * Retrieves attribute's integer value.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Default value returned if attribute's value cannot be parsed
+     * @return
+     *      Attribute's integer value or {@code defaultValue}
+     */
+    public Integer getAttributeInteger(String attributeName, Integer defaultValue) {
+
+        Integer attributeValue = getAttributeInteger(attributeName);
+        return attributeValue != null ? attributeValue : defaultValue;
+    }
+
+    /**
+     * Retrieves attribute's boolean value the way {@link Boolean#parseBoolean(java.lang.String)} does.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      Attribute's boolean value
+     */
+    public Boolean getAttributeBoolean(String attributeName) {
+
+        return XMLHelper.parseAttributeBoolean(getAttribute(attributeName));
+    }
+
+    /**
+     * Parses attribute's value to primitive int without boxing.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Default value returned if attribute is not set or cannot be parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    public int getAttributeIntValue(String attributeName, int defaultValue) {
+
+        return XMLHelper.parseIntValue(findAttribute(attributeName), defaultValue);
+    }
+
+    /**
+     * Parses attribute's value to primitive long without boxing.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Default value returned if attribute is not set or cannot be parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    public long getAttributeLongValue(String attributeName, long defaultValue) {
+
+        return XMLHelper.parseLongValue(findAttribute(attributeName), defaultValue);
+    }
+
+    /**
+     * Parses attribute's value to primitive double without boxing.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Default value returned if attribute is not set or cannot be parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    public double getAttributeDoubleValue(String attributeName, double defaultValue) {
+
+        return XMLHelper.parseDoubleValue(findAttribute(attributeName), defaultValue);
+    }
+
+    /**
+     * Parses attribute's value to primitive boolean ("true" in any case is treated as {@code true}).
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Default value returned if attribute is not set
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    public boolean getAttributeBooleanValue(String attributeName, boolean defaultValue) {
+
+        String attributeValue = findAttribute(attributeName);
+        if (attributeValue == null)
+            return defaultValue;
+
+        return attributeValue.equalsIgnoreCase("true");
+    }
+
+    /**
+     * Looks up attribute's value.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      Attribute's value or {@code null} if attribute is not set
+     */
+    private String findAttribute(String attributeName) {
+
+        if (attributeName == null)
+            return null;
+
+        return document.getAttribute(elementIndex, attributeName);
+    }
+
+    /**
+     * Wraps element's index.
+     *
+     * @param elementIndex
+     *      Element's index or {@code -1}
+     * @return
+     *      Element or {@code null} if index is {@code -1}
+     */
+    private XMLFrozenElement getElement(int elementIndex) {
+
+        return elementIndex < 0 ? null : new XMLFrozenElement(document, elementIndex);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object object) {
+
+        if (!(object instanceof XMLFrozenElement))
+            return false;
+
+        XMLFrozenElement element = (XMLFrozenElement)object;
+        return document == element.document && elementIndex == element.elementIndex;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+
+        return System.identityHashCode(document) * 31 + elementIndex;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+
+        return "<" + getName() + ">";
+    }
+}
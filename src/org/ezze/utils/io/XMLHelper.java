@@ -1,22 +1,33 @@
 package org.ezze.utils.io;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.CharacterData;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -27,11 +38,248 @@ import org.xml.sax.SAXException;
 /**
  * Collects a set of static methods to read and write XML files.
  *
+ * Child element views, attribute indices and simple path selections are cached only for
+ * documents indexed by {@link #indexDocument(org.w3c.dom.Document)}, which installs DOM
+ * mutation event listeners on the document to detect its modifications. Getters never
+ * modify documents which haven't been indexed, so such documents can be read by concurrent
+ * threads. The listeners slow further modifications of the document, they can be removed by
+ * {@link #stopTrackingModifications(org.w3c.dom.Document)}.
+ *
  * @author Dmitriy Pushkov
  * @version 0.0.6
  */
 public class XMLHelper {
 
+    /**
+     * Pool of document builders used to read XML documents.
+     */
+    private static volatile DocumentBuilderPool documentBuilderPool = new DocumentBuilderPool();
+
+    /**
+     * Pool of configured transformers used to write XML documents.
+     */
+    private static final TransformerPool transformerPool = new TransformerPool();
+
+    /**
+     * Cache of documents read from files or {@code null} if documents are not cached.
+     */
+    private static volatile XMLDocumentCache documentCache = null;
+
+    /**
+     * Shows whether saves of documents matching their files' contents are skipped.
+     */
+    private static volatile boolean isSkippingUnchangedSaves = false;
+
+    /**
+     * Digests of saved files' contents used to skip unchanged saves.
+     */
+    private static final XMLContentHashes savedContentHashes = new XMLContentHashes();
+
+    /**
+     * Count of skipped unchanged saves.
+     */
+    private static final AtomicLong skippedSavesCount = new AtomicLong();
+
+    /**
+     * Shows whether temporary files replace original ones by a single atomic move.
+     */
+    private static volatile boolean isAtomicReplacing = false;
+
+    /**
+     * Durability of written XML files.
+     */
+    private static volatile XMLSaveDurability saveDurability = XMLSaveDurability.NONE;
+
+    /**
+     * Compression level value showing that XML is written uncompressed.
+     */
+    private static final int NO_GZIP_COMPRESSION = Integer.MIN_VALUE;
+
+    /**
+     * Extension of GZip compressed XML files.
+     */
+    private static final String GZIP_EXTENSION = ".gz";
+
+    /**
+     * Exactly represented powers of ten used to parse plain decimal values.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Compression level of written GZip compressed XML files.
+     */
+    private static volatile int gzipCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Retrieves pool of document builders used to read XML documents.
+     *
+     * @return
+     *      Document builders' pool
+     */
+    public static DocumentBuilderPool getDocumentBuilderPool() {
+
+        return documentBuilderPool;
+    }
+
+    /**
+     * Replaces pool of document builders used to read XML documents,
+     * a new pool is the way to change parser configuration.
+     *
+     * @param documentBuilderPool
+     *      Document builders' pool
+     */
+    public static void setDocumentBuilderPool(DocumentBuilderPool documentBuilderPool) {
+
+        if (documentBuilderPool == null)
+            return;
+
+        XMLHelper.documentBuilderPool = documentBuilderPool;
+    }
+
+    /**
+     * Retrieves cache of documents read from files.
+     *
+     * @return
+     *      Documents' cache or {@code null} if documents are not cached
+     */
+    public static XMLDocumentCache getDocumentCache() {
+
+        return documentCache;
+    }
+
+    /**
+     * Sets cache of documents read by {@link #readXMLDocument(java.lang.String, java.lang.Boolean, java.lang.String)}
+     * and its overloads. Documents read from the same unchanged file are cloned from the cache
+     * instead of being parsed again.
+     *
+     * @param documentCache
+     *      Documents' cache or {@code null} to disable caching
+     */
+    public static void setDocumentCache(XMLDocumentCache documentCache) {
+
+        XMLHelper.documentCache = documentCache;
+    }
+
+    /**
+     * Checks whether saves of documents matching their files' contents are skipped.
+     *
+     * @return
+     *      {@code true} if unchanged saves are skipped, {@code false} otherwise
+     */
+    public static boolean isSkippingUnchangedSaves() {
+
+        return isSkippingUnchangedSaves;
+    }
+
+    /**
+     * Sets whether {@link #writeXMLDocument(org.w3c.dom.Document, java.lang.String, java.lang.Boolean, java.lang.String, java.lang.Integer)}
+     * and its overloads skip saves of documents matching their files' contents ({@code false} by default).
+     * When enabled, a document is written to temporary file (even if the save doesn't use one)
+     * computing its digest on the fly, and the digest is compared with a digest of the current file.
+     * If the digests match, temporary file is deleted and the file is neither replaced nor backed up.
+     *
+     * @param isSkippingUnchangedSaves
+     *      Unchanged saves skipping flag
+     */
+    public static void setSkippingUnchangedSaves(boolean isSkippingUnchangedSaves) {
+
+        XMLHelper.isSkippingUnchangedSaves = isSkippingUnchangedSaves;
+    }
+
+    /**
+     * Retrieves count of saves skipped because files' contents were unchanged.
+     *
+     * @return
+     *      Count of skipped saves
+     */
+    public static long getSkippedSavesCount() {
+
+        return skippedSavesCount.get();
+    }
+
+    /**
+     * Checks whether temporary files replace original ones by a single atomic move.
+     *
+     * @return
+     *      {@code true} if atomic replacing is enabled, {@code false} otherwise
+     */
+    public static boolean isAtomicReplacing() {
+
+        return isAtomicReplacing;
+    }
+
+    /**
+     * Sets whether temporary files written by {@link #writeXMLDocument(org.w3c.dom.Document, java.lang.String, java.lang.Boolean, java.lang.String, java.lang.Integer)}
+     * replace original ones by a single atomic move instead of backing original files up
+     * and renaming temporary ones ({@code false} by default). Readers never observe a missing file
+     * in this mode. The backup sequence is used where atomic moves are not supported.
+     *
+     * @param isAtomicReplacing
+     *      Atomic replacing flag
+     */
+    public static void setAtomicReplacing(boolean isAtomicReplacing) {
+
+        XMLHelper.isAtomicReplacing = isAtomicReplacing;
+    }
+
+    /**
+     * Retrieves durability of written XML files.
+     *
+     * @return
+     *      Durability level
+     */
+    public static XMLSaveDurability getSaveDurability() {
+
+        return saveDurability;
+    }
+
+    /**
+     * Sets durability of XML files written by {@link #writeXMLDocument(org.w3c.dom.Document, java.lang.String, java.lang.Boolean, java.lang.String, java.lang.Integer)}
+     * ({@link XMLSaveDurability#NONE} by default).
+     *
+     * @param saveDurability
+     *      Durability level
+     */
+    public static void setSaveDurability(XMLSaveDurability saveDurability) {
+
+        if (saveDurability == null)
+            return;
+
+        XMLHelper.saveDurability = saveDurability;
+    }
+
+    /**
+     * Retrieves compression level of written GZip compressed XML files.
+     *
+     * @return
+     *      Compression level from {@code 0} to {@code 9} or {@link java.util.zip.Deflater#DEFAULT_COMPRESSION}
+     */
+    public static int getGZipCompressionLevel() {
+
+        return gzipCompressionLevel;
+    }
+
+    /**
+     * Sets compression level of XML files with {@code .gz} extension written by
+     * {@link #writeXMLDocument(org.w3c.dom.Document, java.lang.String, java.lang.Boolean, java.lang.String, java.lang.Integer)}
+     * ({@link java.util.zip.Deflater#DEFAULT_COMPRESSION} by default).
+     *
+     * @param gzipCompressionLevel
+     *      Compression level from {@code 0} (no compression) to {@code 9} (best compression)
+     *      or {@link java.util.zip.Deflater#DEFAULT_COMPRESSION}
+     */
+    public static void setGZipCompressionLevel(int gzipCompressionLevel) {
+
+        if ((gzipCompressionLevel < Deflater.NO_COMPRESSION || gzipCompressionLevel > Deflater.BEST_COMPRESSION) &&
+                gzipCompressionLevel != Deflater.DEFAULT_COMPRESSION)
+            return;
+
+        XMLHelper.gzipCompressionLevel = gzipCompressionLevel;
+    }
+
     /**
      * Reads specified XML file.
      *
@@ -61,7 +309,7 @@ public class XMLHelper {
     }
 
     /**
-     * Reads specified XML file.
+     * Reads specified XML file, GZip compressed files are decompressed on the fly.
      *
      * @param xmlFileName
      *      XML file's name
@@ -81,53 +329,102 @@ public class XMLHelper {
         if (createEmptyDocument == null)
             createEmptyDocument = false;
 
-        // Retrieving instance of Document Builder Factory and creating new Document Builder
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        DocumentBuilder db = null;
+        // Borrowing Document Builder from the pool
+        DocumentBuilderPool pool = documentBuilderPool;
+        DocumentBuilder db = pool.borrow();
+        if (db == null)
+            return null;
+
         try {
 
-            db = dbf.newDocumentBuilder();
-        }
-        catch (ParserConfigurationException ex) {
+            // Checking XML file's existance
+            File xmlFile = new File(xmlFileName);
+            if (!xmlFile.exists() || !xmlFile.isFile()) {
 
-            return null;
-        }
+                if (createEmptyDocument)
+                {
+                    Document xmlDocument = db.newDocument();
+                    if (rootTagName != null && !rootTagName.isEmpty())
+                        xmlDocument.appendChild(xmlDocument.createElement(rootTagName));
 
-        if (db == null)
-            return null;
+                    return xmlDocument;
+                }
 
-        // Checking XML file's existance
-        File xmlFile = new File(xmlFileName);
-        if (!xmlFile.exists() || !xmlFile.isFile()) {
-
-            if (createEmptyDocument)
-            {
-                Document xmlDocument = db.newDocument();
-                if (rootTagName != null && !rootTagName.isEmpty())
-                    xmlDocument.appendChild(xmlDocument.createElement(rootTagName));
-                
-                return xmlDocument;
+                return null;
             }
 
-            return null;
-        }
+            // Looking for valid cached document
+            XMLDocumentCache cache = documentCache;
+            long lastModified = 0;
+            long length = 0;
+            if (cache != null) {
 
-        // Parsing XML file
-        Document xmlDocument = null;
-        
-        try {
-            
-            xmlDocument = db.parse(xmlFile);
-        }
-        catch (SAXException ex) {
-            
+                Document cachedDocument = cache.get(xmlFile);
+                if (cachedDocument != null)
+                    return cachedDocument;
+
+                lastModified = xmlFile.lastModified();
+                length = xmlFile.length();
+            }
+
+            // Parsing XML file
+            Document xmlDocument = null;
+            InputStream inputStream = null;
+
+            try {
+
+                inputStream = new FileInputStream(xmlFile);
+                InputSource inputSource = new InputSource(XMLStreamingReader.decompressIfGZipped(inputStream));
+                inputSource.setSystemId(xmlFile.toURI().toString());
+                xmlDocument = db.parse(inputSource);
+
+                // Caching parsed document and returning its clone
+                if (cache != null && xmlDocument != null) {
+
+                    cache.put(xmlFile, xmlDocument, lastModified, length);
+                    xmlDocument = (Document)xmlDocument.cloneNode(true);
+                }
+            }
+            catch (SAXException ex) {
+
+            }
+            catch (IOException ex) {
+
+            }
+            finally {
+
+                try {
+
+                    if (inputStream != null)
+                        inputStream.close();
+                }
+                catch (IOException ex) {
+
+                }
+            }
+
+            // Return parsing results
+            return xmlDocument;
         }
-        catch (IOException ex) {
-            
+        finally {
+
+            pool.release(db);
         }
+    }
 
-        // Return parsing results
-        return xmlDocument;
+    /**
+     * Reads specified XML file into an immutable document which may be read
+     * from any count of threads without synchronization.
+     *
+     * @param xmlFileName
+     *      XML file's name
+     * @return
+     *      Frozen document on success, null otherwise
+     * @see XMLFrozenDocument#freeze(org.w3c.dom.Document)
+     */
+    public static XMLFrozenDocument readFrozenXMLDocument(String xmlFileName) {
+
+        return XMLFrozenDocument.freeze(readXMLDocument(xmlFileName));
     }
 
     /**
@@ -143,18 +440,9 @@ public class XMLHelper {
         if (inputStream == null)
             return null;
 
-        // Retrieving instance of Document Builder Factory and creating new Document Builder
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        DocumentBuilder db = null;
-        try {
-
-            db = dbf.newDocumentBuilder();
-        }
-        catch (ParserConfigurationException ex) {
-
-            return null;
-        }
-
+        // Borrowing Document Builder from the pool
+        DocumentBuilderPool pool = documentBuilderPool;
+        DocumentBuilder db = pool.borrow();
         if (db == null)
             return null;
 
@@ -168,7 +456,11 @@ public class XMLHelper {
 
         }
         catch (IOException ex) {
-            
+
+        }
+        finally {
+
+            pool.release(db);
         }
 
         // Return parsing results
@@ -188,18 +480,9 @@ public class XMLHelper {
         if (inputSource == null)
             return null;
 
-        // Retrieving instance of Document Builder Factory and creating new Document Builder
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        DocumentBuilder db = null;
-        try {
-
-            db = dbf.newDocumentBuilder();
-        }
-        catch (ParserConfigurationException ex) {
-
-            return null;
-        }
-
+        // Borrowing Document Builder from the pool
+        DocumentBuilderPool pool = documentBuilderPool;
+        DocumentBuilder db = pool.borrow();
         if (db == null)
             return null;
 
@@ -215,6 +498,10 @@ public class XMLHelper {
         catch (IOException ex) {
 
         }
+        finally {
+
+            pool.release(db);
+        }
 
         // Return parsing results
         return xmlDocument;
@@ -286,7 +573,8 @@ public class XMLHelper {
      * @param xmlDocument
      *      XML document to save
      * @param xmlFileName
-     *      XML destination file
+     *      XML destination file, files with {@code .gz} extension are GZip compressed
+     *      with {@link #getGZipCompressionLevel()}
      * @param useTemporaryFile
      *      Write to temporary XML file first or not (true by default)
      * @param charset
@@ -314,49 +602,17 @@ public class XMLHelper {
         if (indentSize == null)
             indentSize = new Integer(4);
 
-        // Retrieving document's root element
-        Element rootElement = xmlDocument.getDocumentElement();
-        if (rootElement == null)
-            return false;
-
-        // Cleaning indent text nodes of root element
-        if (rootElement.hasChildNodes()) {
-
-            Node childNode = rootElement.getFirstChild();
-            do {
-
-                Node nextChildNode = childNode.getNextSibling();
-                if (childNode.getNodeType() == Node.TEXT_NODE)
-                    rootElement.removeChild(childNode);
-                childNode = nextChildNode;
-            }
-            while (childNode != null);
-        }
-
-        // Normalizing XML document
-        xmlDocument.normalize();
-
-        // Saving XML file
-        TransformerFactory tf = TransformerFactory.newInstance();
-        tf.setAttribute("indent-number", indentSize);       // setting tabs' size in space characters
-        Transformer t = null;
-
-        try {
-
-            t = tf.newTransformer();
-        }
-        catch (TransformerConfigurationException ex) {
-
-            return false;
-        }
-
-        if (t == null)
+        // Checking document's root element
+        if (xmlDocument.getDocumentElement() == null)
             return false;
 
-        t.setOutputProperty(OutputKeys.INDENT, "yes");          // requiring tabs (indent) usage
-        DOMSource domSource = new DOMSource(xmlDocument);
+        // Files with GZip extension are compressed on the fly
+        int compressionLevel = isGZipFileName(xmlFileName) ? gzipCompressionLevel : NO_GZIP_COMPRESSION;
 
-        String outputFileName = xmlFileName + (useTemporaryFile ? "~" : "");
+        // Unchanged content is detected in temporary file, so the original file stays untouched
+        MessageDigest messageDigest = isSkippingUnchangedSaves ? XMLContentHashes.createMessageDigest() : null;
+        boolean isWrittenDirectly = !useTemporaryFile && messageDigest == null;
+        String outputFileName = xmlFileName + (isWrittenDirectly ? "" : "~");
 
         // Creating new output stream for temporary XML file
         FileOutputStream outputStream = null;
@@ -369,31 +625,37 @@ public class XMLHelper {
             return false;
         }
 
-        if (outputStream == null)
-            return false;
-        
-        StreamResult streamResult = null;
-        try {
+        // Destination file written directly is modified from now on
+        if (isWrittenDirectly)
+            invalidateCachedDocument(xmlFileName);
 
-            // Creating resulting stream with UTF-8 charset
-            streamResult = new StreamResult(new OutputStreamWriter(outputStream, charset));
-        }
-        catch (UnsupportedEncodingException ex) {
+        // Writing temporary XML digesting it on the fly if necessary
+        boolean isWritten = writeXMLContent(xmlDocument, messageDigest != null ? new DigestOutputStream(outputStream, messageDigest) : outputStream,
+                charset, indentSize, compressionLevel);
 
-            return false;
-        }
+        byte[] contentDigest = null;
+        XMLSaveDurability durability = saveDurability;
+        try {
 
-        if (streamResult == null)
-            return false;
+            if (isWritten && messageDigest != null) {
 
-        try {
+                contentDigest = messageDigest.digest();
+                if (savedContentHashes.isUnchanged(new File(xmlFileName), outputStream.getChannel().size(), contentDigest)) {
+
+                    outputStream.close();
+                    new File(outputFileName).delete();
+                    skippedSavesCount.incrementAndGet();
+                    return true;
+                }
+            }
 
-            // Writing temporary XML
-            t.transform(domSource, streamResult);
+            // Forcing written data to the storage through the open channel
+            if (isWritten && durability != XMLSaveDurability.NONE)
+                outputStream.getChannel().force(true);
         }
-        catch (TransformerException ex) {
+        catch (IOException ex) {
 
-            return false;
+            isWritten = false;
         }
 
         try {
@@ -407,20 +669,272 @@ public class XMLHelper {
             return false;
         }
 
-        if (!useTemporaryFile)
-            return true;
+        if (!isWritten)
+            return false;
 
         // Temporary file has been successfully saved here, replacing the original one
-        boolean isTemporaryXMLRenamed = false;
+        if (!completeFileWrite(xmlFileName, isWrittenDirectly ? null : new File(outputFileName), durability))
+            return false;
 
-        File xmlFile = new File(xmlFileName);
-        File temporaryXMLFile = new File(outputFileName);
+        if (contentDigest != null)
+            savedContentHashes.update(new File(xmlFileName), contentDigest);
 
-        // Removing backed up XML file if it's present
-        File backupXMLFile = new File((xmlFileName.toLowerCase().endsWith(".xml") ?
-                xmlFileName.substring(0, xmlFileName.length() - 4) : xmlFileName) + ".backup.xml");
-        if (backupXMLFile.exists() && backupXMLFile.isFile())
-            backupXMLFile.delete();
+        return true;
+    }
+
+    /**
+     * Checks whether XML file is written GZip compressed by its extension.
+     *
+     * @param xmlFileName
+     *      XML file
+     * @return
+     *      {@code true} if file's name has GZip extension, {@code false} otherwise
+     */
+    static boolean isGZipFileName(String xmlFileName) {
+
+        return xmlFileName.toLowerCase().endsWith(GZIP_EXTENSION);
+    }
+
+    /**
+     * Removes cached document of a file being written from {@link #documentCache}.
+     *
+     * @param xmlFileName
+     *      XML file
+     */
+    static void invalidateCachedDocument(String xmlFileName) {
+
+        XMLDocumentCache cache = documentCache;
+        if (cache != null)
+            cache.invalidate(new File(xmlFileName));
+    }
+
+    /**
+     * Writes specified XML document to output stream compressing it if necessary.
+     * The stream is flushed but not closed.
+     *
+     * @param xmlDocument
+     *      XML document to write
+     * @param outputStream
+     *      Destination output stream
+     * @param charset
+     *      XML charset encoding
+     * @param indentSize
+     *      Tabs indent size in space characters
+     * @param compressionLevel
+     *      GZip compression level or {@link #NO_GZIP_COMPRESSION} to write uncompressed XML
+     * @return
+     *      {@code true} if XML has been successfully written, {@code false} otherwise
+     */
+    private static boolean writeXMLContent(Document xmlDocument, OutputStream outputStream, String charset, Integer indentSize, int compressionLevel) {
+
+        if (compressionLevel == NO_GZIP_COMPRESSION)
+            return writeXMLDocument(xmlDocument, outputStream, charset, indentSize);
+
+        GZipContentStream gzipStream = null;
+        try {
+
+            gzipStream = new GZipContentStream(outputStream, compressionLevel);
+            if (!writeXMLDocument(xmlDocument, gzipStream, charset, indentSize))
+                return false;
+
+            // Finishing compressed data without closing underlying stream
+            gzipStream.finish();
+            return true;
+        }
+        catch (IOException ex) {
+
+        }
+        finally {
+
+            if (gzipStream != null)
+                gzipStream.end();
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes specified XML document to output stream. The stream is flushed but not closed.
+     *
+     * @param xmlDocument
+     *      XML document to write
+     * @param outputStream
+     *      Destination output stream
+     * @param charset
+     *      XML charset encoding (UTF-8 by default)
+     * @param indentSize
+     *      Tabs indent size in space characters (4 by default)
+     * @return
+     *      {@code true} if XML has been successfully written, {@code false} otherwise
+     * @see #writeXMLDocument(org.w3c.dom.Document, java.io.Writer, java.lang.String, java.lang.Integer)
+     */
+    public static boolean writeXMLDocument(Document xmlDocument, OutputStream outputStream, String charset, Integer indentSize) {
+
+        // Checking input parameters
+        if (xmlDocument == null || outputStream == null)
+            return false;
+
+        if (charset == null)
+            charset = "UTF-8";
+
+        Writer writer = null;
+        try {
+
+            // Creating resulting writer with specified charset
+            writer = new OutputStreamWriter(outputStream, charset);
+        }
+        catch (UnsupportedEncodingException ex) {
+
+            return false;
+        }
+
+        return writeXMLDocument(xmlDocument, writer, charset, indentSize);
+    }
+
+    /**
+     * Writes specified XML document to writer. The writer is flushed but not closed.
+     *
+     * @param xmlDocument
+     *      XML document to write
+     * @param writer
+     *      Destination writer
+     * @param charset
+     *      XML charset encoding declared by the document (UTF-8 by default),
+     *      it should match writer's encoding
+     * @param indentSize
+     *      Tabs indent size in space characters (4 by default)
+     * @return
+     *      {@code true} if XML has been successfully written, {@code false} otherwise
+     * @see #writeXMLDocument(org.w3c.dom.Document, java.io.OutputStream, java.lang.String, java.lang.Integer)
+     */
+    public static boolean writeXMLDocument(Document xmlDocument, Writer writer, String charset, Integer indentSize) {
+
+        // Checking input parameters
+        if (xmlDocument == null || writer == null)
+            return false;
+
+        if (charset == null)
+            charset = "UTF-8";
+
+        if (indentSize == null)
+            indentSize = 4;
+
+        if (!prepareXMLDocument(xmlDocument))
+            return false;
+
+        // Borrowing configured transformer from the pool
+        TransformerPool pool = transformerPool;
+        Transformer t = pool.borrow(charset, indentSize);
+        if (t == null)
+            return false;
+
+        try {
+
+            t.transform(new DOMSource(xmlDocument), new StreamResult(writer));
+            writer.flush();
+        }
+        catch (TransformerException ex) {
+
+            return false;
+        }
+        catch (IOException ex) {
+
+            return false;
+        }
+        finally {
+
+            pool.release(t, charset, indentSize);
+        }
+
+        return true;
+    }
+
+    /**
+     * Cleans indent text nodes of document's root element and normalizes the document before writing.
+     *
+     * @param xmlDocument
+     *      XML document to write
+     * @return
+     *      {@code true} if the document has root element, {@code false} otherwise
+     */
+    private static boolean prepareXMLDocument(Document xmlDocument) {
+
+        // Retrieving document's root element
+        Element rootElement = xmlDocument.getDocumentElement();
+        if (rootElement == null)
+            return false;
+
+        // Cleaning indent text nodes of root element
+        if (rootElement.hasChildNodes()) {
+
+            Node childNode = rootElement.getFirstChild();
+            do {
+
+                Node nextChildNode = childNode.getNextSibling();
+                if (childNode.getNodeType() == Node.TEXT_NODE)
+                    rootElement.removeChild(childNode);
+                childNode = nextChildNode;
+            }
+            while (childNode != null);
+        }
+
+        // Normalizing XML document
+        xmlDocument.normalize();
+        return true;
+    }
+
+    /**
+     * Completes writing of XML file replacing it with temporary one according to
+     * {@link #isAtomicReplacing()}, forcing its directory according to durability level
+     * and invalidating its cached document.
+     *
+     * @param xmlFileName
+     *      XML destination file
+     * @param temporaryXMLFile
+     *      Written and forced temporary XML file or {@code null} if destination file has been written directly
+     * @param durability
+     *      Durability level the file has been written with
+     * @return
+     *      {@code true} if destination file has been replaced, {@code false} otherwise
+     */
+    static boolean completeFileWrite(String xmlFileName, File temporaryXMLFile, XMLSaveDurability durability) {
+
+        if (temporaryXMLFile != null) {
+
+            boolean isReplaced = isAtomicReplacing ? moveTemporaryFile(xmlFileName, temporaryXMLFile) :
+                    replaceWithTemporaryFile(xmlFileName, temporaryXMLFile);
+            invalidateCachedDocument(xmlFileName);
+            if (!isReplaced)
+                return false;
+        }
+
+        if (durability == XMLSaveDurability.FILE_AND_DIRECTORY)
+            forceDirectory(new File(xmlFileName).getAbsoluteFile().getParentFile());
+
+        return true;
+    }
+
+    /**
+     * Replaces XML file with successfully written temporary one backing the original file up
+     * and restoring it if temporary file cannot be renamed.
+     *
+     * @param xmlFileName
+     *      XML destination file
+     * @param temporaryXMLFile
+     *      Written temporary XML file
+     * @return
+     *      {@code true} if temporary file has been renamed to destination one, {@code false} otherwise
+     */
+    static boolean replaceWithTemporaryFile(String xmlFileName, File temporaryXMLFile) {
+
+        boolean isTemporaryXMLRenamed = false;
+
+        File xmlFile = new File(xmlFileName);
+        // Removing backed up XML file if it's present
+        File backupXMLFile = new File((xmlFileName.toLowerCase().endsWith(".xml") ?
+                xmlFileName.substring(0, xmlFileName.length() - 4) : xmlFileName) + ".backup.xml");
+        if (backupXMLFile.exists() && backupXMLFile.isFile())
+            backupXMLFile.delete();
 
         // Checking original XML file's existance
         if (xmlFile.exists() && xmlFile.isFile()) {
@@ -449,6 +963,71 @@ public class XMLHelper {
         return isTemporaryXMLRenamed;
     }
 
+    /**
+     * Replaces XML file with successfully written temporary one by a single atomic move,
+     * falls back to {@link #replaceWithTemporaryFile(java.lang.String, java.io.File)}
+     * if file system doesn't support atomic moves.
+     *
+     * @param xmlFileName
+     *      XML destination file
+     * @param temporaryXMLFile
+     *      Written temporary XML file
+     * @return
+     *      {@code true} if temporary file has been moved to destination one, {@code false} otherwise
+     */
+    static boolean moveTemporaryFile(String xmlFileName, File temporaryXMLFile) {
+
+        try {
+
+            Files.move(temporaryXMLFile.toPath(), new File(xmlFileName).toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        }
+        catch (AtomicMoveNotSupportedException ex) {
+
+            return replaceWithTemporaryFile(xmlFileName, temporaryXMLFile);
+        }
+        catch (IOException ex) {
+
+        }
+
+        return false;
+    }
+
+    /**
+     * Forces directory's entries to the storage.
+     *
+     * @param directory
+     *      Directory
+     */
+    private static void forceDirectory(File directory) {
+
+        if (directory == null)
+            return;
+
+        FileChannel directoryChannel = null;
+        try {
+
+            directoryChannel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+            directoryChannel.force(true);
+        }
+        catch (IOException ex) {
+
+            // Directories cannot be opened or forced on some platforms
+        }
+        finally {
+
+            try {
+
+                if (directoryChannel != null)
+                    directoryChannel.close();
+            }
+            catch (IOException ex) {
+
+            }
+        }
+    }
+
     /**
      * Retrieves top element of XML document.
      *
@@ -509,32 +1088,53 @@ public class XMLHelper {
      */
     public static Element getChildElement(Element xmlElement, int childElementIndex) {
 
-        if (xmlElement == null)
-            return null;
-        
-        NodeList xmlChildrenList = xmlElement.getChildNodes();
-        if (childElementIndex < 0 || childElementIndex >= xmlChildrenList.getLength())
+        if (xmlElement == null || childElementIndex < 0)
             return null;
 
-        int elementNodesCounter = 0;
-        int nodesCounter = 0;
-        while (nodesCounter < xmlChildrenList.getLength()) {
+        if (XMLDocumentVersion.getVersion(xmlElement.getOwnerDocument()) != XMLDocumentVersion.UNTRACKED)
+            return XMLElementChildren.of(xmlElement).get(childElementIndex);
 
-            Node xmlNode = xmlChildrenList.item(0);
-            if (xmlNode.getNodeType() == Node.ELEMENT_NODE) {
-                
-                if (childElementIndex == elementNodesCounter)
-                    return (Element)xmlNode;
+        // Walking siblings of a document which isn't indexed without collecting them
+        int elementsCounter = 0;
+        for (Node childNode = xmlElement.getFirstChild(); childNode != null; childNode = childNode.getNextSibling()) {
 
-                elementNodesCounter++;
-            }
-            
-            nodesCounter++;
+            if (childNode.getNodeType() == Node.ELEMENT_NODE && elementsCounter++ == childElementIndex)
+                return (Element)childNode;
         }
 
         return null;
     }
 
+    /**
+     * Retrieves direct child elements of XML element node.
+     *
+     * Returned view provides indexed access to child elements in O(1). If the document
+     * is indexed, the view is cached by the element and reused until the document is modified.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @return
+     *      View of child elements (empty if element is not specified)
+     * @see #indexDocument(org.w3c.dom.Document)
+     */
+    public static XMLElementChildren getChildElements(Element xmlElement) {
+
+        return XMLElementChildren.of(xmlElement);
+    }
+
+    /**
+     * Retrieves count of direct child elements of XML element node.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @return
+     *      Count of child elements
+     */
+    public static int getChildElementsCount(Element xmlElement) {
+
+        return XMLElementChildren.of(xmlElement).size();
+    }
+
     /**
      * Retrieves first child element node with tag name {@code childElementName} of specified element node.
      * 
@@ -609,48 +1209,342 @@ public class XMLHelper {
         return null;
     }
 
-        /**
-     * Appends child element node to XML document.
+    /**
+     * Selects the first element matched by XPath expression.
      *
-     * @param xmlDocument
-     *      Instance of XML document
-     * @param childElementName
-     *      New child element node's tag name
+     * Compiled expressions are cached, simple paths of element names like
+     * "items/item" are evaluated without XPath over child elements,
+     * which are cached if the document is indexed.
+     *
+     * @param contextNode
+     *      Document or element the expression is evaluated against
+     * @param expression
+     *      XPath expression
      * @return
-     *      Appended child element node
+     *      Matched element or {@code null} if no element is matched or expression is invalid
+     * @see #indexDocument(org.w3c.dom.Document)
      */
-    public static Element addChildElement(Document xmlDocument, String childElementName) {
+    public static Element selectElement(Node contextNode, String expression) {
 
-        return addChildElement(xmlDocument, getDocumentElement(xmlDocument), childElementName);
+        XMLQuery query = XMLQuery.compile(expression);
+        if (contextNode == null || query == null)
+            return null;
+
+        return query.selectElement(contextNode);
     }
 
     /**
-     * Appends child element node to existing DOM element node.
+     * Selects all elements matched by XPath expression in document order.
      *
-     * @param xmlDocument
-     *      Instance of XML document used to create new element node
-     * @param xmlElement
-     *      Existing DOM element node
-     * @param childElementName
-     *      New child element node's tag name
+     * @param contextNode
+     *      Document or element the expression is evaluated against
+     * @param expression
+     *      XPath expression
      * @return
-     *      Appended child element node
+     *      List of matched elements (empty if no element is matched or expression is invalid)
+     * @see #selectElement(org.w3c.dom.Node, java.lang.String)
      */
-    public static Element addChildElement(Document xmlDocument, Element xmlElement, String childElementName) {
+    public static List<Element> selectElements(Node contextNode, String expression) {
 
-        if (xmlDocument == null || xmlElement == null || childElementName == null)
-            return null;
+        XMLQuery query = XMLQuery.compile(expression);
+        if (contextNode == null || query == null)
+            return Collections.emptyList();
 
-        Element childElement = xmlDocument.createElement(childElementName);
-        return (Element)xmlElement.appendChild(childElement);
+        return query.selectElements(contextNode);
     }
 
     /**
-     * Retrieves DOM element node's text value.
-     * 
-     * @param xmlElement
-     *      DOM element node
-     * @return
+     * Selects string value of XPath expression: text of the first matched element,
+     * value of the first matched attribute or result of a non node set expression.
+     *
+     * Simple paths like "items/item/@id" are evaluated without XPath.
+     *
+     * @param contextNode
+     *      Document or element the expression is evaluated against
+     * @param expression
+     *      XPath expression
+     * @return
+     *      String value or {@code null} if nothing is matched or expression is invalid
+     */
+    public static String selectString(Node contextNode, String expression) {
+
+        XMLQuery query = XMLQuery.compile(expression);
+        if (contextNode == null || query == null)
+            return null;
+
+        return query.selectString(contextNode);
+    }
+
+    /**
+     * Selects integer value of XPath expression.
+     *
+     * @param contextNode
+     *      Document or element the expression is evaluated against
+     * @param expression
+     *      XPath expression
+     * @return
+     *      Integer value or {@code null} if nothing is matched or value is not an integer
+     * @see #selectString(org.w3c.dom.Node, java.lang.String)
+     */
+    public static Integer selectInteger(Node contextNode, String expression) {
+
+        return parseInteger(selectString(contextNode, expression));
+    }
+
+    /**
+     * Selects double value of XPath expression.
+     *
+     * @param contextNode
+     *      Document or element the expression is evaluated against
+     * @param expression
+     *      XPath expression
+     * @return
+     *      Double value or {@code null} if nothing is matched or value is not a number
+     * @see #selectString(org.w3c.dom.Node, java.lang.String)
+     */
+    public static Double selectDouble(Node contextNode, String expression) {
+
+        return parseDouble(selectString(contextNode, expression));
+    }
+
+    /**
+     * Selects boolean value of XPath expression ("true", "yes" and "1" are treated as {@code true}).
+     *
+     * @param contextNode
+     *      Document or element the expression is evaluated against
+     * @param expression
+     *      XPath expression
+     * @return
+     *      Boolean value or {@code null} if nothing is matched
+     * @see #selectString(org.w3c.dom.Node, java.lang.String)
+     */
+    public static Boolean selectBoolean(Node contextNode, String expression) {
+
+        return parseBoolean(selectString(contextNode, expression));
+    }
+
+    /**
+     * Retrieves index of element's descendants with tag name {@code childElementName}
+     * by values of attribute {@code attributeName}.
+     *
+     * If the document is indexed, the index is cached by the element and rebuilt only
+     * after the document has been modified, so repeated lookups replacing
+     * {@link #getChildElementWithAttribute(org.w3c.dom.Element, java.lang.String, java.lang.String, java.lang.String)}
+     * cost O(1) each. Indices of other documents are rebuilt on each lookup.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param childElementName
+     *      Tag name of indexed elements ("*" for any element)
+     * @param attributeName
+     *      Name of indexed attribute
+     * @return
+     *      Attribute index
+     * @see #indexDocument(org.w3c.dom.Document)
+     */
+    public static XMLAttributeIndex getAttributeIndex(Element xmlElement, String childElementName, String attributeName) {
+
+        return XMLAttributeIndex.of(xmlElement, childElementName, attributeName);
+    }
+
+    /**
+     * Retrieves index of document's elements with tag name {@code elementName}
+     * by values of attribute {@code attributeName} cached by the document.
+     *
+     * @param xmlDocument
+     *      XML document
+     * @param elementName
+     *      Tag name of indexed elements ("*" for any element)
+     * @param attributeName
+     *      Name of indexed attribute
+     * @return
+     *      Attribute index
+     * @see #getAttributeIndex(org.w3c.dom.Element, java.lang.String, java.lang.String)
+     */
+    public static XMLAttributeIndex getAttributeIndex(Document xmlDocument, String elementName, String attributeName) {
+
+        return XMLAttributeIndex.of(xmlDocument, elementName, attributeName);
+    }
+
+    /**
+     * Indexes XML document, so child element views, attribute indices and simple path
+     * selections are cached by its nodes and reused until the document is modified.
+     *
+     * Document's modifications are tracked by mutation event listeners which stay registered
+     * until {@link #stopTrackingModifications(org.w3c.dom.Document)} is called. Getters of
+     * an indexed document store cached views in nodes' user data while holding document's lock.
+     *
+     * @param xmlDocument
+     *      XML document
+     * @return
+     *      {@code true} if document has been indexed, {@code false} if its modifications
+     *      cannot be tracked
+     */
+    public static boolean indexDocument(Document xmlDocument) {
+
+        return XMLDocumentVersion.startTracking(xmlDocument);
+    }
+
+    /**
+     * Stops tracking modifications of XML document removing mutation event listeners
+     * installed by {@link #indexDocument(org.w3c.dom.Document)}.
+     *
+     * Cached views and indices of the document become invalid, the document
+     * is no longer indexed until it's indexed again.
+     *
+     * @param xmlDocument
+     *      XML document
+     */
+    public static void stopTrackingModifications(Document xmlDocument) {
+
+        XMLDocumentVersion.stopTracking(xmlDocument);
+    }
+
+    /**
+     * Retrieves count of direct child elements with tag name {@code childElementName}.
+     *
+     * Unlike {@link #getChildrenCount(org.w3c.dom.Element, java.lang.String)}
+     * descendants of child elements are not counted.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param childElementName
+     *      Tag name of child element nodes
+     * @return
+     *      Count of children
+     */
+    public static int getDirectChildrenCount(Element xmlElement, String childElementName) {
+
+        return getDirectChildElements(xmlElement, childElementName).size();
+    }
+
+    /**
+     * Retrieves direct child elements with tag name {@code childElementName}.
+     *
+     * Only direct children are visited, so loops over children don't scan element's subtree.
+     * If the document is indexed, child elements are grouped by tag name once and reused
+     * until the document is modified.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param childElementName
+     *      Tag name of child elements to retrieve
+     * @return
+     *      View of child elements (empty if no child is found)
+     * @see #indexDocument(org.w3c.dom.Document)
+     */
+    public static XMLElementChildren getDirectChildElements(Element xmlElement, String childElementName) {
+
+        return XMLElementChildren.of(xmlElement).getNamed(childElementName);
+    }
+
+    /**
+     * Retrieves first direct child element with tag name {@code childElementName}.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param childElementName
+     *      Tag name of child element to retrieve
+     * @return
+     *      Child DOM element node or {@code null} if no child is found
+     */
+    public static Element getDirectChildElement(Element xmlElement, String childElementName) {
+
+        return getDirectChildElement(xmlElement, childElementName, 0);
+    }
+
+    /**
+     * Retrieves direct child element with tag name {@code childElementName}
+     * and order index {@code childElementIndex} among same named children.
+     *
+     * Unlike {@link #getChildElement(org.w3c.dom.Element, java.lang.String, int)}
+     * descendants of child elements are not considered.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param childElementName
+     *      Tag name of child element to retrieve
+     * @param childElementIndex
+     *      Order index of child element to retrieve
+     * @return
+     *      Child DOM element node or {@code null} if no child is found
+     */
+    public static Element getDirectChildElement(Element xmlElement, String childElementName, int childElementIndex) {
+
+        return getDirectChildElements(xmlElement, childElementName).get(childElementIndex);
+    }
+
+    /**
+     * Retrieves direct child element with tag name {@code childElementName}
+     * and value {@code attributeValue} of specified attribute {@code attributeName}.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param childElementName
+     *      Tag name of child DOM element node to retrieve
+     * @param attributeName
+     *      Child attribute's name
+     * @param attributeValue
+     *      Child attribute's value
+     * @return
+     *      Child DOM element node or {@code null} if no child is found
+     */
+    public static Element getDirectChildElementWithAttribute(Element xmlElement, String childElementName, String attributeName, String attributeValue) {
+
+        if (attributeName == null)
+            return null;
+
+        for (Element xmlChildElement : getDirectChildElements(xmlElement, childElementName)) {
+
+            if (xmlChildElement.hasAttribute(attributeName) && xmlChildElement.getAttribute(attributeName).equals(attributeValue))
+                return xmlChildElement;
+        }
+
+        return null;
+    }
+
+        /**
+     * Appends child element node to XML document.
+     *
+     * @param xmlDocument
+     *      Instance of XML document
+     * @param childElementName
+     *      New child element node's tag name
+     * @return
+     *      Appended child element node
+     */
+    public static Element addChildElement(Document xmlDocument, String childElementName) {
+
+        return addChildElement(xmlDocument, getDocumentElement(xmlDocument), childElementName);
+    }
+
+    /**
+     * Appends child element node to existing DOM element node.
+     *
+     * @param xmlDocument
+     *      Instance of XML document used to create new element node
+     * @param xmlElement
+     *      Existing DOM element node
+     * @param childElementName
+     *      New child element node's tag name
+     * @return
+     *      Appended child element node
+     */
+    public static Element addChildElement(Document xmlDocument, Element xmlElement, String childElementName) {
+
+        if (xmlDocument == null || xmlElement == null || childElementName == null)
+            return null;
+
+        Element childElement = xmlDocument.createElement(childElementName);
+        return (Element)xmlElement.appendChild(childElement);
+    }
+
+    /**
+     * Retrieves DOM element node's text value.
+     * 
+     * @param xmlElement
+     *      DOM element node
+     * @return
      *      Text value or {@code null} if DOM element doesn't exist
      */
     public static String getElementText(Element xmlElement) {
@@ -688,19 +1582,7 @@ public class XMLHelper {
      */
     public static Integer getElementInteger(Element xmlElement) {
 
-        String text = getElementText(xmlElement);
-        if (text == null)
-            return null;
-
-        try {
-
-            return Integer.parseInt(text);
-        }
-        catch (NumberFormatException ex) {
-
-        }
-
-        return null;
+        return parseInteger(getElementText(xmlElement));
     }
 
     /**
@@ -732,19 +1614,7 @@ public class XMLHelper {
      */
     public static Long getElementLong(Element xmlElement) {
 
-        String text = getElementText(xmlElement);
-        if (text == null)
-            return null;
-
-        try {
-
-            return Long.parseLong(text);
-        }
-        catch (NumberFormatException ex) {
-
-        }
-
-        return null;
+        return parseLong(getElementText(xmlElement));
     }
 
     /**
@@ -776,19 +1646,7 @@ public class XMLHelper {
      */
     public static Double getElementDouble(Element xmlElement) {
 
-        String text = getElementText(xmlElement);
-        if (text == null)
-            return null;
-
-        try {
-
-            return Double.parseDouble(text);
-        }
-        catch (NumberFormatException ex) {
-
-        }
-
-        return null;
+        return parseDouble(getElementText(xmlElement));
     }
 
     /**
@@ -820,25 +1678,7 @@ public class XMLHelper {
      */
     public static Boolean getElementBoolean(Element xmlElement) {
 
-        String text = getElementText(xmlElement);
-        if (text == null)
-            return null;
-
-        text = text.toLowerCase();
-        if (text.equals("true") || text.equals("yes") || text.equals("1"))
-            return Boolean.TRUE;
-        else if (text.equals("false") || text.equals("no") || text.equals("0"))
-            return Boolean.FALSE;
-
-        try {
-
-            return Boolean.parseBoolean(text);
-        }
-        catch (Exception ex) {
-
-        }
-
-        return null;
+        return parseBoolean(getElementText(xmlElement));
     }
 
     /**
@@ -860,32 +1700,105 @@ public class XMLHelper {
     }
 
     /**
-     * Retrieves DOM element node's specified attribute's value.
-     * 
+     * Parses DOM element node's text value to primitive int without boxing.
+     *
+     * Text of elements with a single text child is parsed without concatenation.
+     *
      * @param xmlElement
      *      DOM element node
-     * @param attributeName
-     *      Attribute's name
+     * @param defaultValue
+     *      Default value to return in the case of DOM element doesn't exist
+     *      or text value cannot be parsed
      * @return
-     *      Attribute's value or empty string if attribute is not set
+     *      Parsed value or {@code defaultValue}
      */
-    public static String getElementAttribute(Element xmlElement, String attributeName) {
+    public static int getElementIntValue(Element xmlElement, int defaultValue) {
 
-        if (xmlElement == null || attributeName == null)
-            return null;
-
-        return xmlElement.getAttribute(attributeName);
+        return parseIntValue(getElementSingleText(xmlElement), defaultValue);
     }
 
     /**
-     * Retrieves DOM element node's specified attribute's value.
+     * Parses DOM element node's text value to primitive long without boxing.
      *
      * @param xmlElement
      *      DOM element node
-     * @param attributeName
-     *      Attribute's name
      * @param defaultValue
-     *      Attribute's default value returned in the case of attribute cannot be retrieved
+     *      Default value to return in the case of DOM element doesn't exist
+     *      or text value cannot be parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     * @see #getElementIntValue(org.w3c.dom.Element, int)
+     */
+    public static long getElementLongValue(Element xmlElement, long defaultValue) {
+
+        return parseLongValue(getElementSingleText(xmlElement), defaultValue);
+    }
+
+    /**
+     * Parses DOM element node's text value to primitive double without boxing.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param defaultValue
+     *      Default value to return in the case of DOM element doesn't exist
+     *      or text value cannot be parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     * @see #getElementIntValue(org.w3c.dom.Element, int)
+     */
+    public static double getElementDoubleValue(Element xmlElement, double defaultValue) {
+
+        return parseDoubleValue(getElementSingleText(xmlElement), defaultValue);
+    }
+
+    /**
+     * Parses DOM element node's text value to primitive boolean
+     * ("true", "yes" in any case and "1" are treated as {@code true}).
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param defaultValue
+     *      Default value to return in the case of DOM element doesn't exist
+     * @return
+     *      Parsed value or {@code defaultValue}
+     * @see #getElementBoolean(org.w3c.dom.Element, java.lang.Boolean)
+     */
+    public static boolean getElementBooleanValue(Element xmlElement, boolean defaultValue) {
+
+        String text = getElementSingleText(xmlElement);
+        if (text == null)
+            return defaultValue;
+
+        return text.equalsIgnoreCase("true") || text.equalsIgnoreCase("yes") || text.equals("1");
+    }
+
+    /**
+     * Retrieves DOM element node's specified attribute's value.
+     * 
+     * @param xmlElement
+     *      DOM element node
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      Attribute's value or empty string if attribute is not set
+     */
+    public static String getElementAttribute(Element xmlElement, String attributeName) {
+
+        if (xmlElement == null || attributeName == null)
+            return null;
+
+        return xmlElement.getAttribute(attributeName);
+    }
+
+    /**
+     * Retrieves DOM element node's specified attribute's value.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Attribute's default value returned in the case of attribute cannot be retrieved
      * @return
      *      Attribute's value or empty string if attribute is not set
      */
@@ -907,19 +1820,7 @@ public class XMLHelper {
      */
     public static Integer getElementAttributeInteger(Element xmlElement, String attributeName) {
         
-        String attributeValue = getElementAttribute(xmlElement, attributeName);
-        if (attributeValue == null)
-            return null;
-        
-        try {
-            
-            return Integer.parseInt(attributeValue);
-        }
-        catch (Exception ex) {
-            
-        }
-        
-        return null;
+        return parseInteger(getElementAttribute(xmlElement, attributeName));
     }
     
     /**
@@ -952,19 +1853,7 @@ public class XMLHelper {
      */
     public static Boolean getElementAttributeBoolean(Element xmlElement, String attributeName) {
 
-        String attributeValue = getElementAttribute(xmlElement, attributeName);
-        if (attributeValue == null)
-            return null;
-
-        try {
-
-            return Boolean.parseBoolean(attributeValue);
-        }
-        catch (Exception ex) {
-
-        }
-
-        return null;
+        return parseAttributeBoolean(getElementAttribute(xmlElement, attributeName));
     }
 
     /**
@@ -985,6 +1874,79 @@ public class XMLHelper {
         return attributeValue != null ? attributeValue : defaultValue;
     }
 
+    /**
+     * Parses DOM element node's specified attribute's value to primitive int without boxing.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Default value to return in the case of attribute cannot be retrieved or parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    public static int getElementAttributeIntValue(Element xmlElement, String attributeName, int defaultValue) {
+
+        return parseIntValue(getElementAttribute(xmlElement, attributeName), defaultValue);
+    }
+
+    /**
+     * Parses DOM element node's specified attribute's value to primitive long without boxing.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Default value to return in the case of attribute cannot be retrieved or parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    public static long getElementAttributeLongValue(Element xmlElement, String attributeName, long defaultValue) {
+
+        return parseLongValue(getElementAttribute(xmlElement, attributeName), defaultValue);
+    }
+
+    /**
+     * Parses DOM element node's specified attribute's value to primitive double without boxing.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Default value to return in the case of attribute cannot be retrieved or parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    public static double getElementAttributeDoubleValue(Element xmlElement, String attributeName, double defaultValue) {
+
+        return parseDoubleValue(getElementAttribute(xmlElement, attributeName), defaultValue);
+    }
+
+    /**
+     * Parses DOM element node's specified attribute's value to primitive boolean
+     * ("true" in any case is treated as {@code true}).
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Default value to return in the case of attribute is not set
+     * @return
+     *      Parsed value or {@code defaultValue}
+     * @see #getElementAttributeBoolean(org.w3c.dom.Element, java.lang.String, java.lang.Boolean)
+     */
+    public static boolean getElementAttributeBooleanValue(Element xmlElement, String attributeName, boolean defaultValue) {
+
+        if (xmlElement == null || attributeName == null || !xmlElement.hasAttribute(attributeName))
+            return defaultValue;
+
+        return xmlElement.getAttribute(attributeName).equalsIgnoreCase("true");
+    }
+
     /**
      * Sets DOM element node's text value.
      * 
@@ -1018,4 +1980,310 @@ public class XMLHelper {
 
         xmlElement.setAttribute(attributeName, attributeValue.toString());
     }
-}
\ No newline at end of file
+
+    /**
+     * Parses text value to integer.
+     *
+     * @param text
+     *      Text value
+     * @return
+     *      Parsed integer or {@code null} if text value is not specified or cannot be parsed
+     */
+    static Integer parseInteger(String text) {
+
+        if (text == null)
+            return null;
+
+        try {
+
+            return Integer.parseInt(text);
+        }
+        catch (NumberFormatException ex) {
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses text value to long.
+     *
+     * @param text
+     *      Text value
+     * @return
+     *      Parsed long or {@code null} if text value is not specified or cannot be parsed
+     */
+    static Long parseLong(String text) {
+
+        if (text == null)
+            return null;
+
+        try {
+
+            return Long.parseLong(text);
+        }
+        catch (NumberFormatException ex) {
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses text value to double.
+     *
+     * @param text
+     *      Text value
+     * @return
+     *      Parsed double or {@code null} if text value is not specified or cannot be parsed
+     */
+    static Double parseDouble(String text) {
+
+        if (text == null)
+            return null;
+
+        try {
+
+            return Double.parseDouble(text);
+        }
+        catch (NumberFormatException ex) {
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses element's text value to boolean, "true", "yes" and "1"
+     * are treated as {@code true} case-insensitively.
+     *
+     * @param text
+     *      Text value
+     * @return
+     *      Parsed boolean or {@code null} if text value is not specified
+     */
+    static Boolean parseBoolean(String text) {
+
+        if (text == null)
+            return null;
+
+        if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("yes") || text.equals("1"))
+            return Boolean.TRUE;
+
+        return Boolean.FALSE;
+    }
+
+    /**
+     * Parses attribute's value to boolean the way {@link Boolean#parseBoolean(java.lang.String)} does.
+     *
+     * @param attributeValue
+     *      Attribute's value
+     * @return
+     *      Parsed boolean or {@code null} if attribute's value is not specified
+     */
+    static Boolean parseAttributeBoolean(String attributeValue) {
+
+        if (attributeValue == null)
+            return null;
+
+        return Boolean.parseBoolean(attributeValue);
+    }
+
+    /**
+     * Retrieves DOM element node's text value avoiding concatenation
+     * when the element has a single text child.
+     *
+     * @param xmlElement
+     *      DOM element node
+     * @return
+     *      Text value or {@code null} if DOM element doesn't exist
+     */
+    static String getElementSingleText(Element xmlElement) {
+
+        if (xmlElement == null)
+            return null;
+
+        Node childNode = xmlElement.getFirstChild();
+        if (childNode == null)
+            return "";
+
+        if (childNode.getNextSibling() == null && (childNode.getNodeType() == Node.TEXT_NODE || childNode.getNodeType() == Node.CDATA_SECTION_NODE))
+            return ((CharacterData)childNode).getData();
+
+        return xmlElement.getTextContent();
+    }
+
+    /**
+     * Parses text value to primitive int accepting the same values as {@link Integer#parseInt(java.lang.String)}
+     * without throwing exceptions for malformed ones.
+     *
+     * @param text
+     *      Text value
+     * @param defaultValue
+     *      Value returned if text value is not specified or cannot be parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    static int parseIntValue(String text, int defaultValue) {
+
+        return (int)parseLongValue(text, defaultValue, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Parses text value to primitive long accepting the same values as {@link Long#parseLong(java.lang.String)}
+     * without throwing exceptions for malformed ones.
+     *
+     * @param text
+     *      Text value
+     * @param defaultValue
+     *      Value returned if text value is not specified or cannot be parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    static long parseLongValue(String text, long defaultValue) {
+
+        return parseLongValue(text, defaultValue, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Parses decimal digits of text value checking value's range.
+     *
+     * @param text
+     *      Text value
+     * @param defaultValue
+     *      Value returned if text value is not specified or cannot be parsed
+     * @param minimalValue
+     *      Minimal allowed value
+     * @param maximalValue
+     *      Maximal allowed value
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    private static long parseLongValue(String text, long defaultValue, long minimalValue, long maximalValue) {
+
+        if (text == null)
+            return defaultValue;
+
+        int textLength = text.length();
+        int charIndex = 0;
+        boolean isNegative = false;
+        if (textLength > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+
+            isNegative = text.charAt(0) == '-';
+            charIndex++;
+        }
+
+        if (charIndex == textLength)
+            return defaultValue;
+
+        // Accumulating negative value to reach minimal value without overflow
+        long limit = isNegative ? minimalValue : -maximalValue;
+        long value = 0;
+        for (; charIndex < textLength; charIndex++) {
+
+            int digit = Character.digit(text.charAt(charIndex), 10);
+            if (digit < 0 || value < (limit + digit) / 10)
+                return defaultValue;
+            value = value * 10 - digit;
+        }
+
+        return isNegative ? value : -value;
+    }
+
+    /**
+     * Parses text value to primitive double accepting the same values as {@link Double#parseDouble(java.lang.String)},
+     * plain decimal values are parsed without creating intermediate objects.
+     *
+     * @param text
+     *      Text value
+     * @param defaultValue
+     *      Value returned if text value is not specified or cannot be parsed
+     * @return
+     *      Parsed value or {@code defaultValue}
+     */
+    static double parseDoubleValue(String text, double defaultValue) {
+
+        if (text == null)
+            return defaultValue;
+
+        int textLength = text.length();
+        int charIndex = 0;
+        boolean isNegative = false;
+        if (textLength > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+
+            isNegative = text.charAt(0) == '-';
+            charIndex++;
+        }
+
+        // Values having up to 15 significant digits and 22 fractional digits are exact
+        // after a single division of two exactly represented doubles
+        long mantissa = 0;
+        int digitsCount = 0;
+        int fractionDigitsCount = -1;
+        boolean hasDigits = false;
+        boolean isPlainDecimal = charIndex < textLength;
+        for (; charIndex < textLength && isPlainDecimal; charIndex++) {
+
+            char textChar = text.charAt(charIndex);
+            if (textChar >= '0' && textChar <= '9') {
+
+                mantissa = mantissa * 10 + (textChar - '0');
+                hasDigits = true;
+                if (mantissa != 0)
+                    digitsCount++;
+                if (fractionDigitsCount >= 0)
+                    fractionDigitsCount++;
+            }
+            else if (textChar == '.' && fractionDigitsCount < 0)
+                fractionDigitsCount = 0;
+            else
+                isPlainDecimal = false;
+        }
+
+        if (isPlainDecimal && hasDigits && digitsCount <= 15 && fractionDigitsCount <= 22) {
+
+            double value = fractionDigitsCount > 0 ? mantissa / POWERS_OF_TEN[fractionDigitsCount] : mantissa;
+            return isNegative ? -value : value;
+        }
+
+        try {
+
+            return Double.parseDouble(text);
+        }
+        catch (NumberFormatException ex) {
+
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * GZip stream writing compressed XML content to an output stream left open after writing.
+     */
+    static class GZipContentStream extends GZIPOutputStream {
+
+        /**
+         * Creates stream with specified compression level.
+         *
+         * @param outputStream
+         *      Destination output stream
+         * @param compressionLevel
+         *      GZip compression level
+         * @throws IOException
+         *      If GZip header cannot be written
+         */
+        GZipContentStream(OutputStream outputStream, int compressionLevel) throws IOException {
+
+            super(outputStream, 65536);
+            def.setLevel(compressionLevel);
+        }
+
+        /**
+         * Releases native resources of the deflater, the stream cannot be written afterwards.
+         */
+        void end() {
+
+            def.end();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.ezze.utils.io;
+
+import java.io.File;
+import org.w3c.dom.Document;
+
+/**
+ * Keeps result of parsing a single file by {@link XMLBulkReader}.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public class XMLParseResult {
+
+    /**
+     * Parsed file.
+     */
+    private final File file;
+
+    /**
+     * Position of parsed file in the collection being read.
+     */
+    private final int fileIndex;
+
+    /**
+     * Parsed document or {@code null} if parsing has failed.
+     */
+    private final Document document;
+
+    /**
+     * Parsing error or {@code null} if file has been parsed.
+     */
+    private final Exception error;
+
+    /**
+     * Creates parsing result.
+     *
+     * @param file
+     *      Parsed file
+     * @param fileIndex
+     *      Position of parsed file in the collection being read
+     * @param document
+     *      Parsed document or {@code null}
+     * @param error
+     *      Parsing error or {@code null}
+     */
+    XMLParseResult(File file, int fileIndex, Document document, Exception error) {
+
+        this.file = file;
+        this.fileIndex = fileIndex;
+        this.document = document;
+        this.error = error;
+    }
+
+    /**
+     * Retrieves parsed file.
+     *
+     * @return
+     *      Parsed file
+     */
+    public File getFile() {
+
+        return file;
+    }
+
+    /**
+     * Retrieves position of parsed file in the collection being read.
+     *
+     * @return
+     *      File's position
+     */
+    int getFileIndex() {
+
+        return fileIndex;
+    }
+
+    /**
+     * Retrieves parsed document.
+     *
+     * @return
+     *      Parsed document or {@code null} if parsing has failed
+     */
+    public Document getDocument() {
+
+        return document;
+    }
+
+    /**
+     * Retrieves parsing error.
+     *
+     * @return
+     *      Parsing error or {@code null} if file has been parsed
+     */
+    public Exception getError() {
+
+        return error;
+    }
+
+    /**
+     * Checks whether file has been parsed.
+     *
+     * @return
+     *      {@code true} if document is available, {@code false} otherwise
+     */
+    public boolean isSuccessful() {
+
+        return document != null;
+    }
+}
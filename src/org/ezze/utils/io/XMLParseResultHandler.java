@@ -0,0 +1,18 @@
+package org.ezze.utils.io;
+
+/**
+ * Receives results of parsing files by {@link XMLBulkReader} as soon as they are available.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public interface XMLParseResultHandler {
+
+    /**
+     * Handles result of parsing a single file.
+     *
+     * @param result
+     *      Parsing result
+     */
+    void handleResult(XMLParseResult result);
+}
@@ -0,0 +1,59 @@
+package org.ezze.utils.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import javax.xml.stream.XMLResolver;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+/**
+ * Keeps parser features and resolvers shared by XML readers
+ * to prevent loading of external DTDs and entities.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+class XMLParserFeatures {
+
+    /**
+     * Feature enabling loading of external DTD by non-validating parsers.
+     */
+    static final String LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+
+    /**
+     * Feature enabling inclusion of external general entities.
+     */
+    static final String EXTERNAL_GENERAL_ENTITIES = "http://xml.org/sax/features/external-general-entities";
+
+    /**
+     * Feature enabling inclusion of external parameter entities and external DTD subset.
+     */
+    static final String EXTERNAL_PARAMETER_ENTITIES = "http://xml.org/sax/features/external-parameter-entities";
+
+    /**
+     * SAX resolver replacing each external entity with empty content.
+     */
+    static final EntityResolver EMPTY_ENTITY_RESOLVER = new EntityResolver() {
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) {
+
+            InputSource inputSource = new InputSource(new StringReader(""));
+            inputSource.setPublicId(publicId);
+            inputSource.setSystemId(systemId);
+            return inputSource;
+        }
+    };
+
+    /**
+     * StAX resolver replacing each external entity with empty content.
+     */
+    static final XMLResolver EMPTY_XML_RESOLVER = new XMLResolver() {
+
+        @Override
+        public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) {
+
+            return new ByteArrayInputStream(new byte[0]);
+        }
+    };
+}
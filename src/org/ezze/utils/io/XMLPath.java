@@ -0,0 +1,29 @@
+package org.ezze.utils.io;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a field to a value of XML element or attribute for {@link XMLBinder}.
+ *
+ * Path is relative to bound element and consists of child element names
+ * optionally ending with an attribute: "port", "server/port", "@id", "server/@host".
+ * Path "." binds text content of bound element itself.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface XMLPath {
+
+    /**
+     * Retrieves path of bound value.
+     *
+     * @return
+     *      Relative path of element or attribute
+     */
+    String value();
+}
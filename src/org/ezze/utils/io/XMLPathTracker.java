@@ -0,0 +1,100 @@
+package org.ezze.utils.io;
+
+import java.util.Arrays;
+
+/**
+ * Tracks an absolute path ("/root/child/element") of current element
+ * while XML document is being read sequentially.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+class XMLPathTracker {
+
+    /**
+     * Current element's absolute path.
+     */
+    private final StringBuilder path = new StringBuilder();
+
+    /**
+     * Lengths of the path before each open element has been entered.
+     */
+    private int[] pathLengths = new int[16];
+
+    /**
+     * Count of open elements.
+     */
+    private int depth = 0;
+
+    /**
+     * Enters an element.
+     *
+     * @param elementName
+     *      Element's name
+     */
+    void push(String elementName) {
+
+        if (depth == pathLengths.length)
+            pathLengths = Arrays.copyOf(pathLengths, depth * 2);
+
+        pathLengths[depth++] = path.length();
+        path.append('/').append(elementName);
+    }
+
+    /**
+     * Leaves current element.
+     */
+    void pop() {
+
+        if (depth == 0)
+            return;
+
+        path.setLength(pathLengths[--depth]);
+    }
+
+    /**
+     * Retrieves current element's absolute path.
+     *
+     * @return
+     *      Absolute path
+     */
+    String getPath() {
+
+        return path.toString();
+    }
+
+    /**
+     * Retrieves count of open elements.
+     *
+     * @return
+     *      Current depth, {@code 1} for root element
+     */
+    int getDepth() {
+
+        return depth;
+    }
+
+    /**
+     * Normalizes element path used to register handlers or select subtrees:
+     * absolute paths lose ending slashes, "//name" paths are kept as is.
+     *
+     * @param path
+     *      Element path
+     * @return
+     *      Normalized path or {@code null} if path is not absolute
+     */
+    static String normalize(String path) {
+
+        if (path == null || !path.startsWith("/"))
+            return null;
+
+        String normalizedPath = path;
+        while (normalizedPath.length() > 1 && normalizedPath.endsWith("/") && !normalizedPath.equals("//"))
+            normalizedPath = normalizedPath.substring(0, normalizedPath.length() - 1);
+
+        if (normalizedPath.equals("/") || normalizedPath.equals("//"))
+            return null;
+
+        return normalizedPath;
+    }
+}
@@ -0,0 +1,513 @@
+package org.ezze.utils.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads only selected subtrees of XML documents into a small DOM.
+ *
+ * Subtrees are selected by absolute element paths ("/catalog/settings")
+ * or by element names at any depth ("//item"). Everything else is skipped
+ * while parsing, resulting document contains selected elements with all their
+ * descendants and bare ancestor elements (without attributes and text) leading to them,
+ * so selected elements are found by {@link XMLHelper}'s getters at their original paths.
+ * GZip-compressed sources are detected and decompressed on the fly.
+ * External DTDs and entities are not loaded unless a resolver is set.
+ *
+ * Reader's paths and resolver should be set before reading, the reader itself
+ * may be used by several threads simultaneously afterwards.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public class XMLProjectionReader {
+
+    /**
+     * Selected absolute element paths.
+     */
+    private final HashSet<String> selectedPaths = new HashSet<String>();
+
+    /**
+     * Names of elements selected paths end with, used to skip path comparisons.
+     */
+    private final HashSet<String> selectedPathsNames = new HashSet<String>();
+
+    /**
+     * Selected element names at any depth.
+     */
+    private final HashSet<String> selectedNames = new HashSet<String>();
+
+    /**
+     * Shows whether only the first subtree of each selected path is read.
+     */
+    private boolean isFirstMatchOnly = false;
+
+    /**
+     * Resolver of external DTDs and entities or {@code null} to skip them.
+     */
+    private EntityResolver entityResolver = null;
+
+    /**
+     * Factory of SAX parsers.
+     */
+    private final SAXParserFactory parserFactory;
+
+    /**
+     * Creates projection reader without selected paths.
+     */
+    public XMLProjectionReader() {
+
+        parserFactory = SAXParserFactory.newInstance();
+        setExternalEntitiesFeatures(false);
+    }
+
+    /**
+     * Sets resolver of external DTDs and entities, e.g. {@link XMLEntityCatalog}.
+     * External DTDs and entities are loaded through the resolver only.
+     *
+     * @param entityResolver
+     *      Entity resolver or {@code null} to skip external entities
+     */
+    public void setEntityResolver(EntityResolver entityResolver) {
+
+        this.entityResolver = entityResolver;
+        synchronized (parserFactory) {
+
+            setExternalEntitiesFeatures(entityResolver != null);
+        }
+    }
+
+    /**
+     * Enables or disables loading of external DTDs and entities by created parsers,
+     * parsers not supporting these features resolve entities to empty content.
+     *
+     * @param isLoadingExternalEntities
+     *      External entities loading flag
+     */
+    private void setExternalEntitiesFeatures(boolean isLoadingExternalEntities) {
+
+        String[] features = { XMLParserFeatures.LOAD_EXTERNAL_DTD, XMLParserFeatures.EXTERNAL_GENERAL_ENTITIES,
+                XMLParserFeatures.EXTERNAL_PARAMETER_ENTITIES };
+        for (String feature : features) {
+
+            try {
+
+                parserFactory.setFeature(feature, isLoadingExternalEntities);
+            }
+            catch (ParserConfigurationException ex) {
+
+            }
+            catch (SAXException ex) {
+
+            }
+        }
+    }
+
+    /**
+     * Selects subtrees with specified path.
+     *
+     * @param path
+     *      Absolute element path ("/root/child/element") or element name
+     *      at any depth prefixed by double slash ("//element")
+     * @return
+     *      {@code true} if path has been added, {@code false} if path is invalid
+     */
+    public boolean addPath(String path) {
+
+        String normalizedPath = XMLPathTracker.normalize(path);
+        if (normalizedPath == null)
+            return false;
+
+        if (normalizedPath.startsWith("//")) {
+
+            selectedNames.add(normalizedPath.substring(2));
+            return true;
+        }
+
+        selectedPaths.add(normalizedPath);
+        selectedPathsNames.add(normalizedPath.substring(normalizedPath.lastIndexOf('/') + 1));
+        return true;
+    }
+
+    /**
+     * Sets whether only the first subtree of each selected path should be read.
+     * Parsing stops as soon as all selected paths have been matched.
+     *
+     * @param isFirstMatchOnly
+     *      First match flag
+     */
+    public void setFirstMatchOnly(boolean isFirstMatchOnly) {
+
+        this.isFirstMatchOnly = isFirstMatchOnly;
+    }
+
+    /**
+     * Checks whether only the first subtree of each selected path is read.
+     *
+     * @return
+     *      {@code true} if only the first subtrees are read, {@code false} otherwise
+     */
+    public boolean isFirstMatchOnly() {
+
+        return isFirstMatchOnly;
+    }
+
+    /**
+     * Reads selected subtrees of specified XML file.
+     *
+     * @param xmlFileName
+     *      XML file's name
+     * @return
+     *      Projected document or {@code null} if XML file cannot be read
+     * @see #read(java.io.File)
+     */
+    public Document read(String xmlFileName) {
+
+        if (xmlFileName == null)
+            return null;
+
+        return read(new File(xmlFileName));
+    }
+
+    /**
+     * Reads selected subtrees of specified XML file (possibly GZip-compressed).
+     *
+     * @param xmlFile
+     *      XML file
+     * @return
+     *      Projected document or {@code null} if XML file cannot be read
+     */
+    public Document read(File xmlFile) {
+
+        if (xmlFile == null || !xmlFile.isFile())
+            return null;
+
+        InputStream inputStream = null;
+        try {
+
+            inputStream = new FileInputStream(xmlFile);
+        }
+        catch (FileNotFoundException ex) {
+
+            return null;
+        }
+
+        try {
+
+            return read(inputStream);
+        }
+        finally {
+
+            try {
+
+                inputStream.close();
+            }
+            catch (IOException ex) {
+
+            }
+        }
+    }
+
+    /**
+     * Reads selected subtrees from input stream (possibly GZip-compressed), the stream is not closed.
+     *
+     * @param inputStream
+     *      XML input stream
+     * @return
+     *      Projected document (without root element if nothing has been selected)
+     *      or {@code null} if XML cannot be read
+     */
+    public Document read(InputStream inputStream) {
+
+        if (inputStream == null)
+            return null;
+
+        // Creating empty document with a pooled builder
+        DocumentBuilderPool pool = XMLHelper.getDocumentBuilderPool();
+        DocumentBuilder db = pool.borrow();
+        if (db == null)
+            return null;
+
+        Document xmlDocument;
+        try {
+
+            xmlDocument = db.newDocument();
+        }
+        finally {
+
+            pool.release(db);
+        }
+
+        ProjectionHandler projectionHandler = new ProjectionHandler(xmlDocument);
+        try {
+
+            SAXParser parser;
+            synchronized (parserFactory) {
+
+                parser = parserFactory.newSAXParser();
+            }
+
+            parser.parse(XMLStreamingReader.decompressIfGZipped(inputStream), projectionHandler);
+            return xmlDocument;
+        }
+        catch (SAXException ex) {
+
+            // Parsing has been stopped once all selected paths have been matched
+            if (projectionHandler.isCompleted())
+                return xmlDocument;
+        }
+        catch (ParserConfigurationException ex) {
+
+        }
+        catch (IOException ex) {
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Builds projected document from SAX events.
+     */
+    private class ProjectionHandler extends DefaultHandler {
+
+        /**
+         * Projected document.
+         */
+        private final Document xmlDocument;
+
+        /**
+         * Tracker of current element's path.
+         */
+        private final XMLPathTracker pathTracker = new XMLPathTracker();
+
+        /**
+         * Names of open elements.
+         */
+        private final ArrayList<String> openNames = new ArrayList<String>();
+
+        /**
+         * Created elements of open elements or {@code null} for skipped ones.
+         */
+        private final ArrayList<Element> openElements = new ArrayList<Element>();
+
+        /**
+         * Count of open elements within current selected subtree.
+         */
+        private int selectedDepth = 0;
+
+        /**
+         * Text collected since the last tag within selected subtree.
+         */
+        private final StringBuilder text = new StringBuilder();
+
+        /**
+         * Paths and names already matched in first match mode.
+         */
+        private final HashSet<String> matchedSelections = new HashSet<String>();
+
+        /**
+         * Selection matched by current selected subtree's root.
+         */
+        private String currentSelection = null;
+
+        /**
+         * Shows whether all selected paths have been matched in first match mode.
+         */
+        private boolean isCompleted = false;
+
+        /**
+         * Creates handler.
+         *
+         * @param xmlDocument
+         *      Empty projected document
+         */
+        ProjectionHandler(Document xmlDocument) {
+
+            this.xmlDocument = xmlDocument;
+        }
+
+        /**
+         * Checks whether parsing has been stopped since all selected paths have been matched.
+         *
+         * @return
+         *      {@code true} if parsing has been completed, {@code false} otherwise
+         */
+        boolean isCompleted() {
+
+            return isCompleted;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) throws IOException, SAXException {
+
+            EntityResolver resolver = entityResolver != null ? entityResolver : XMLParserFeatures.EMPTY_ENTITY_RESOLVER;
+            return resolver.resolveEntity(publicId, systemId);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+
+            pathTracker.push(qName);
+            openNames.add(qName);
+
+            if (selectedDepth > 0) {
+
+                flushText();
+                appendElement(qName, attributes);
+                selectedDepth++;
+                return;
+            }
+
+            String selection = getSelection(qName);
+            if (selection == null) {
+
+                openElements.add(null);
+                return;
+            }
+
+            // Creating bare ancestors of selected element
+            for (int ancestorIndex = 0; ancestorIndex < openElements.size(); ancestorIndex++) {
+
+                if (openElements.get(ancestorIndex) == null) {
+
+                    Element ancestorElement = xmlDocument.createElement(openNames.get(ancestorIndex));
+                    getParentNode(ancestorIndex).appendChild(ancestorElement);
+                    openElements.set(ancestorIndex, ancestorElement);
+                }
+            }
+
+            appendElement(qName, attributes);
+            currentSelection = selection;
+            selectedDepth = 1;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+
+            if (selectedDepth > 0) {
+
+                flushText();
+                selectedDepth--;
+                if (selectedDepth == 0 && isFirstMatchOnly) {
+
+                    matchedSelections.add(currentSelection);
+                    if (matchedSelections.size() == selectedPaths.size() + selectedNames.size()) {
+
+                        isCompleted = true;
+                        throw new SAXException("All selected paths have been read");
+                    }
+                }
+            }
+
+            openNames.remove(openNames.size() - 1);
+            openElements.remove(openElements.size() - 1);
+            pathTracker.pop();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void characters(char[] ch, int start, int length) {
+
+            if (selectedDepth > 0)
+                text.append(ch, start, length);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+
+            characters(ch, start, length);
+        }
+
+        /**
+         * Retrieves selection matched by current element.
+         *
+         * @param elementName
+         *      Current element's name
+         * @return
+         *      Matched path or name prefixed with double slash or {@code null} if element is not selected
+         */
+        private String getSelection(String elementName) {
+
+            if (selectedPathsNames.contains(elementName)) {
+
+                String path = pathTracker.getPath();
+                if (selectedPaths.contains(path) && !(isFirstMatchOnly && matchedSelections.contains(path)))
+                    return path;
+            }
+
+            if (selectedNames.contains(elementName)) {
+
+                String selection = "//" + elementName;
+                if (!(isFirstMatchOnly && matchedSelections.contains(selection)))
+                    return selection;
+            }
+
+            return null;
+        }
+
+        /**
+         * Creates element with attributes and appends it to current parent.
+         *
+         * @param elementName
+         *      Element's name
+         * @param attributes
+         *      Element's attributes
+         */
+        private void appendElement(String elementName, Attributes attributes) {
+
+            Element element = xmlDocument.createElement(elementName);
+            for (int attributeIndex = 0; attributeIndex < attributes.getLength(); attributeIndex++)
+                element.setAttribute(attributes.getQName(attributeIndex), attributes.getValue(attributeIndex));
+
+            getParentNode(openElements.size()).appendChild(element);
+            openElements.add(element);
+        }
+
+        /**
+         * Retrieves parent node of open element with specified index.
+         *
+         * @param elementIndex
+         *      Index of open element
+         * @return
+         *      Parent element or document for root element
+         */
+        private Node getParentNode(int elementIndex) {
+
+            return elementIndex == 0 ? xmlDocument : openElements.get(elementIndex - 1);
+        }
+
+        /**
+         * Appends collected text to current element.
+         */
+        private void flushText() {
+
+            if (text.length() == 0)
+                return;
+
+            openElements.get(openElements.size() - 1).appendChild(xmlDocument.createTextNode(text.toString()));
+            text.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package org.ezze.utils.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Evaluates XPath queries for {@link XMLHelper}.
+ *
+ * Compiled queries are kept in a per-thread LRU cache keyed by expression
+ * since compiled XPath expressions are not thread-safe. Simple child paths
+ * optionally ending with an attribute ("items/item/@id", "/root/items") are
+ * evaluated directly over cached child elements without XPath.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+class XMLQuery {
+
+    /**
+     * Maximal count of compiled queries cached by each thread.
+     */
+    static final int CACHE_CAPACITY = 128;
+
+    /**
+     * Marker of expressions which cannot be compiled.
+     */
+    private static final XMLQuery INVALID_QUERY = new XMLQuery(null, null, false, null);
+
+    /**
+     * Compiled queries of current thread.
+     */
+    private static final ThreadLocal<QueryCache> queryCache = new ThreadLocal<QueryCache>() {
+
+        @Override
+        protected QueryCache initialValue() {
+
+            return new QueryCache();
+        }
+    };
+
+    /**
+     * Names of elements to step through for simple paths or {@code null}.
+     */
+    private final String[] elementSteps;
+
+    /**
+     * Name of attribute simple path ends with or {@code null}.
+     */
+    private final String attributeName;
+
+    /**
+     * Shows whether simple path starts from document's root.
+     */
+    private final boolean isAbsolute;
+
+    /**
+     * Compiled XPath expression of non-simple paths or {@code null}.
+     */
+    private final XPathExpression xpathExpression;
+
+    /**
+     * Shows whether XPath expression has been found to return a node set.
+     */
+    private boolean isNodeSetExpression = true;
+
+    /**
+     * Creates compiled query.
+     *
+     * @param elementSteps
+     *      Names of elements to step through or {@code null}
+     * @param attributeName
+     *      Name of attribute the path ends with or {@code null}
+     * @param isAbsolute
+     *      Shows whether path starts from document's root
+     * @param xpathExpression
+     *      Compiled XPath expression or {@code null}
+     */
+    private XMLQuery(String[] elementSteps, String attributeName, boolean isAbsolute, XPathExpression xpathExpression) {
+
+        this.elementSteps = elementSteps;
+        this.attributeName = attributeName;
+        this.isAbsolute = isAbsolute;
+        this.xpathExpression = xpathExpression;
+    }
+
+    /**
+     * Retrieves compiled query of specified expression from current thread's cache.
+     *
+     * @param expression
+     *      XPath expression
+     * @return
+     *      Compiled query or {@code null} if expression is invalid
+     */
+    static XMLQuery compile(String expression) {
+
+        if (expression == null)
+            return null;
+
+        QueryCache cache = queryCache.get();
+        XMLQuery query = cache.get(expression);
+        if (query == null) {
+
+            query = parseSimplePath(expression);
+            if (query == null) {
+
+                try {
+
+                    query = new XMLQuery(null, null, false, cache.getXPath().compile(expression));
+                }
+                catch (XPathExpressionException ex) {
+
+                    query = INVALID_QUERY;
+                }
+            }
+
+            cache.put(expression, query);
+        }
+
+        return query != INVALID_QUERY ? query : null;
+    }
+
+    /**
+     * Parses simple path consisting of element names optionally ending with an attribute.
+     *
+     * @param expression
+     *      XPath expression
+     * @return
+     *      Simple path query or {@code null} if expression is not a simple path
+     */
+    static XMLQuery parseSimplePath(String expression) {
+
+        boolean isAbsolute = expression.startsWith("/");
+        String[] steps = (isAbsolute ? expression.substring(1) : expression).split("/", -1);
+
+        String attributeName = null;
+        int elementStepsCount = steps.length;
+        String lastStep = steps[steps.length - 1];
+        if (lastStep.startsWith("@")) {
+
+            attributeName = lastStep.substring(1);
+            if (!isName(attributeName))
+                return null;
+            elementStepsCount--;
+        }
+
+        if (isAbsolute && elementStepsCount == 0)
+            return null;
+
+        String[] elementSteps = new String[elementStepsCount];
+        for (int stepIndex = 0; stepIndex < elementStepsCount; stepIndex++) {
+
+            if (!isName(steps[stepIndex]))
+                return null;
+            elementSteps[stepIndex] = steps[stepIndex];
+        }
+
+        return new XMLQuery(elementSteps, attributeName, isAbsolute, null);
+    }
+
+    /**
+     * Retrieves names of elements simple path steps through.
+     *
+     * @return
+     *      Element names or {@code null} if query is not a simple path
+     */
+    String[] getElementSteps() {
+
+        return elementSteps;
+    }
+
+    /**
+     * Retrieves name of attribute simple path ends with.
+     *
+     * @return
+     *      Attribute's name or {@code null} if path ends with an element
+     */
+    String getAttributeName() {
+
+        return attributeName;
+    }
+
+    /**
+     * Checks whether simple path starts from document's root.
+     *
+     * @return
+     *      {@code true} if path is absolute, {@code false} otherwise
+     */
+    boolean isAbsolute() {
+
+        return isAbsolute;
+    }
+
+    /**
+     * Checks whether specified step is a plain element or attribute name.
+     *
+     * @param step
+     *      Path step
+     * @return
+     *      {@code true} if step is a name, {@code false} otherwise
+     */
+    private static boolean isName(String step) {
+
+        if (step.isEmpty())
+            return false;
+
+        for (int charIndex = 0; charIndex < step.length(); charIndex++) {
+
+            char stepChar = step.charAt(charIndex);
+            if (Character.isLetter(stepChar) || stepChar == '_' || stepChar == ':')
+                continue;
+
+            if (charIndex > 0 && (Character.isDigit(stepChar) || stepChar == '-' || stepChar == '.'))
+                continue;
+
+            return false;
+        }
+
+        // Axis specifiers are not plain names
+        return step.indexOf("::") < 0;
+    }
+
+    /**
+     * Selects the first element matched by the query.
+     *
+     * @param contextNode
+     *      Document or element the query is evaluated against
+     * @return
+     *      Element or {@code null} if no element is matched
+     */
+    Element selectElement(Node contextNode) {
+
+        if (xpathExpression == null) {
+
+            if (attributeName != null)
+                return null;
+
+            ArrayList<Element> matchedElements = new ArrayList<Element>(1);
+            collectElements(contextNode, matchedElements, true);
+            return matchedElements.isEmpty() ? null : matchedElements.get(0);
+        }
+
+        NodeList matchedNodes = evaluateNodeSet(contextNode);
+        if (matchedNodes == null)
+            return null;
+
+        for (int nodeIndex = 0; nodeIndex < matchedNodes.getLength(); nodeIndex++) {
+
+            if (matchedNodes.item(nodeIndex).getNodeType() == Node.ELEMENT_NODE)
+                return (Element)matchedNodes.item(nodeIndex);
+        }
+
+        return null;
+    }
+
+    /**
+     * Selects all elements matched by the query in document order.
+     *
+     * @param contextNode
+     *      Document or element the query is evaluated against
+     * @return
+     *      List of elements (empty if no element is matched)
+     */
+    List<Element> selectElements(Node contextNode) {
+
+        if (xpathExpression == null) {
+
+            if (attributeName != null)
+                return Collections.emptyList();
+
+            ArrayList<Element> matchedElements = new ArrayList<Element>();
+            collectElements(contextNode, matchedElements, false);
+            return matchedElements;
+        }
+
+        NodeList matchedNodes = evaluateNodeSet(contextNode);
+        if (matchedNodes == null)
+            return Collections.emptyList();
+
+        ArrayList<Element> matchedElements = new ArrayList<Element>(matchedNodes.getLength());
+        for (int nodeIndex = 0; nodeIndex < matchedNodes.getLength(); nodeIndex++) {
+
+            if (matchedNodes.item(nodeIndex).getNodeType() == Node.ELEMENT_NODE)
+                matchedElements.add((Element)matchedNodes.item(nodeIndex));
+        }
+
+        return matchedElements;
+    }
+
+    /**
+     * Selects string value of the query's result: text content of the first
+     * matched element, value of the first matched attribute or value of non node set expression.
+     *
+     * @param contextNode
+     *      Document or element the query is evaluated against
+     * @return
+     *      String value or {@code null} if nothing is matched
+     */
+    String selectString(Node contextNode) {
+
+        if (xpathExpression == null) {
+
+            ArrayList<Element> matchedElements = new ArrayList<Element>(1);
+            collectElements(contextNode, matchedElements, true);
+            if (matchedElements.isEmpty())
+                return null;
+
+            Element matchedElement = matchedElements.get(0);
+            return attributeName != null ? matchedElement.getAttribute(attributeName) : matchedElement.getTextContent();
+        }
+
+        if (isNodeSetExpression) {
+
+            NodeList matchedNodes = evaluateNodeSet(contextNode);
+            if (isNodeSetExpression) {
+
+                if (matchedNodes == null || matchedNodes.getLength() == 0)
+                    return null;
+
+                Node matchedNode = matchedNodes.item(0);
+                return matchedNode.getNodeType() == Node.ATTRIBUTE_NODE ? ((Attr)matchedNode).getValue() : matchedNode.getTextContent();
+            }
+        }
+
+        try {
+
+            return (String)xpathExpression.evaluate(contextNode, XPathConstants.STRING);
+        }
+        catch (XPathExpressionException ex) {
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Evaluates XPath expression as a node set remembering expressions returning other types.
+     *
+     * @param contextNode
+     *      Node the expression is evaluated against
+     * @return
+     *      Matched nodes or {@code null} if expression cannot be evaluated
+     */
+    private NodeList evaluateNodeSet(Node contextNode) {
+
+        if (contextNode == null || !isNodeSetExpression)
+            return null;
+
+        try {
+
+            return (NodeList)xpathExpression.evaluate(contextNode, XPathConstants.NODESET);
+        }
+        catch (XPathExpressionException ex) {
+
+            // Expressions like "count(item)" don't return node sets
+            isNodeSetExpression = false;
+        }
+
+        return null;
+    }
+
+    /**
+     * Collects elements matched by simple path in document order.
+     *
+     * @param contextNode
+     *      Document or element the path is evaluated against
+     * @param matchedElements
+     *      Matched elements
+     * @param isFirstOnly
+     *      Shows whether collecting should stop at the first matched element
+     */
+    private void collectElements(Node contextNode, List<Element> matchedElements, boolean isFirstOnly) {
+
+        if (contextNode == null)
+            return;
+
+        Element startElement;
+        int startStepIndex;
+        if (isAbsolute || contextNode.getNodeType() == Node.DOCUMENT_NODE) {
+
+            // The first step is matched against document's root element
+            Document xmlDocument = contextNode.getNodeType() == Node.DOCUMENT_NODE ? (Document)contextNode : contextNode.getOwnerDocument();
+            if (xmlDocument == null || elementSteps.length == 0)
+                return;
+
+            startElement = xmlDocument.getDocumentElement();
+            if (startElement == null || !startElement.getTagName().equals(elementSteps[0]))
+                return;
+            startStepIndex = 1;
+        }
+        else if (contextNode.getNodeType() == Node.ELEMENT_NODE) {
+
+            startElement = (Element)contextNode;
+            startStepIndex = 0;
+        }
+        else
+            return;
+
+        collectElements(startElement, startStepIndex, matchedElements, isFirstOnly);
+    }
+
+    /**
+     * Collects elements matched by remaining steps of simple path.
+     *
+     * @param element
+     *      Element matched by previous steps
+     * @param stepIndex
+     *      Index of the next step
+     * @param matchedElements
+     *      Matched elements
+     * @param isFirstOnly
+     *      Shows whether collecting should stop at the first matched element
+     * @return
+     *      {@code true} if collecting should stop, {@code false} otherwise
+     */
+    private boolean collectElements(Element element, int stepIndex, List<Element> matchedElements, boolean isFirstOnly) {
+
+        if (stepIndex == elementSteps.length) {
+
+            if (attributeName != null && !element.hasAttribute(attributeName))
+                return false;
+
+            matchedElements.add(element);
+            return isFirstOnly;
+        }
+
+        for (Element childElement : XMLElementChildren.of(element).getNamed(elementSteps[stepIndex])) {
+
+            if (collectElements(childElement, stepIndex + 1, matchedElements, isFirstOnly))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * LRU cache of compiled queries owned by a single thread.
+     */
+    private static class QueryCache extends LinkedHashMap<String, XMLQuery> {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * XPath instance compiling expressions of the thread.
+         */
+        private transient XPath xpath = null;
+
+        /**
+         * Creates empty cache.
+         */
+        QueryCache() {
+
+            super(16, 0.75f, true);
+        }
+
+        /**
+         * Retrieves XPath instance of the thread.
+         *
+         * @return
+         *      XPath instance
+         */
+        XPath getXPath() {
+
+            if (xpath == null)
+                xpath = XPathFactory.newInstance().newXPath();
+
+            return xpath;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, XMLQuery> eldestEntry) {
+
+            return size() > CACHE_CAPACITY;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.ezze.utils.io;
+
+/**
+ * Receives objects bound from streamed XML records by {@link XMLBinder}.
+ *
+ * @param <T>
+ *      Type of bound objects
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public interface XMLRecordHandler<T> {
+
+    /**
+     * Handles bound object once its record's end tag has been read.
+     *
+     * @param record
+     *      Bound object
+     */
+    void handleRecord(T record);
+}
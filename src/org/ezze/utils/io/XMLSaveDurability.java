@@ -0,0 +1,27 @@
+package org.ezze.utils.io;
+
+/**
+ * Durability levels of XML files written by {@link XMLHelper}.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see XMLHelper#setSaveDurability(org.ezze.utils.io.XMLSaveDurability)
+ */
+public enum XMLSaveDurability {
+
+    /**
+     * Written data is left in the operating system's cache.
+     */
+    NONE,
+
+    /**
+     * Written file's data is forced to the storage before the file replaces the original one.
+     */
+    FILE,
+
+    /**
+     * Written file's data and its directory entry are forced to the storage,
+     * so a replaced file survives a system crash.
+     */
+    FILE_AND_DIRECTORY
+}
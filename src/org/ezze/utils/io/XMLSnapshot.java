@@ -0,0 +1,803 @@
+package org.ezze.utils.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import javax.xml.parsers.DocumentBuilder;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * Reads and writes DOM documents in a compact binary snapshot format
+ * which loads much faster than parsing XML text.
+ *
+ * A snapshot keeps a table of distinct strings (names and values) followed
+ * by node structure in primitive arrays: node types, children counts,
+ * indices of names, values and namespaces in the string table, and attributes.
+ * Arrays are kept as integers of variable length, so snapshots are usually
+ * smaller than source documents.
+ * Elements, attributes, text, CDATA sections, comments and processing instructions
+ * are kept, unexpanded entity references are replaced with their text.
+ * Document type declarations are not kept.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see XMLSnapshotCache
+ */
+public class XMLSnapshot {
+
+    /**
+     * Snapshot's signature ("EZXS").
+     */
+    private static final int SIGNATURE = 0x455A5853;
+
+    /**
+     * Snapshot format's version.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Index of absent strings.
+     */
+    private static final int NO_STRING = -1;
+
+    /**
+     * Charset of strings in the string table.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Writes snapshot of XML document to specified file.
+     *
+     * @param xmlDocument
+     *      XML document
+     * @param snapshotFile
+     *      Snapshot file
+     * @return
+     *      {@code true} if snapshot has been written, {@code false} otherwise
+     */
+    public static boolean write(Document xmlDocument, File snapshotFile) {
+
+        if (xmlDocument == null || snapshotFile == null)
+            return false;
+
+        OutputStream outputStream = null;
+        try {
+
+            outputStream = new FileOutputStream(snapshotFile);
+            return write(xmlDocument, outputStream);
+        }
+        catch (IOException ex) {
+
+        }
+        finally {
+
+            try {
+
+                if (outputStream != null)
+                    outputStream.close();
+            }
+            catch (IOException ex) {
+
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes snapshot of XML document to output stream, the stream is not closed.
+     *
+     * @param xmlDocument
+     *      XML document
+     * @param outputStream
+     *      Output stream
+     * @return
+     *      {@code true} if snapshot has been written, {@code false} otherwise
+     */
+    public static boolean write(Document xmlDocument, OutputStream outputStream) {
+
+        if (xmlDocument == null || outputStream == null)
+            return false;
+
+        SnapshotBuilder snapshotBuilder = new SnapshotBuilder();
+        snapshotBuilder.addNodes(xmlDocument);
+
+        try {
+
+            DataOutputStream dataStream = new DataOutputStream(new BufferedOutputStream(outputStream, 65536));
+            snapshotBuilder.write(dataStream);
+            dataStream.flush();
+            return true;
+        }
+        catch (IOException ex) {
+
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads XML document from specified snapshot file.
+     *
+     * @param snapshotFile
+     *      Snapshot file
+     * @return
+     *      XML document or {@code null} if snapshot cannot be read
+     */
+    public static Document read(File snapshotFile) {
+
+        if (snapshotFile == null || !snapshotFile.isFile())
+            return null;
+
+        FileInputStream inputStream = null;
+        try {
+
+            inputStream = new FileInputStream(snapshotFile);
+            FileChannel snapshotChannel = inputStream.getChannel();
+            long snapshotSize = snapshotChannel.size();
+            if (snapshotSize > Integer.MAX_VALUE)
+                return null;
+
+            ByteBuffer snapshotBuffer = ByteBuffer.allocate((int)snapshotSize);
+            while (snapshotBuffer.hasRemaining()) {
+
+                if (snapshotChannel.read(snapshotBuffer) < 0)
+                    return null;
+            }
+
+            snapshotBuffer.flip();
+            return read(snapshotBuffer);
+        }
+        catch (IOException ex) {
+
+        }
+        finally {
+
+            try {
+
+                if (inputStream != null)
+                    inputStream.close();
+            }
+            catch (IOException ex) {
+
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads XML document from snapshot input stream, the stream is not closed.
+     *
+     * @param inputStream
+     *      Snapshot input stream
+     * @return
+     *      XML document or {@code null} if snapshot cannot be read
+     */
+    public static Document read(InputStream inputStream) {
+
+        if (inputStream == null)
+            return null;
+
+        try {
+
+            ByteArrayOutputStream snapshotStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[65536];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) >= 0)
+                snapshotStream.write(buffer, 0, bytesRead);
+
+            return read(ByteBuffer.wrap(snapshotStream.toByteArray()));
+        }
+        catch (IOException ex) {
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads XML document from snapshot's bytes.
+     *
+     * @param snapshotBuffer
+     *      Snapshot's bytes
+     * @return
+     *      XML document or {@code null} if snapshot is malformed
+     */
+    private static Document read(ByteBuffer snapshotBuffer) {
+
+        try {
+
+            if (snapshotBuffer.getInt() != SIGNATURE || snapshotBuffer.getInt() != FORMAT_VERSION)
+                return null;
+
+            boolean isNamespaceAware = snapshotBuffer.get() != 0;
+
+            // Reading string table
+            String[] strings = new String[readVarInt(snapshotBuffer)];
+            byte[] stringBytes = snapshotBuffer.array();
+            for (int stringIndex = 0; stringIndex < strings.length; stringIndex++) {
+
+                int stringLength = readVarInt(snapshotBuffer);
+                strings[stringIndex] = new String(stringBytes, snapshotBuffer.arrayOffset() + snapshotBuffer.position(), stringLength, UTF8);
+                snapshotBuffer.position(snapshotBuffer.position() + stringLength);
+            }
+
+            // Reading nodes
+            int nodesCount = readVarInt(snapshotBuffer);
+            byte[] nodeTypes = new byte[nodesCount];
+            snapshotBuffer.get(nodeTypes);
+            int[] childrenCounts = readInts(snapshotBuffer, nodesCount);
+            int[] nodeNames = readInts(snapshotBuffer, nodesCount);
+            int[] nodeValues = readInts(snapshotBuffer, nodesCount);
+            int[] nodeNamespaces = readInts(snapshotBuffer, nodesCount);
+            int[] attributesCounts = readInts(snapshotBuffer, nodesCount);
+
+            int attributesCount = readVarInt(snapshotBuffer);
+            int[] attributeNames = readInts(snapshotBuffer, attributesCount);
+            int[] attributeValues = readInts(snapshotBuffer, attributesCount);
+            int[] attributeNamespaces = readInts(snapshotBuffer, attributesCount);
+
+            if (nodesCount == 0 || nodeTypes[0] != Node.DOCUMENT_NODE)
+                return null;
+
+            // Creating document with a pooled builder
+            DocumentBuilderPool pool = XMLHelper.getDocumentBuilderPool();
+            DocumentBuilder db = pool.borrow();
+            if (db == null)
+                return null;
+
+            Document xmlDocument;
+            try {
+
+                xmlDocument = db.newDocument();
+            }
+            finally {
+
+                pool.release(db);
+            }
+
+            // Rebuilding nodes in document order
+            Node[] parentNodes = new Node[16];
+            int[] remainingChildren = new int[16];
+            int depth = 0;
+            parentNodes[0] = xmlDocument;
+            remainingChildren[0] = childrenCounts[0];
+            int attributeIndex = 0;
+
+            for (int nodeIndex = 1; nodeIndex < nodesCount; nodeIndex++) {
+
+                while (remainingChildren[depth] == 0)
+                    depth--;
+
+                Node node;
+                switch (nodeTypes[nodeIndex]) {
+
+                    case Node.ELEMENT_NODE:
+
+                        Element element = !isNamespaceAware ? xmlDocument.createElement(strings[nodeNames[nodeIndex]]) :
+                                xmlDocument.createElementNS(getString(strings, nodeNamespaces[nodeIndex]), strings[nodeNames[nodeIndex]]);
+                        for (int elementAttributeIndex = 0; elementAttributeIndex < attributesCounts[nodeIndex]; elementAttributeIndex++, attributeIndex++) {
+
+                            if (!isNamespaceAware)
+                                element.setAttribute(strings[attributeNames[attributeIndex]], strings[attributeValues[attributeIndex]]);
+                            else
+                                element.setAttributeNS(getString(strings, attributeNamespaces[attributeIndex]), strings[attributeNames[attributeIndex]], strings[attributeValues[attributeIndex]]);
+                        }
+                        node = element;
+                        break;
+
+                    case Node.TEXT_NODE:
+
+                        node = xmlDocument.createTextNode(strings[nodeValues[nodeIndex]]);
+                        break;
+
+                    case Node.CDATA_SECTION_NODE:
+
+                        node = xmlDocument.createCDATASection(strings[nodeValues[nodeIndex]]);
+                        break;
+
+                    case Node.COMMENT_NODE:
+
+                        node = xmlDocument.createComment(strings[nodeValues[nodeIndex]]);
+                        break;
+
+                    case Node.PROCESSING_INSTRUCTION_NODE:
+
+                        node = xmlDocument.createProcessingInstruction(strings[nodeNames[nodeIndex]], strings[nodeValues[nodeIndex]]);
+                        break;
+
+                    default:
+
+                        return null;
+                }
+
+                parentNodes[depth].appendChild(node);
+                remainingChildren[depth]--;
+
+                if (childrenCounts[nodeIndex] > 0) {
+
+                    if (++depth == parentNodes.length) {
+
+                        parentNodes = Arrays.copyOf(parentNodes, depth * 2);
+                        remainingChildren = Arrays.copyOf(remainingChildren, depth * 2);
+                    }
+
+                    parentNodes[depth] = node;
+                    remainingChildren[depth] = childrenCounts[nodeIndex];
+                }
+            }
+
+            return xmlDocument;
+        }
+        catch (RuntimeException ex) {
+
+            // Truncated or corrupted snapshot
+        }
+
+        return null;
+    }
+
+    /**
+     * Retrieves string from string table.
+     *
+     * @param strings
+     *      String table
+     * @param stringIndex
+     *      String's index
+     * @return
+     *      String or {@code null} if string's index is {@link #NO_STRING}
+     */
+    private static String getString(String[] strings, int stringIndex) {
+
+        return stringIndex == NO_STRING ? null : strings[stringIndex];
+    }
+
+    /**
+     * Reads array of integers from snapshot's bytes.
+     *
+     * @param snapshotBuffer
+     *      Snapshot's bytes
+     * @param count
+     *      Count of integers
+     * @return
+     *      Array of integers
+     * @see IntArray#write(java.io.DataOutputStream)
+     */
+    private static int[] readInts(ByteBuffer snapshotBuffer, int count) {
+
+        int[] values = new int[count];
+        for (int valueIndex = 0; valueIndex < count; valueIndex++)
+            values[valueIndex] = readVarInt(snapshotBuffer) - 1;
+
+        return values;
+    }
+
+    /**
+     * Reads non-negative integer of variable length, 7 bits per byte
+     * starting from the lowest ones.
+     *
+     * @param snapshotBuffer
+     *      Snapshot's bytes
+     * @return
+     *      Integer
+     */
+    private static int readVarInt(ByteBuffer snapshotBuffer) {
+
+        int value = 0;
+        int shift = 0;
+        byte nextByte;
+        do {
+
+            nextByte = snapshotBuffer.get();
+            value |= (nextByte & 0x7F) << shift;
+            shift += 7;
+        }
+        while (nextByte < 0);
+
+        return value;
+    }
+
+    /**
+     * Writes non-negative integer of variable length.
+     *
+     * @param dataStream
+     *      Output stream
+     * @param value
+     *      Integer
+     * @throws IOException
+     *      If integer cannot be written
+     * @see #readVarInt(java.nio.ByteBuffer)
+     */
+    private static void writeVarInt(DataOutputStream dataStream, int value) throws IOException {
+
+        while ((value & ~0x7F) != 0) {
+
+            dataStream.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        dataStream.write(value);
+    }
+
+    /**
+     * Collects string table and node arrays of a document.
+     */
+    private static class SnapshotBuilder {
+
+        /**
+         * Indices of collected strings.
+         */
+        private final HashMap<String, Integer> stringIndices = new HashMap<String, Integer>();
+
+        /**
+         * Collected strings in order of their indices.
+         */
+        private final ArrayList<String> strings = new ArrayList<String>();
+
+        /**
+         * Node types.
+         */
+        private final ByteArray nodeTypes = new ByteArray();
+
+        /**
+         * Children counts of nodes.
+         */
+        private final IntArray childrenCounts = new IntArray();
+
+        /**
+         * String indices of nodes' names.
+         */
+        private final IntArray nodeNames = new IntArray();
+
+        /**
+         * String indices of nodes' values.
+         */
+        private final IntArray nodeValues = new IntArray();
+
+        /**
+         * String indices of nodes' namespaces.
+         */
+        private final IntArray nodeNamespaces = new IntArray();
+
+        /**
+         * Attributes counts of nodes.
+         */
+        private final IntArray attributesCounts = new IntArray();
+
+        /**
+         * String indices of attributes' names.
+         */
+        private final IntArray attributeNames = new IntArray();
+
+        /**
+         * String indices of attributes' values.
+         */
+        private final IntArray attributeValues = new IntArray();
+
+        /**
+         * String indices of attributes' namespaces.
+         */
+        private final IntArray attributeNamespaces = new IntArray();
+
+        /**
+         * Shows whether document has been built by namespace aware parser.
+         */
+        private boolean isNamespaceAware = false;
+
+        /**
+         * Adds document and its descendants in document order.
+         *
+         * @param xmlDocument
+         *      XML document
+         */
+        void addNodes(Document xmlDocument) {
+
+            addNode(xmlDocument);
+
+            Node node = xmlDocument.getFirstChild();
+            while (node != null) {
+
+                if (addNode(node) && node.getFirstChild() != null) {
+
+                    node = node.getFirstChild();
+                    continue;
+                }
+
+                while (node != null && node != xmlDocument && node.getNextSibling() == null)
+                    node = node.getParentNode();
+
+                node = node == null || node == xmlDocument ? null : node.getNextSibling();
+            }
+        }
+
+        /**
+         * Adds a single node.
+         *
+         * @param node
+         *      DOM node
+         * @return
+         *      {@code true} if node's children should be added, {@code false} otherwise
+         */
+        private boolean addNode(Node node) {
+
+            int name = NO_STRING;
+            int value = NO_STRING;
+            int namespace = NO_STRING;
+            int attributesCount = 0;
+            byte nodeType = (byte)node.getNodeType();
+            boolean isAddingChildren = false;
+
+            switch (node.getNodeType()) {
+
+                case Node.DOCUMENT_NODE:
+
+                    isAddingChildren = true;
+                    break;
+
+                case Node.ELEMENT_NODE:
+
+                    name = getStringIndex(node.getNodeName());
+                    isNamespaceAware |= node.getLocalName() != null;
+                    namespace = getStringIndex(node.getNamespaceURI());
+                    NamedNodeMap attributes = node.getAttributes();
+                    attributesCount = attributes.getLength();
+                    for (int attributeIndex = 0; attributeIndex < attributesCount; attributeIndex++) {
+
+                        Attr attribute = (Attr)attributes.item(attributeIndex);
+                        attributeNames.add(getStringIndex(attribute.getName()));
+                        attributeValues.add(getStringIndex(attribute.getValue()));
+                        attributeNamespaces.add(getStringIndex(attribute.getNamespaceURI()));
+                    }
+                    isAddingChildren = true;
+                    break;
+
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE:
+                case Node.COMMENT_NODE:
+
+                    value = getStringIndex(node.getNodeValue());
+                    break;
+
+                case Node.ENTITY_REFERENCE_NODE:
+
+                    nodeType = Node.TEXT_NODE;
+                    value = getStringIndex(node.getTextContent());
+                    break;
+
+                case Node.PROCESSING_INSTRUCTION_NODE:
+
+                    name = getStringIndex(((ProcessingInstruction)node).getTarget());
+                    value = getStringIndex(((ProcessingInstruction)node).getData());
+                    break;
+
+                default:
+
+                    return false;
+            }
+
+            nodeTypes.add(nodeType);
+            childrenCounts.add(isAddingChildren ? countChildren(node) : 0);
+            nodeNames.add(name);
+            nodeValues.add(value);
+            nodeNamespaces.add(namespace);
+            attributesCounts.add(attributesCount);
+            return isAddingChildren;
+        }
+
+        /**
+         * Counts node's children kept in snapshot.
+         *
+         * @param node
+         *      DOM node
+         * @return
+         *      Count of kept children
+         */
+        private int countChildren(Node node) {
+
+            int childrenCount = 0;
+            for (Node childNode = node.getFirstChild(); childNode != null; childNode = childNode.getNextSibling()) {
+
+                switch (childNode.getNodeType()) {
+
+                    case Node.ELEMENT_NODE:
+                    case Node.TEXT_NODE:
+                    case Node.CDATA_SECTION_NODE:
+                    case Node.COMMENT_NODE:
+                    case Node.ENTITY_REFERENCE_NODE:
+                    case Node.PROCESSING_INSTRUCTION_NODE:
+
+                        childrenCount++;
+                        break;
+                }
+            }
+
+            return childrenCount;
+        }
+
+        /**
+         * Retrieves index of a string adding it to string table if necessary.
+         *
+         * @param string
+         *      String or {@code null}
+         * @return
+         *      String's index or {@link #NO_STRING} for {@code null}
+         */
+        private int getStringIndex(String string) {
+
+            if (string == null)
+                return NO_STRING;
+
+            Integer stringIndex = stringIndices.get(string);
+            if (stringIndex == null) {
+
+                stringIndex = strings.size();
+                stringIndices.put(string, stringIndex);
+                strings.add(string);
+            }
+
+            return stringIndex;
+        }
+
+        /**
+         * Writes collected snapshot.
+         *
+         * @param dataStream
+         *      Output stream
+         * @throws IOException
+         *      If snapshot cannot be written
+         */
+        void write(DataOutputStream dataStream) throws IOException {
+
+            dataStream.writeInt(SIGNATURE);
+            dataStream.writeInt(FORMAT_VERSION);
+            dataStream.writeBoolean(isNamespaceAware);
+
+            writeVarInt(dataStream, strings.size());
+            for (String string : strings) {
+
+                byte[] stringBytes = string.getBytes(UTF8);
+                writeVarInt(dataStream, stringBytes.length);
+                dataStream.write(stringBytes);
+            }
+
+            writeVarInt(dataStream, nodeTypes.size());
+            nodeTypes.write(dataStream);
+            childrenCounts.write(dataStream);
+            nodeNames.write(dataStream);
+            nodeValues.write(dataStream);
+            nodeNamespaces.write(dataStream);
+            attributesCounts.write(dataStream);
+
+            writeVarInt(dataStream, attributeNames.size());
+            attributeNames.write(dataStream);
+            attributeValues.write(dataStream);
+            attributeNamespaces.write(dataStream);
+        }
+    }
+
+    /**
+     * Growable array of integers.
+     */
+    private static class IntArray {
+
+        /**
+         * Array's values.
+         */
+        private int[] values = new int[256];
+
+        /**
+         * Count of values.
+         */
+        private int size = 0;
+
+        /**
+         * Appends a value.
+         *
+         * @param value
+         *      Value
+         */
+        void add(int value) {
+
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        /**
+         * Retrieves count of values.
+         *
+         * @return
+         *      Count of values
+         */
+        int size() {
+
+            return size;
+        }
+
+        /**
+         * Writes values shifted by one as integers of variable length,
+         * so absent strings, small counts and frequent strings take a single byte.
+         *
+         * @param dataStream
+         *      Output stream
+         * @throws IOException
+         *      If values cannot be written
+         */
+        void write(DataOutputStream dataStream) throws IOException {
+
+            for (int valueIndex = 0; valueIndex < size; valueIndex++)
+                writeVarInt(dataStream, values[valueIndex] + 1);
+        }
+    }
+
+    /**
+     * Growable array of bytes.
+     */
+    private static class ByteArray {
+
+        /**
+         * Array's values.
+         */
+        private byte[] values = new byte[256];
+
+        /**
+         * Count of values.
+         */
+        private int size = 0;
+
+        /**
+         * Appends a value.
+         *
+         * @param value
+         *      Value
+         */
+        void add(byte value) {
+
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        /**
+         * Retrieves count of values.
+         *
+         * @return
+         *      Count of values
+         */
+        int size() {
+
+            return size;
+        }
+
+        /**
+         * Writes values.
+         *
+         * @param dataStream
+         *      Output stream
+         * @throws IOException
+         *      If values cannot be written
+         */
+        void write(DataOutputStream dataStream) throws IOException {
+
+            dataStream.write(values, 0, size);
+        }
+    }
+}
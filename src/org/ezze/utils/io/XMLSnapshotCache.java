@@ -0,0 +1,229 @@
+package org.ezze.utils.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicLong;
+import org.w3c.dom.Document;
+
+/**
+ * On-disk cache of parsed XML documents kept as binary snapshots.
+ *
+ * Snapshots are keyed by cryptographic digest and length of source files' contents,
+ * so a file is parsed only once while its contents stay the same, even if it's
+ * copied or touched, and different contents never share a snapshot in practice.
+ * Digesting a file is much cheaper than parsing it.
+ * Each read returns a new document, so callers may modify it freely.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ * @see XMLSnapshot
+ */
+public class XMLSnapshotCache {
+
+    /**
+     * Extension of snapshot files.
+     */
+    public static final String SNAPSHOT_EXTENSION = ".xsnap";
+
+    /**
+     * Directory keeping snapshot files.
+     */
+    private final File directory;
+
+    /**
+     * Count of documents read from snapshots.
+     */
+    private final AtomicLong hitsCount = new AtomicLong();
+
+    /**
+     * Count of documents parsed from source files.
+     */
+    private final AtomicLong missesCount = new AtomicLong();
+
+    /**
+     * Creates cache keeping snapshots in specified directory.
+     *
+     * @param directory
+     *      Directory of snapshot files, created on demand
+     */
+    public XMLSnapshotCache(File directory) {
+
+        this.directory = directory;
+    }
+
+    /**
+     * Retrieves directory keeping snapshot files.
+     *
+     * @return
+     *      Directory of snapshot files
+     */
+    public File getDirectory() {
+
+        return directory;
+    }
+
+    /**
+     * Reads specified XML file from its snapshot, the file is parsed
+     * and its snapshot is written if there is no snapshot of file's contents.
+     *
+     * @param xmlFileName
+     *      XML file's name
+     * @return
+     *      Instance of {@link org.w3c.dom.Document} on success, null otherwise
+     */
+    public Document readXMLDocument(String xmlFileName) {
+
+        if (xmlFileName == null)
+            return null;
+
+        File xmlFile = new File(xmlFileName);
+        String contentKey = getContentKey(xmlFile);
+        if (contentKey == null)
+            return null;
+
+        File snapshotFile = new File(directory, contentKey + SNAPSHOT_EXTENSION);
+        Document xmlDocument = XMLSnapshot.read(snapshotFile);
+        if (xmlDocument != null) {
+
+            hitsCount.incrementAndGet();
+            return xmlDocument;
+        }
+
+        missesCount.incrementAndGet();
+        xmlDocument = XMLHelper.readXMLDocument(xmlFileName);
+        if (xmlDocument != null)
+            writeSnapshot(xmlDocument, snapshotFile);
+
+        return xmlDocument;
+    }
+
+    /**
+     * Removes all snapshot files.
+     */
+    public void clear() {
+
+        File[] snapshotFiles = directory.listFiles();
+        if (snapshotFiles == null)
+            return;
+
+        for (File snapshotFile : snapshotFiles) {
+
+            if (snapshotFile.isFile() && snapshotFile.getName().endsWith(SNAPSHOT_EXTENSION))
+                snapshotFile.delete();
+        }
+    }
+
+    /**
+     * Retrieves count of documents read from snapshots.
+     *
+     * @return
+     *      Count of hits
+     */
+    public long getHitsCount() {
+
+        return hitsCount.get();
+    }
+
+    /**
+     * Retrieves count of documents parsed from source files.
+     *
+     * @return
+     *      Count of misses
+     */
+    public long getMissesCount() {
+
+        return missesCount.get();
+    }
+
+    /**
+     * Writes snapshot through a temporary file, so concurrent readers
+     * never see partially written snapshots.
+     *
+     * @param xmlDocument
+     *      XML document
+     * @param snapshotFile
+     *      Snapshot file
+     */
+    private void writeSnapshot(Document xmlDocument, File snapshotFile) {
+
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory())
+            return;
+
+        File temporarySnapshotFile = null;
+        try {
+
+            temporarySnapshotFile = File.createTempFile("snapshot", ".tmp", directory);
+            if (XMLSnapshot.write(xmlDocument, temporarySnapshotFile) && temporarySnapshotFile.renameTo(snapshotFile))
+                temporarySnapshotFile = null;
+        }
+        catch (IOException ex) {
+
+        }
+        finally {
+
+            if (temporarySnapshotFile != null)
+                temporarySnapshotFile.delete();
+        }
+    }
+
+    /**
+     * Computes key of file's contents.
+     *
+     * @param xmlFile
+     *      XML file
+     * @return
+     *      Digest and length of file's contents in hexadecimal
+     *      or {@code null} if file cannot be read
+     */
+    private static String getContentKey(File xmlFile) {
+
+        if (!xmlFile.isFile())
+            return null;
+
+        MessageDigest messageDigest = XMLContentHashes.createMessageDigest();
+        if (messageDigest == null)
+            return null;
+
+        FileInputStream inputStream = null;
+        try {
+
+            inputStream = new FileInputStream(xmlFile);
+            FileChannel fileChannel = inputStream.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(65536);
+            long length = 0;
+            while (fileChannel.read(buffer) >= 0) {
+
+                buffer.flip();
+                length += buffer.remaining();
+                messageDigest.update(buffer);
+                buffer.clear();
+            }
+
+            StringBuilder contentKey = new StringBuilder();
+            for (byte digestByte : messageDigest.digest())
+                contentKey.append(Character.forDigit((digestByte >> 4) & 0xf, 16)).append(Character.forDigit(digestByte & 0xf, 16));
+
+            return contentKey.append('-').append(Long.toHexString(length)).toString();
+        }
+        catch (IOException ex) {
+
+        }
+        finally {
+
+            try {
+
+                if (inputStream != null)
+                    inputStream.close();
+            }
+            catch (IOException ex) {
+
+            }
+        }
+
+        return null;
+    }
+}
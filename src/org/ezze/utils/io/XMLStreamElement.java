@@ -0,0 +1,357 @@
+package org.ezze.utils.io;
+
+/**
+ * Represents an element read by {@link XMLStreamingReader}: its name, path,
+ * attributes and direct text (text of descendant elements isn't included).
+ *
+ * Typed accessors have the same semantics as corresponding {@link XMLHelper} getters.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public class XMLStreamElement {
+
+    /**
+     * Element's tag name.
+     */
+    private final String name;
+
+    /**
+     * Element's absolute path.
+     */
+    private final String path;
+
+    /**
+     * Names of element's attributes.
+     */
+    private final String[] attributeNames;
+
+    /**
+     * Values of element's attributes.
+     */
+    private final String[] attributeValues;
+
+    /**
+     * Element's direct text.
+     */
+    private final String text;
+
+    /**
+     * Creates element read from XML stream.
+     *
+     * @param name
+     *      Element's tag name
+     * @param path
+     *      Element's absolute path
+     * @param attributeNames
+     *      Names of element's attributes
+     * @param attributeValues
+     *      Values of element's attributes
+     * @param text
+     *      Element's direct text
+     */
+    XMLStreamElement(String name, String path, String[] attributeNames, String[] attributeValues, String text) {
+
+        this.name = name;
+        this.path = path;
+        this.attributeNames = attributeNames;
+        this.attributeValues = attributeValues;
+        this.text = text;
+    }
+
+    /**
+     * Retrieves element's tag name.
+     *
+     * @return
+     *      Tag name
+     */
+    public String getName() {
+
+        return name;
+    }
+
+    /**
+     * Retrieves element's absolute path.
+     *
+     * @return
+     *      Absolute path like "/root/child/element"
+     */
+    public String getPath() {
+
+        return path;
+    }
+
+    /**
+     * Retrieves element's direct text, unlike {@link XMLHelper#getElementText(org.w3c.dom.Element)}
+     * text of descendant elements isn't included.
+     *
+     * @return
+     *      Direct text
+     */
+    public String getText() {
+
+        return text;
+    }
+
+    /**
+     * Retrieves element's text content.
+     *
+     * @param defaultValue
+     *      Default value to return in the case of text content is not available
+     * @return
+     *      Text content
+     * @see XMLHelper#getElementText(org.w3c.dom.Element, java.lang.String)
+     */
+    public String getText(String defaultValue) {
+
+        return text != null ? text : defaultValue;
+    }
+
+    /**
+     * Parses element's text content to integer.
+     *
+     * @return
+     *      Parsed integer or {@code null} if text content cannot be parsed
+     * @see XMLHelper#getElementInteger(org.w3c.dom.Element)
+     */
+    public Integer getInteger() {
+
+        return XMLHelper.parseInteger(text);
+    }
+
+    /**
+     * Parses element's text content to integer.
+     *
+     * @param defaultValue
+     *      Default value to return in the case of text content cannot be parsed
+     * @return
+     *      Parsed integer or default value
+     * @see XMLHelper#getElementInteger(org.w3c.dom.Element, java.lang.Integer)
+     */
+    public Integer getInteger(Integer defaultValue) {
+
+        Integer integerValue = getInteger();
+        return integerValue != null ? integerValue : defaultValue;
+    }
+
+    /**
+     * Parses element's text content to long.
+     *
+     * @return
+     *      Parsed long or {@code null} if text content cannot be parsed
+     * @see XMLHelper#getElementLong(org.w3c.dom.Element)
+     */
+    public Long getLong() {
+
+        return XMLHelper.parseLong(text);
+    }
+
+    /**
+     * Parses element's text content to long.
+     *
+     * @param defaultValue
+     *      Default value to return in the case of text content cannot be parsed
+     * @return
+     *      Parsed long or default value
+     * @see XMLHelper#getElementLong(org.w3c.dom.Element, java.lang.Long)
+     */
+    public Long getLong(Long defaultValue) {
+
+        Long longValue = getLong();
+        return longValue != null ? longValue : defaultValue;
+    }
+
+    /**
+     * Parses element's text content to double.
+     *
+     * @return
+     *      Parsed double or {@code null} if text content cannot be parsed
+     * @see XMLHelper#getElementDouble(org.w3c.dom.Element)
+     */
+    public Double getDouble() {
+
+        return XMLHelper.parseDouble(text);
+    }
+
+    /**
+     * Parses element's text content to double.
+     *
+     * @param defaultValue
+     *      Default value to return in the case of text content cannot be parsed
+     * @return
+     *      Parsed double or default value
+     * @see XMLHelper#getElementDouble(org.w3c.dom.Element, java.lang.Double)
+     */
+    public Double getDouble(Double defaultValue) {
+
+        Double doubleValue = getDouble();
+        return doubleValue != null ? doubleValue : defaultValue;
+    }
+
+    /**
+     * Parses element's text content to boolean.
+     *
+     * @return
+     *      Parsed boolean
+     * @see XMLHelper#getElementBoolean(org.w3c.dom.Element)
+     */
+    public Boolean getBoolean() {
+
+        return XMLHelper.parseBoolean(text);
+    }
+
+    /**
+     * Parses element's text content to boolean.
+     *
+     * @param defaultValue
+     *      Default value to return in the case of text content cannot be parsed
+     * @return
+     *      Parsed boolean or default value
+     * @see XMLHelper#getElementBoolean(org.w3c.dom.Element, java.lang.Boolean)
+     */
+    public Boolean getBoolean(Boolean defaultValue) {
+
+        Boolean booleanValue = getBoolean();
+        return booleanValue != null ? booleanValue : defaultValue;
+    }
+
+    /**
+     * Checks whether element has specified attribute.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      {@code true} if attribute is set, {@code false} otherwise
+     */
+    public boolean hasAttribute(String attributeName) {
+
+        return getAttributeIndex(attributeName) >= 0;
+    }
+
+    /**
+     * Retrieves element's specified attribute's value.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      Attribute's value or empty string if attribute is not set
+     * @see XMLHelper#getElementAttribute(org.w3c.dom.Element, java.lang.String)
+     */
+    public String getAttribute(String attributeName) {
+
+        if (attributeName == null)
+            return null;
+
+        int attributeIndex = getAttributeIndex(attributeName);
+        return attributeIndex >= 0 ? attributeValues[attributeIndex] : "";
+    }
+
+    /**
+     * Retrieves element's specified attribute's value.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Attribute's default value returned in the case of attribute cannot be retrieved
+     * @return
+     *      Attribute's value or empty string if attribute is not set
+     * @see XMLHelper#getElementAttribute(org.w3c.dom.Element, java.lang.String, java.lang.String)
+     */
+    public String getAttribute(String attributeName, String defaultValue) {
+
+        String attributeValue = getAttribute(attributeName);
+        return attributeValue != null ? attributeValue : defaultValue;
+    }
+
+    /**
+     * Retrieves element's specified attribute's integer value.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      Attribute's integer value
+     * @see XMLHelper#getElementAttributeInteger(org.w3c.dom.Element, java.lang.String)
+     */
+    public Integer getAttributeInteger(String attributeName) {
+
+        return XMLHelper.parseInteger(getAttribute(attributeName));
+    }
+
+    /**
+     * Retrieves element's specified attribute's integer value.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Attribute's default value returned in the case of attribute cannot be retrieved
+     * @return
+     *      Attribute's integer value
+     * @see XMLHelper#getElementAttributeInteger(org.w3c.dom.Element, java.lang.String, java.lang.Integer)
+     */
+    public Integer getAttributeInteger(String attributeName, Integer defaultValue) {
+
+        Integer attributeValue = getAttributeInteger(attributeName);
+        return attributeValue != null ? attributeValue : defaultValue;
+    }
+
+    /**
+     * Retrieves element's specified attribute's boolean value.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      Attribute's boolean value
+     * @see XMLHelper#getElementAttributeBoolean(org.w3c.dom.Element, java.lang.String)
+     */
+    public Boolean getAttributeBoolean(String attributeName) {
+
+        return XMLHelper.parseAttributeBoolean(getAttribute(attributeName));
+    }
+
+    /**
+     * Retrieves element's specified attribute's boolean value.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @param defaultValue
+     *      Attribute's default value returned in the case of attribute cannot be retrieved
+     * @return
+     *      Attribute's boolean value
+     * @see XMLHelper#getElementAttributeBoolean(org.w3c.dom.Element, java.lang.String, java.lang.Boolean)
+     */
+    public Boolean getAttributeBoolean(String attributeName, Boolean defaultValue) {
+
+        Boolean attributeValue = getAttributeBoolean(attributeName);
+        return attributeValue != null ? attributeValue : defaultValue;
+    }
+
+    /**
+     * Retrieves names of element's attributes.
+     *
+     * @return
+     *      Attributes' names
+     */
+    public String[] getAttributeNames() {
+
+        return attributeNames.clone();
+    }
+
+    /**
+     * Looks for an index of specified attribute.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @return
+     *      Attribute's index or {@code -1} if attribute is not set
+     */
+    private int getAttributeIndex(String attributeName) {
+
+        for (int attributeIndex = 0; attributeIndex < attributeNames.length; attributeIndex++) {
+
+            if (attributeNames[attributeIndex].equals(attributeName))
+                return attributeIndex;
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,444 @@
+package org.ezze.utils.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.GZIPInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads XML documents of any size with StAX calling registered handlers
+ * for matched elements instead of building DOM.
+ *
+ * Handlers are registered for absolute element paths ("/catalog/items/item")
+ * or for element names at any depth ("//item"). Only attributes and direct text
+ * of open matched elements are kept in memory (text of descendant elements isn't
+ * collected by their ancestors), so memory consumption doesn't depend on document's size.
+ * GZip-compressed sources are detected and decompressed on the fly.
+ * External DTDs and entities are not loaded unless a resolver is set.
+ *
+ * Reader's handlers and resolver should be set before reading, the reader itself
+ * may be used by several threads simultaneously afterwards.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public class XMLStreamingReader {
+
+    /**
+     * Property of JDK's StAX implementation disabling loading of external DTD.
+     */
+    private static final String IGNORE_EXTERNAL_DTD = "http://java.sun.com/xml/stream/properties/ignore-external-dtd";
+
+    /**
+     * Handlers registered for absolute element paths.
+     */
+    private final HashMap<String, ArrayList<XMLElementHandler>> pathHandlers = new HashMap<String, ArrayList<XMLElementHandler>>();
+
+    /**
+     * Handlers registered for element names at any depth.
+     */
+    private final HashMap<String, ArrayList<XMLElementHandler>> nameHandlers = new HashMap<String, ArrayList<XMLElementHandler>>();
+
+    /**
+     * Factory of StAX stream readers.
+     */
+    private final XMLInputFactory inputFactory;
+
+    /**
+     * Creates streaming reader without handlers.
+     */
+    public XMLStreamingReader() {
+
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        if (inputFactory.isPropertySupported(IGNORE_EXTERNAL_DTD))
+            inputFactory.setProperty(IGNORE_EXTERNAL_DTD, true);
+        inputFactory.setXMLResolver(XMLParserFeatures.EMPTY_XML_RESOLVER);
+    }
+
+    /**
+     * Sets resolver of external DTDs and entities, e.g. {@link XMLEntityCatalog}.
+     * External DTDs and entities are loaded through the resolver only.
+     *
+     * @param resolver
+     *      Resolver of external entities or {@code null} to skip external entities
+     */
+    public void setXMLResolver(XMLResolver resolver) {
+
+        boolean isLoadingExternalEntities = resolver != null;
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, isLoadingExternalEntities);
+        if (inputFactory.isPropertySupported(IGNORE_EXTERNAL_DTD))
+            inputFactory.setProperty(IGNORE_EXTERNAL_DTD, !isLoadingExternalEntities);
+        inputFactory.setXMLResolver(isLoadingExternalEntities ? resolver : XMLParserFeatures.EMPTY_XML_RESOLVER);
+    }
+
+    /**
+     * Registers element handler.
+     *
+     * @param path
+     *      Absolute element path ("/root/child/element") or element name
+     *      at any depth prefixed by double slash ("//element")
+     * @param handler
+     *      Handler of matched elements
+     * @return
+     *      {@code true} if handler has been registered, {@code false} if path is invalid
+     */
+    public boolean addHandler(String path, XMLElementHandler handler) {
+
+        String normalizedPath = XMLPathTracker.normalize(path);
+        if (normalizedPath == null || handler == null)
+            return false;
+
+        HashMap<String, ArrayList<XMLElementHandler>> handlers = pathHandlers;
+        if (normalizedPath.startsWith("//")) {
+
+            handlers = nameHandlers;
+            normalizedPath = normalizedPath.substring(2);
+        }
+
+        ArrayList<XMLElementHandler> registeredHandlers = handlers.get(normalizedPath);
+        if (registeredHandlers == null) {
+
+            registeredHandlers = new ArrayList<XMLElementHandler>();
+            handlers.put(normalizedPath, registeredHandlers);
+        }
+
+        registeredHandlers.add(handler);
+        return true;
+    }
+
+    /**
+     * Reads specified XML file.
+     *
+     * @param xmlFileName
+     *      XML file's name
+     * @return
+     *      {@code true} if XML file has been successfully read, {@code false} otherwise
+     * @see #read(java.io.File)
+     */
+    public boolean read(String xmlFileName) {
+
+        if (xmlFileName == null)
+            return false;
+
+        return read(new File(xmlFileName));
+    }
+
+    /**
+     * Reads specified XML file (possibly GZip-compressed).
+     *
+     * @param xmlFile
+     *      XML file
+     * @return
+     *      {@code true} if XML file has been successfully read, {@code false} otherwise
+     * @see #read(java.io.InputStream)
+     */
+    public boolean read(File xmlFile) {
+
+        if (xmlFile == null || !xmlFile.isFile())
+            return false;
+
+        InputStream inputStream = null;
+        try {
+
+            inputStream = new FileInputStream(xmlFile);
+        }
+        catch (FileNotFoundException ex) {
+
+            return false;
+        }
+
+        try {
+
+            return read(inputStream);
+        }
+        finally {
+
+            try {
+
+                inputStream.close();
+            }
+            catch (IOException ex) {
+
+            }
+        }
+    }
+
+    /**
+     * Reads XML from input stream (possibly GZip-compressed), the stream is not closed.
+     *
+     * @param inputStream
+     *      XML input stream
+     * @return
+     *      {@code true} if XML has been successfully read, {@code false} otherwise
+     */
+    public boolean read(InputStream inputStream) {
+
+        if (inputStream == null)
+            return false;
+
+        XMLStreamReader streamReader = null;
+        try {
+
+            streamReader = inputFactory.createXMLStreamReader(decompressIfGZipped(inputStream));
+            readElements(streamReader);
+            return true;
+        }
+        catch (XMLStreamException ex) {
+
+        }
+        catch (IOException ex) {
+
+        }
+        finally {
+
+            try {
+
+                if (streamReader != null)
+                    streamReader.close();
+            }
+            catch (XMLStreamException ex) {
+
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads elements from StAX stream reader calling handlers of matched ones.
+     *
+     * @param streamReader
+     *      StAX stream reader
+     * @throws XMLStreamException
+     *      If XML is malformed
+     */
+    private void readElements(XMLStreamReader streamReader) throws XMLStreamException {
+
+        XMLPathTracker pathTracker = new XMLPathTracker();
+
+        // Matched elements' frames or nulls for each open element
+        ArrayList<MatchedElement> openElements = new ArrayList<MatchedElement>();
+
+        // Matched element directly containing current text or null
+        MatchedElement textElement = null;
+
+        while (streamReader.hasNext()) {
+
+            int eventType = streamReader.next();
+            switch (eventType) {
+
+                case XMLStreamConstants.START_ELEMENT:
+
+                    String elementName = getElementName(streamReader);
+                    pathTracker.push(elementName);
+
+                    ArrayList<XMLElementHandler> pathElementHandlers = pathHandlers.isEmpty() ? null : pathHandlers.get(pathTracker.getPath());
+                    ArrayList<XMLElementHandler> nameElementHandlers = nameHandlers.isEmpty() ? null : nameHandlers.get(elementName);
+                    if (pathElementHandlers == null && nameElementHandlers == null) {
+
+                        openElements.add(null);
+                        textElement = null;
+                        break;
+                    }
+
+                    MatchedElement matchedElement = new MatchedElement(elementName, pathTracker.getPath(),
+                            streamReader, pathElementHandlers, nameElementHandlers);
+                    openElements.add(matchedElement);
+                    textElement = matchedElement;
+                    matchedElement.handleStart();
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+
+                    if (textElement != null)
+                        textElement.text.append(streamReader.getTextCharacters(), streamReader.getTextStart(), streamReader.getTextLength());
+                    break;
+
+                case XMLStreamConstants.ENTITY_REFERENCE:
+
+                    if (textElement != null)
+                        textElement.text.append(streamReader.getText());
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+
+                    MatchedElement endedElement = openElements.remove(openElements.size() - 1);
+                    pathTracker.pop();
+                    textElement = openElements.isEmpty() ? null : openElements.get(openElements.size() - 1);
+                    if (endedElement != null)
+                        endedElement.handle();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Retrieves current element's tag name including its prefix.
+     *
+     * @param streamReader
+     *      StAX stream reader positioned on element's start or end tag
+     * @return
+     *      Element's tag name
+     */
+    static String getElementName(XMLStreamReader streamReader) {
+
+        String prefix = streamReader.getPrefix();
+        String localName = streamReader.getLocalName();
+        return prefix != null && !prefix.isEmpty() ? prefix + ':' + localName : localName;
+    }
+
+    /**
+     * Wraps input stream to decompress it if it starts with GZip header.
+     *
+     * @param inputStream
+     *      Input stream
+     * @return
+     *      Decompressing or buffered input stream
+     * @throws IOException
+     *      If input stream cannot be read
+     */
+    static InputStream decompressIfGZipped(InputStream inputStream) throws IOException {
+
+        BufferedInputStream bufferedStream = new BufferedInputStream(inputStream, 65536);
+        bufferedStream.mark(2);
+        int firstByte = bufferedStream.read();
+        int secondByte = bufferedStream.read();
+        bufferedStream.reset();
+
+        if (firstByte == (GZIPInputStream.GZIP_MAGIC & 0xFF) && secondByte == (GZIPInputStream.GZIP_MAGIC >> 8))
+            return new GZIPInputStream(bufferedStream, 65536);
+
+        return bufferedStream;
+    }
+
+    /**
+     * Keeps attributes and direct text of an open matched element.
+     */
+    private static class MatchedElement {
+
+        /**
+         * Element's tag name.
+         */
+        final String name;
+
+        /**
+         * Element's absolute path.
+         */
+        final String path;
+
+        /**
+         * Names of element's attributes.
+         */
+        final String[] attributeNames;
+
+        /**
+         * Values of element's attributes.
+         */
+        final String[] attributeValues;
+
+        /**
+         * Handlers registered for element's path.
+         */
+        final ArrayList<XMLElementHandler> pathHandlers;
+
+        /**
+         * Handlers registered for element's name.
+         */
+        final ArrayList<XMLElementHandler> nameHandlers;
+
+        /**
+         * Collected direct text.
+         */
+        final StringBuilder text = new StringBuilder();
+
+        /**
+         * Creates matched element from current start tag.
+         *
+         * @param name
+         *      Element's tag name
+         * @param path
+         *      Element's absolute path
+         * @param streamReader
+         *      StAX stream reader positioned on element's start tag
+         * @param pathHandlers
+         *      Handlers registered for element's path or {@code null}
+         * @param nameHandlers
+         *      Handlers registered for element's name or {@code null}
+         */
+        MatchedElement(String name, String path, XMLStreamReader streamReader,
+                ArrayList<XMLElementHandler> pathHandlers, ArrayList<XMLElementHandler> nameHandlers) {
+
+            this.name = name;
+            this.path = path;
+            this.pathHandlers = pathHandlers;
+            this.nameHandlers = nameHandlers;
+
+            int attributesCount = streamReader.getAttributeCount();
+            attributeNames = new String[attributesCount];
+            attributeValues = new String[attributesCount];
+            for (int attributeIndex = 0; attributeIndex < attributesCount; attributeIndex++) {
+
+                String prefix = streamReader.getAttributePrefix(attributeIndex);
+                String localName = streamReader.getAttributeLocalName(attributeIndex);
+                attributeNames[attributeIndex] = prefix != null && !prefix.isEmpty() ? prefix + ':' + localName : localName;
+                attributeValues[attributeIndex] = streamReader.getAttributeValue(attributeIndex);
+            }
+        }
+
+        /**
+         * Notifies handlers interested in start tags of the element.
+         */
+        void handleStart() {
+
+            if (pathHandlers != null) {
+
+                for (XMLElementHandler handler : pathHandlers) {
+
+                    if (handler instanceof XMLElementStartHandler)
+                        ((XMLElementStartHandler)handler).handleElementStart(path);
+                }
+            }
+
+            if (nameHandlers != null) {
+
+                for (XMLElementHandler handler : nameHandlers) {
+
+                    if (handler instanceof XMLElementStartHandler)
+                        ((XMLElementStartHandler)handler).handleElementStart(path);
+                }
+            }
+        }
+
+        /**
+         * Passes ended element to its handlers.
+         */
+        void handle() {
+
+            XMLStreamElement element = new XMLStreamElement(name, path, attributeNames, attributeValues, text.toString());
+            if (pathHandlers != null) {
+
+                for (XMLElementHandler handler : pathHandlers)
+                    handler.handleElement(element);
+            }
+
+            if (nameHandlers != null) {
+
+                for (XMLElementHandler handler : nameHandlers)
+                    handler.handleElement(element);
+            }
+        }
+    }
+}
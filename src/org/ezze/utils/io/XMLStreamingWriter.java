@@ -0,0 +1,621 @@
+package org.ezze.utils.io;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.Arrays;
+
+/**
+ * Writes indented XML directly to a file or an output stream without building DOM,
+ * so documents of any size are written with constant memory consumption.
+ *
+ * File output supports the same options as {@link XMLHelper#writeXMLDocument(org.w3c.dom.Document, java.lang.String, java.lang.Boolean, java.lang.String, java.lang.Integer)}:
+ * charset, indent size and writing to temporary file which replaces the original one
+ * when the writer is committed. Committed files are replaced and forced to the storage
+ * according to {@link XMLHelper#isAtomicReplacing()} and {@link XMLHelper#getSaveDurability()},
+ * files with ".gz" extension are compressed with {@link XMLHelper#getGZipCompressionLevel()}.
+ *
+ * Output is complete only after {@link #commit()} which ends open elements and
+ * replaces destination file with temporary one. Closing the writer without committing
+ * aborts the output: temporary file is deleted and destination file is left untouched,
+ * so an export failed halfway never replaces the original file. Files written directly
+ * and streams keep the output written before the writer has been closed.
+ *
+ * <pre>
+ * XMLStreamingWriter writer = new XMLStreamingWriter("export.xml", null, null, null);
+ * try {
+ *     writer.writeStartElement("items");
+ *     writer.writeStartElement("item");
+ *     writer.writeAttribute("id", 1);
+ *     writer.writeText("First item");
+ *     writer.writeEndElement();
+ *     writer.commit();
+ * }
+ * finally {
+ *     writer.close();
+ * }
+ * </pre>
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public class XMLStreamingWriter implements Closeable {
+
+    /**
+     * Size of output buffer in characters.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Line separator written before indented tags.
+     */
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /**
+     * Buffered output writer.
+     */
+    private final Writer writer;
+
+    /**
+     * Encoder checking whether characters can be written as is or {@code null}
+     * if all characters are encodable.
+     */
+    private final CharsetEncoder encoder;
+
+    /**
+     * Tabs indent size in space characters.
+     */
+    private final int indentSize;
+
+    /**
+     * XML destination file's name or {@code null} if XML is written to a stream.
+     */
+    private final String xmlFileName;
+
+    /**
+     * Temporary XML file replacing destination file on commit or {@code null}
+     * if XML is written directly.
+     */
+    private final File temporaryXMLFile;
+
+    /**
+     * Channel of written file forced on commit or {@code null} if XML is written to a stream.
+     */
+    private final FileChannel fileChannel;
+
+    /**
+     * Stream compressing written file or {@code null} if XML is written uncompressed.
+     */
+    private final XMLHelper.GZipContentStream gzipStream;
+
+    /**
+     * Names of open elements.
+     */
+    private String[] openElementNames = new String[16];
+
+    /**
+     * Shows whether open elements have child elements.
+     */
+    private boolean[] openElementsHaveChildren = new boolean[16];
+
+    /**
+     * Count of open elements.
+     */
+    private int depth = 0;
+
+    /**
+     * Shows whether the start tag of current element is not closed yet, so attributes may be written.
+     */
+    private boolean isStartTagOpen = false;
+
+    /**
+     * Shows whether document element has been written already.
+     */
+    private boolean isDocumentElementWritten = false;
+
+    /**
+     * Shows whether the writer has been closed.
+     */
+    private boolean isClosed = false;
+
+    /**
+     * Creates writer of specified XML file.
+     *
+     * @param xmlFileName
+     *      XML destination file
+     * @param useTemporaryFile
+     *      Write to temporary XML file first or not (true by default)
+     * @param charset
+     *      XML charset encoding (UTF-8 by default)
+     * @param indentSize
+     *      Tabs indent size in space characters (4 by default)
+     * @throws IOException
+     *      If destination file cannot be created
+     */
+    public XMLStreamingWriter(String xmlFileName, Boolean useTemporaryFile, String charset, Integer indentSize) throws IOException {
+
+        if (xmlFileName == null)
+            throw new IllegalArgumentException("XML file's name is not specified");
+
+        if (useTemporaryFile == null)
+            useTemporaryFile = true;
+
+        Charset outputCharset = Charset.forName(charset != null ? charset : "UTF-8");
+        String outputFileName = xmlFileName + (useTemporaryFile ? "~" : "");
+
+        this.xmlFileName = xmlFileName;
+        this.temporaryXMLFile = useTemporaryFile ? new File(outputFileName) : null;
+        this.indentSize = indentSize != null ? Math.max(0, indentSize) : 4;
+        this.encoder = createEncoder(outputCharset);
+
+        FileOutputStream fileStream = new FileOutputStream(outputFileName);
+        fileChannel = fileStream.getChannel();
+        if (!useTemporaryFile)
+            XMLHelper.invalidateCachedDocument(xmlFileName);
+
+        if (XMLHelper.isGZipFileName(xmlFileName)) {
+
+            try {
+
+                gzipStream = new XMLHelper.GZipContentStream(fileStream, XMLHelper.getGZipCompressionLevel());
+            }
+            catch (IOException ex) {
+
+                fileStream.close();
+                throw ex;
+            }
+
+            writer = new BufferedWriter(new OutputStreamWriter(gzipStream, outputCharset.newEncoder()), BUFFER_SIZE);
+        }
+        else {
+
+            gzipStream = null;
+            writer = new BufferedWriter(Channels.newWriter(fileChannel, outputCharset.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+        }
+
+        try {
+
+            writeDeclaration(outputCharset);
+        }
+        catch (IOException ex) {
+
+            closeWriter();
+            throw ex;
+        }
+    }
+
+    /**
+     * Creates writer of XML output stream, the stream is closed when the writer is closed.
+     *
+     * @param outputStream
+     *      XML output stream
+     * @param charset
+     *      XML charset encoding (UTF-8 by default)
+     * @param indentSize
+     *      Tabs indent size in space characters (4 by default)
+     * @throws IOException
+     *      If XML declaration cannot be written
+     */
+    public XMLStreamingWriter(OutputStream outputStream, String charset, Integer indentSize) throws IOException {
+
+        if (outputStream == null)
+            throw new IllegalArgumentException("Output stream is not specified");
+
+        Charset outputCharset = Charset.forName(charset != null ? charset : "UTF-8");
+
+        this.xmlFileName = null;
+        this.temporaryXMLFile = null;
+        this.fileChannel = null;
+        this.gzipStream = null;
+        this.indentSize = indentSize != null ? Math.max(0, indentSize) : 4;
+        this.encoder = createEncoder(outputCharset);
+
+        writer = new BufferedWriter(new OutputStreamWriter(outputStream, outputCharset), BUFFER_SIZE);
+        writeDeclaration(outputCharset);
+    }
+
+    /**
+     * Writes start tag of a new element.
+     *
+     * @param elementName
+     *      Element's tag name
+     * @throws IOException
+     *      If element cannot be written
+     */
+    public void writeStartElement(String elementName) throws IOException {
+
+        checkOpen();
+        if (elementName == null)
+            throw new IllegalArgumentException("Element's name is not specified");
+
+        if (depth == 0 && isDocumentElementWritten)
+            throw new IllegalStateException("Document element has been already written");
+
+        closeStartTag();
+        if (depth > 0)
+            openElementsHaveChildren[depth - 1] = true;
+
+        writeIndent(depth);
+        writer.write('<');
+        writer.write(elementName);
+
+        // Pushing new element
+        if (depth == openElementNames.length) {
+
+            openElementNames = Arrays.copyOf(openElementNames, depth * 2);
+            openElementsHaveChildren = Arrays.copyOf(openElementsHaveChildren, depth * 2);
+        }
+
+        openElementNames[depth] = elementName;
+        openElementsHaveChildren[depth] = false;
+        depth++;
+        isStartTagOpen = true;
+        isDocumentElementWritten = true;
+    }
+
+    /**
+     * Writes an attribute of current element, it must be written before
+     * element's text and children.
+     *
+     * @param attributeName
+     *      Attribute's name
+     * @param attributeValue
+     *      Attribute's value, {@code null} values are not written
+     * @throws IOException
+     *      If attribute cannot be written
+     */
+    public void writeAttribute(String attributeName, Object attributeValue) throws IOException {
+
+        checkOpen();
+        if (!isStartTagOpen)
+            throw new IllegalStateException("Attributes must be written right after element's start tag");
+
+        if (attributeName == null || attributeValue == null)
+            return;
+
+        writer.write(' ');
+        writer.write(attributeName);
+        writer.write("=\"");
+        writeEscaped(attributeValue.toString(), true);
+        writer.write('"');
+    }
+
+    /**
+     * Writes text content of current element.
+     *
+     * @param text
+     *      Text value, {@code null} values are not written
+     * @throws IOException
+     *      If text cannot be written
+     */
+    public void writeText(Object text) throws IOException {
+
+        checkOpen();
+        if (depth == 0)
+            throw new IllegalStateException("Text must be written inside of an element");
+
+        if (text == null)
+            return;
+
+        closeStartTag();
+        writeEscaped(text.toString(), false);
+    }
+
+    /**
+     * Writes an element containing text only.
+     *
+     * @param elementName
+     *      Element's tag name
+     * @param text
+     *      Text value, {@code null} values are not written
+     * @throws IOException
+     *      If element cannot be written
+     */
+    public void writeElement(String elementName, Object text) throws IOException {
+
+        writeStartElement(elementName);
+        writeText(text);
+        writeEndElement();
+    }
+
+    /**
+     * Writes end tag of current element.
+     *
+     * @throws IOException
+     *      If element cannot be written
+     */
+    public void writeEndElement() throws IOException {
+
+        checkOpen();
+        if (depth == 0)
+            throw new IllegalStateException("There is no open element to end");
+
+        depth--;
+        if (isStartTagOpen) {
+
+            // Writing empty element
+            writer.write("/>");
+            isStartTagOpen = false;
+            return;
+        }
+
+        if (openElementsHaveChildren[depth])
+            writeIndent(depth);
+
+        writer.write("</");
+        writer.write(openElementNames[depth]);
+        writer.write('>');
+        openElementNames[depth] = null;
+    }
+
+    /**
+     * Flushes buffered output.
+     *
+     * @throws IOException
+     *      If output cannot be flushed
+     */
+    public void flush() throws IOException {
+
+        checkOpen();
+        writer.flush();
+    }
+
+    /**
+     * Ends all open elements, closes the output and replaces destination file
+     * with temporary one if it has been used. Written file is forced to the storage
+     * according to {@link XMLHelper#getSaveDurability()}.
+     *
+     * @throws IOException
+     *      If the writer has been closed, output cannot be written
+     *      or temporary file cannot replace destination one
+     */
+    public void commit() throws IOException {
+
+        checkOpen();
+
+        XMLSaveDurability durability = XMLHelper.getSaveDurability();
+        boolean isCompleted = false;
+        try {
+
+            while (depth > 0)
+                writeEndElement();
+            writer.write(LINE_SEPARATOR);
+            writer.flush();
+            if (gzipStream != null)
+                gzipStream.finish();
+
+            // Forcing written data to the storage through the open channel
+            if (fileChannel != null && durability != XMLSaveDurability.NONE)
+                fileChannel.force(true);
+            isCompleted = true;
+        }
+        finally {
+
+            // Aborting output which cannot be completed
+            if (!isCompleted)
+                close();
+        }
+
+        isClosed = true;
+        try {
+
+            closeWriter();
+        }
+        catch (IOException ex) {
+
+            if (temporaryXMLFile != null)
+                temporaryXMLFile.delete();
+            throw ex;
+        }
+
+        if (xmlFileName == null)
+            return;
+
+        if (!XMLHelper.completeFileWrite(xmlFileName, temporaryXMLFile, durability)) {
+
+            temporaryXMLFile.delete();
+            throw new IOException(String.format("Unable to replace \"%s\" with temporary file", xmlFileName));
+        }
+    }
+
+    /**
+     * Closes the output. If the writer hasn't been committed, output is aborted:
+     * open elements are not ended and temporary file is deleted leaving destination file untouched.
+     *
+     * @throws IOException
+     *      If the output cannot be closed
+     * @see #commit()
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (isClosed)
+            return;
+
+        isClosed = true;
+        try {
+
+            closeWriter();
+        }
+        finally {
+
+            if (temporaryXMLFile != null)
+                temporaryXMLFile.delete();
+        }
+    }
+
+    /**
+     * Closes output writer releasing compressor's native resources.
+     *
+     * @throws IOException
+     *      If the output cannot be closed
+     */
+    private void closeWriter() throws IOException {
+
+        try {
+
+            writer.close();
+        }
+        finally {
+
+            if (gzipStream != null)
+                gzipStream.end();
+        }
+    }
+
+    /**
+     * Writes XML declaration.
+     *
+     * @param charset
+     *      XML charset encoding
+     * @throws IOException
+     *      If declaration cannot be written
+     */
+    private void writeDeclaration(Charset charset) throws IOException {
+
+        writer.write("<?xml version=\"1.0\" encoding=\"");
+        writer.write(charset.name());
+        writer.write("\" standalone=\"no\"?>");
+    }
+
+    /**
+     * Closes start tag of current element if it's still open.
+     *
+     * @throws IOException
+     *      If output cannot be written
+     */
+    private void closeStartTag() throws IOException {
+
+        if (!isStartTagOpen)
+            return;
+
+        writer.write('>');
+        isStartTagOpen = false;
+    }
+
+    /**
+     * Writes line separator and indent of specified depth.
+     *
+     * @param indentDepth
+     *      Depth of an element being indented
+     * @throws IOException
+     *      If output cannot be written
+     */
+    private void writeIndent(int indentDepth) throws IOException {
+
+        writer.write(LINE_SEPARATOR);
+        for (int spacesCount = indentDepth * indentSize; spacesCount > 0; spacesCount--)
+            writer.write(' ');
+    }
+
+    /**
+     * Writes escaped text or attribute's value, characters which cannot be encoded
+     * with output charset are written as character references.
+     *
+     * @param text
+     *      Text to write
+     * @param isAttributeValue
+     *      Shows whether attribute's value is written
+     * @throws IOException
+     *      If output cannot be written
+     */
+    private void writeEscaped(String text, boolean isAttributeValue) throws IOException {
+
+        int textLength = text.length();
+        int unescapedStart = 0;
+        for (int charIndex = 0; charIndex < textLength; charIndex++) {
+
+            char textChar = text.charAt(charIndex);
+            String replacement = null;
+            switch (textChar) {
+
+                case '&':
+                    replacement = "&amp;";
+                    break;
+
+                case '<':
+                    replacement = "&lt;";
+                    break;
+
+                case '>':
+                    replacement = isAttributeValue ? null : "&gt;";
+                    break;
+
+                case '"':
+                    replacement = isAttributeValue ? "&quot;" : null;
+                    break;
+
+                case '\n':
+                    replacement = isAttributeValue ? "&#10;" : null;
+                    break;
+
+                case '\r':
+                    replacement = "&#13;";
+                    break;
+
+                case '\t':
+                    replacement = isAttributeValue ? "&#9;" : null;
+                    break;
+
+                default:
+                    if (textChar >= 0x80 && encoder != null) {
+
+                        int codePoint = text.codePointAt(charIndex);
+                        if (!encoder.canEncode(new String(Character.toChars(codePoint))))
+                            replacement = "&#x" + Integer.toHexString(codePoint) + ";";
+                        else if (Character.charCount(codePoint) == 2)
+                            charIndex++;
+                    }
+                    break;
+            }
+
+            if (replacement == null)
+                continue;
+
+            writer.write(text, unescapedStart, charIndex - unescapedStart);
+            writer.write(replacement);
+            if (Character.isHighSurrogate(textChar) && charIndex + 1 < textLength)
+                charIndex++;
+            unescapedStart = charIndex + 1;
+        }
+
+        writer.write(text, unescapedStart, textLength - unescapedStart);
+    }
+
+    /**
+     * Makes sure that the writer is not closed.
+     *
+     * @throws IOException
+     *      If the writer has been closed
+     */
+    private void checkOpen() throws IOException {
+
+        if (isClosed)
+            throw new IOException("XML writer has been closed");
+    }
+
+    /**
+     * Creates encoder checking characters of non-Unicode charsets.
+     *
+     * @param charset
+     *      Output charset
+     * @return
+     *      Encoder or {@code null} if charset encodes all characters
+     */
+    private static CharsetEncoder createEncoder(Charset charset) {
+
+        if (charset.name().startsWith("UTF-"))
+            return null;
+
+        return charset.newEncoder();
+    }
+}
@@ -0,0 +1,462 @@
+package org.ezze.utils.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.w3c.dom.Document;
+
+/**
+ * Saves XML documents with {@link XMLHelper#writeXMLDocument(org.w3c.dom.Document, java.lang.String, java.lang.Boolean, java.lang.String, java.lang.Integer)}
+ * on a background thread coalescing repeated saves of the same file.
+ *
+ * The first save request of a file schedules its writing after the coalescing window,
+ * requests of the same file arriving within the window replace the pending document,
+ * so a burst of saves results in a single write of the latest document.
+ * Documents are cloned when requested, so callers may keep modifying them.
+ * Pending saves are written synchronously by {@link #flush()} and {@link #shutdown()},
+ * and also when the JVM exits if the saver hasn't been shut down.
+ *
+ * @author Dmitriy Pushkov
+ * @version 0.0.1
+ */
+public class XMLWriteBehindSaver {
+
+    /**
+     * Default coalescing window in milliseconds.
+     */
+    public static final long DEFAULT_COALESCING_WINDOW = 500;
+
+    /**
+     * Count of created savers used to name their threads.
+     */
+    private static final AtomicInteger saversCount = new AtomicInteger();
+
+    /**
+     * Coalescing window in milliseconds.
+     */
+    private final long coalescingWindow;
+
+    /**
+     * Pending saves keyed by files' absolute paths.
+     */
+    private final HashMap<String, PendingSave> pendingSaves = new HashMap<String, PendingSave>();
+
+    /**
+     * Lock held while pending saves are taken and written, so saves of a file
+     * are never written concurrently or out of order.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Executor of delayed writes.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Hook flushing pending saves when the JVM exits.
+     */
+    private final Thread shutdownHook;
+
+    /**
+     * Shows whether the saver has been shut down.
+     */
+    private boolean isShutdown = false;
+
+    /**
+     * Count of save requests.
+     */
+    private final AtomicLong requestsCount = new AtomicLong();
+
+    /**
+     * Count of performed writes.
+     */
+    private final AtomicLong writesCount = new AtomicLong();
+
+    /**
+     * Count of failed writes.
+     */
+    private final AtomicLong failedWritesCount = new AtomicLong();
+
+    /**
+     * Count of writes avoided by coalescing.
+     */
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Total time pending saves have waited for writing in nanoseconds.
+     */
+    private final AtomicLong totalQueueLatency = new AtomicLong();
+
+    /**
+     * Maximal time a pending save has waited for writing in nanoseconds.
+     */
+    private final AtomicLong maximalQueueLatency = new AtomicLong();
+
+    /**
+     * Creates saver with {@link #DEFAULT_COALESCING_WINDOW}.
+     */
+    public XMLWriteBehindSaver() {
+
+        this(DEFAULT_COALESCING_WINDOW);
+    }
+
+    /**
+     * Creates saver with specified coalescing window.
+     *
+     * @param coalescingWindow
+     *      Time in milliseconds a save waits for further saves of the same file
+     */
+    public XMLWriteBehindSaver(long coalescingWindow) {
+
+        this.coalescingWindow = Math.max(0, coalescingWindow);
+
+        final int saverIndex = saversCount.incrementAndGet();
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "XMLWriteBehindSaver-" + saverIndex);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        shutdownHook = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                flush();
+            }
+        }, "XMLWriteBehindSaver-" + saverIndex + "-exit");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Retrieves coalescing window.
+     *
+     * @return
+     *      Coalescing window in milliseconds
+     */
+    public long getCoalescingWindow() {
+
+        return coalescingWindow;
+    }
+
+    /**
+     * Requests saving of XML document with default parameters.
+     *
+     * @param xmlDocument
+     *      XML document to save
+     * @param xmlFileName
+     *      XML destination file
+     * @return
+     *      {@code true} if save has been queued, {@code false} if parameters are invalid
+     *      or the saver has been shut down
+     * @see #save(org.w3c.dom.Document, java.lang.String, java.lang.Boolean, java.lang.String, java.lang.Integer)
+     */
+    public boolean save(Document xmlDocument, String xmlFileName) {
+
+        return save(xmlDocument, xmlFileName, null, null, null);
+    }
+
+    /**
+     * Requests saving of XML document.
+     *
+     * @param xmlDocument
+     *      XML document to save
+     * @param xmlFileName
+     *      XML destination file
+     * @param useTemporaryFile
+     *      Determines whether XML data should be written to temporary file first
+     * @param charset
+     *      XML charset encoding (UTF-8 by default)
+     * @param indentSize
+     *      Indent size (4 by default)
+     * @return
+     *      {@code true} if save has been queued, {@code false} if parameters are invalid
+     *      or the saver has been shut down
+     * @see XMLHelper#writeXMLDocument(org.w3c.dom.Document, java.lang.String, java.lang.Boolean, java.lang.String, java.lang.Integer)
+     */
+    public boolean save(Document xmlDocument, String xmlFileName, Boolean useTemporaryFile, String charset, Integer indentSize) {
+
+        if (xmlDocument == null || xmlFileName == null || xmlDocument.getDocumentElement() == null)
+            return false;
+
+        Document clonedDocument = (Document)xmlDocument.cloneNode(true);
+        final String filePath = new File(xmlFileName).getAbsolutePath();
+
+        synchronized (pendingSaves) {
+
+            if (isShutdown)
+                return false;
+
+            requestsCount.incrementAndGet();
+
+            PendingSave pendingSave = pendingSaves.get(filePath);
+            if (pendingSave != null) {
+
+                // Replacing pending document, its deadline stays the same
+                pendingSave.setDocument(clonedDocument, useTemporaryFile, charset, indentSize);
+                coalescedCount.incrementAndGet();
+                return true;
+            }
+
+            pendingSave = new PendingSave(xmlFileName);
+            pendingSave.setDocument(clonedDocument, useTemporaryFile, charset, indentSize);
+            pendingSaves.put(filePath, pendingSave);
+        }
+
+        try {
+
+            executor.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    writePendingSave(filePath);
+                }
+            }, coalescingWindow, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException ex) {
+
+            // The saver is being shut down and will write the save itself
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes all pending saves on the current thread.
+     */
+    public void flush() {
+
+        synchronized (writeLock) {
+
+            ArrayList<String> filePaths;
+            synchronized (pendingSaves) {
+
+                filePaths = new ArrayList<String>(pendingSaves.keySet());
+            }
+
+            for (String filePath : filePaths)
+                writePendingSave(filePath);
+        }
+    }
+
+    /**
+     * Writes all pending saves and stops background thread. Further save requests are rejected.
+     */
+    public void shutdown() {
+
+        synchronized (pendingSaves) {
+
+            if (isShutdown)
+                return;
+
+            isShutdown = true;
+        }
+
+        // Background writes in progress are finished before the thread is stopped
+        flush();
+        executor.shutdownNow();
+
+        try {
+
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+        catch (IllegalStateException ex) {
+
+            // The JVM is already exiting
+        }
+    }
+
+    /**
+     * Retrieves count of pending saves.
+     *
+     * @return
+     *      Count of files waiting for writing
+     */
+    public int getPendingSavesCount() {
+
+        synchronized (pendingSaves) {
+
+            return pendingSaves.size();
+        }
+    }
+
+    /**
+     * Retrieves count of save requests.
+     *
+     * @return
+     *      Count of requests
+     */
+    public long getRequestsCount() {
+
+        return requestsCount.get();
+    }
+
+    /**
+     * Retrieves count of performed writes.
+     *
+     * @return
+     *      Count of writes
+     */
+    public long getWritesCount() {
+
+        return writesCount.get();
+    }
+
+    /**
+     * Retrieves count of failed writes.
+     *
+     * @return
+     *      Count of failed writes
+     */
+    public long getFailedWritesCount() {
+
+        return failedWritesCount.get();
+    }
+
+    /**
+     * Retrieves count of writes avoided by coalescing.
+     *
+     * @return
+     *      Count of coalesced requests
+     */
+    public long getCoalescedCount() {
+
+        return coalescedCount.get();
+    }
+
+    /**
+     * Retrieves average time from the first request of a pending save to its writing.
+     *
+     * @return
+     *      Average queue latency in milliseconds
+     */
+    public double getAverageQueueLatency() {
+
+        long writesCount = this.writesCount.get();
+        return writesCount == 0 ? 0.0 : totalQueueLatency.get() / 1000000.0 / writesCount;
+    }
+
+    /**
+     * Retrieves maximal time from the first request of a pending save to its writing.
+     *
+     * @return
+     *      Maximal queue latency in milliseconds
+     */
+    public double getMaximalQueueLatency() {
+
+        return maximalQueueLatency.get() / 1000000.0;
+    }
+
+    /**
+     * Takes pending save of a file and writes it.
+     *
+     * @param filePath
+     *      File's absolute path
+     */
+    private void writePendingSave(String filePath) {
+
+        synchronized (writeLock) {
+
+            PendingSave pendingSave;
+            synchronized (pendingSaves) {
+
+                pendingSave = pendingSaves.remove(filePath);
+            }
+
+            // The save has been already written by flush
+            if (pendingSave == null)
+                return;
+
+            long queueLatency = System.nanoTime() - pendingSave.requestTime;
+            totalQueueLatency.addAndGet(queueLatency);
+            long currentMaximalLatency;
+            while (queueLatency > (currentMaximalLatency = maximalQueueLatency.get()) &&
+                    !maximalQueueLatency.compareAndSet(currentMaximalLatency, queueLatency));
+
+            writesCount.incrementAndGet();
+            if (!XMLHelper.writeXMLDocument(pendingSave.xmlDocument, pendingSave.xmlFileName,
+                    pendingSave.useTemporaryFile, pendingSave.charset, pendingSave.indentSize))
+                failedWritesCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Latest save request of a file.
+     */
+    private static class PendingSave {
+
+        /**
+         * XML destination file.
+         */
+        final String xmlFileName;
+
+        /**
+         * Time of the first request in nanoseconds.
+         */
+        final long requestTime = System.nanoTime();
+
+        /**
+         * Latest document to save.
+         */
+        Document xmlDocument;
+
+        /**
+         * Temporary file flag of the latest request.
+         */
+        Boolean useTemporaryFile;
+
+        /**
+         * Charset of the latest request.
+         */
+        String charset;
+
+        /**
+         * Indent size of the latest request.
+         */
+        Integer indentSize;
+
+        /**
+         * Creates pending save.
+         *
+         * @param xmlFileName
+         *      XML destination file
+         */
+        PendingSave(String xmlFileName) {
+
+            this.xmlFileName = xmlFileName;
+        }
+
+        /**
+         * Sets document and parameters of the latest request.
+         *
+         * @param xmlDocument
+         *      Document to save
+         * @param useTemporaryFile
+         *      Temporary file flag
+         * @param charset
+         *      Charset
+         * @param indentSize
+         *      Indent size
+         */
+        void setDocument(Document xmlDocument, Boolean useTemporaryFile, String charset, Integer indentSize) {
+
+            this.xmlDocument = xmlDocument;
+            this.useTemporaryFile = useTemporaryFile;
+            this.charset = charset;
+            this.indentSize = indentSize;
+        }
+    }
+}